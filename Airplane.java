@@ -1,41 +1,56 @@
-import javax.swing.Timer;
- 
-import java.awt.event.ActionListener;
-import java.awt.event.ActionEvent;
 import java.awt.event.KeyListener;
 import java.awt.event.KeyEvent;
+import java.io.File;
   
 /**
  * an extension of the {@link GameObject} class. Represents a controllable airplane in 3d
  * with physics. 
+ * <p>
+ * The physics runs on it's own thread, stepping a {@link FlightModel} a fixed amount of time at a fixed
+ * rate, so the flight doesn't depend on how fast frames are rendered. The physics keeps it's own position and orientation,
+ * and publishes them after every step. Each frame, the renderer moves the airplane's mesh (and the camera)
+ * to a point between the last two published states, so the motion looks smooth at any frame rate.
  */
-public class Airplane extends GameObject implements ActionListener
+public class Airplane extends GameObject implements Runnable
 {
+    //number of physics steps per second, unless changed with setPhysicsRate()
+    public static final double DEFAULT_PHYSICS_RATE = 120;
+    //most time that the physics thread will catch up on at once, after a long pause (like a breakpoint)
+    private static final double MAX_CATCH_UP_TIME = 0.25;
+    //the flight dials are repainted at most this often, in seconds
+    private static final double DIAL_REPAINT_INTERVAL = 0.03;
+    //hours of physics steps kept by the flight recorder, after that the oldest steps are replaced
+    public static final double RECORDING_HOURS = 4;
+    private static double physicsRate = DEFAULT_PHYSICS_RATE;
+    private static File recordingFile = null; //the file the flight recorder writes to, null to not record
+    private static File inputLogFile = null; //the file the controls are logged to, null to not log them
+    private static FlightReplay replay = null; //the flights that are flown instead of the keyboard, null to fly
+    private static double replaySpeed = 1; //how many times faster than real time a replay is flown
+    private static int telemetryPort = 0; //the local port the telemetry is streamed on, 0 to not stream it
+
     //the camera that is focused on this GameObject
     private Camera camera;
     private AirplaneController airplaneController; //the interface for user input
-    private AirplanePhysics physics; //the physics object that controls the plane
-    private Timer airplaneUpdater; //the timer that updates the physics
-    private double deltaTime; //the time in seconds since last update. 
-    //Used to balance physics simulation speed across devices with different preformance levels 
-    private double lastFrame; //used to calculate deltatime
-    private boolean physicsEnabled; //is physics enabled?
- 
-    private double throttle; //the throttle of the plane from 0-1
-    private double maxEnginePower; //the maximum power the engine can produce when throttle is 1
-    private double pitchSpeed; //sensitivity of the pitch user control
-    private double yawSpeed; //sensitivty of the yaw user control
-    private double rollSpeed; //sensitivity of the roll user control
-    private double gravity; //the force of gravity on the airplane
-    private double mass; //the mass of the airplane
-    private double liftCoefficient; //the strenth of lift
-    private double dragCoefficient; //strenth of drag
-    private double angularDragCoefficient; //strenth of rotational drag.
-    private double yawRollEffectAmount; //the magnitude of the effect of rolling when the airplane yaws
-    private double aerodynamicEffectAmount; //the strenth of the effect that straightens out the airplane
-    
-    private boolean takenOff; //has the airplane taken off yet?
-    private double groundLevel;  //the level of ground as a y coordinate
+    private FlightParameters parameters; //the values that control how the airplane flies
+    private FlightModel physics; //the flight model that controls the plane
+    private HeightField ground; //the ground the plane can touch and crash into, null for flat ground
+    private CollisionWorld collisionWorld; //the objects the plane can crash into, null for none
+    private volatile boolean collided; //has the mesh touched another object? Set by the renderer, read by the physics
+    private ControlInput controls; //the controller's input for the current physics step
+    private Thread physicsThread; //the thread that steps the physics
+    private double deltaTime; //the time in seconds that each physics step simulates (1/physics rate)
+    private double stepSpeed = 1; //how many times faster than real time the physics thread steps (the replay speed in a replay)
+    private volatile boolean physicsEnabled; //is physics enabled?
+    private volatile PhysicsState physicsState; //the state published by the last physics step
+    private FlightRecorder recorder; //records every physics step, null if the flight isn't being recorded
+    private InputLog inputLog; //logs the controls of every flight, null if they aren't being logged
+    private TelemetryPublisher telemetry; //sends the state of every physics step to it's subscribers
+
+    //metrics, measured by the physics thread and read by monitoring tools (see SimulatorMBeans)
+    private static final int TICK_WINDOW = 600; //number of steps kept for the statistics, 5 seconds at 120 per second
+    private TimingWindow tickIntervals; //real time between the starts of the last steps, in ms
+    private TimingWindow stepTimes; //real time that the last steps took, in ms
+    private UtilizationMeter physicsUtilization; //how much of the time the physics thread is stepping
 
     private GamePanel gamePanel; //the GamePanel object that manages the game
      
@@ -53,97 +68,414 @@ public class Airplane extends GameObject implements ActionListener
             new Transform(new Vector3(0, 0, 0))
         );
  
-        //innitialize fields to their default physics values 
-        maxEnginePower = 20000; 
-        pitchSpeed = 30;
-        yawSpeed = 20;
-        rollSpeed = 40;
-        gravity = 65;
-        mass = 1000;
-        liftCoefficient = 1.5;
-        dragCoefficient = 0.2;
-        angularDragCoefficient = 1;
-        aerodynamicEffectAmount = 0.01;
-        yawRollEffectAmount = 30;
-        groundLevel = 0;
-        
-        deltaTime = 0.01;
-        lastFrame = 0;
+        //innitialize the default physics values
+        parameters = (replay != null)? replay.getParameters() : new FlightParameters();
+        deltaTime = (replay != null)? replay.getDeltaTime() : 1/physicsRate;
         physicsEnabled = false;
         airplaneController = new AirplaneController();
         camera = camIn;
         gamePanelIn.addKeyListener(airplaneController);
         gamePanel = gamePanelIn;
-        throttle = 0;
-        physics = new AirplanePhysics();
-        airplaneUpdater = new Timer(30, this);
+        controls = new ControlInput();
+        physics = createPhysics();
+        telemetry = new TelemetryPublisher();
+        tickIntervals = new TimingWindow(TICK_WINDOW);
+        stepTimes = new TimingWindow(TICK_WINDOW);
+        physicsUtilization = new UtilizationMeter();
+        if (telemetryPort > 0)
+            TelemetryServer.start(telemetryPort, telemetry);
+        if (recordingFile != null)
+        {
+            int capacity = (int)Math.min(FlightRecorder.MAX_CAPACITY, Math.ceil(RECORDING_HOURS*3600/deltaTime));
+            recorder = FlightRecorder.create(recordingFile, capacity, deltaTime);
+        }
+
+        //the log is finished when the game is closed, so the end of the last flight can be replayed too
+        Runtime.getRuntime().addShutdownHook(new Thread("Input log")
+        {
+            public void run()
+            {
+                stopPhysics();
+                if (inputLog != null)
+                    inputLog.close(physics);
+                telemetry.close();
+            }
+        });
+    }
+
+    //makes a new flight model for a new flight. A replay flies with the same ground that it was logged with.
+    private FlightModel createPhysics()
+    {
+        FlightModel model = new FlightModel(parameters, deltaTime);
+        if (replay != null)
+        {
+            model.setIntegrator(replay.getIntegrator());
+            model.setGround(replay.getGround());
+        }
+        else
+            model.setGround(ground);
+        return model;
     }
  
     /**
      * called by the GamePanel which tells this object what the rendering panel is,
-     * and automatically adds itself to the panel.
+     * and automatically adds itself to the panel. The airplane is always close to the camera, 
+     * so it is added as an occluder. The panel also moves the airplane to it's interpolated
+     * position at the start of every frame.
      * @param renderingPanel the RenderingPanel object
      */
     public void setRenderPanel(RenderingPanel renderingPanel)
     {
-        renderingPanel.addMesh(this.getMesh());
+        renderingPanel.addOccluder(this.getMesh());
+        renderingPanel.setFrameUpdater(new Runnable()
+        {
+            public void run()
+            {
+                updateRenderTransform();
+            }
+        });
+    }
+
+    /**
+     * sets the ground that the airplane touches and crashes into, like the terrain's surface.
+     * Should be set before physics is started.
+     * @param groundIn the height of the ground, or null for flat ground at ground level
+     */
+    public void setGround(HeightField groundIn)
+    {
+        ground = groundIn;
+        if (replay == null)
+            physics.setGround(ground);
+    }
+
+    /**
+     * sets the objects that the airplane crashes into. The airplane is added to them, and is checked against
+     * them each frame once it's mesh has been moved.
+     * @param collisionWorldIn the objects to crash into, or null for none
+     */
+    public void setCollisionWorld(CollisionWorld collisionWorldIn)
+    {
+        collisionWorld = collisionWorldIn;
+        if (collisionWorld != null)
+            collisionWorld.add(this);
+    }
+
+    /**
+     * sets the number of physics steps per second. Takes effect the next time physics is started.
+     * @param rate steps per second
+     */
+    public static void setPhysicsRate(double rate)
+    {
+        if (rate <= 0)
+        {
+            System.err.println("WARNING at: Airplane/setPhysicsRate() method:\n\tphysics rate must be positive, rate not set");
+            return;
+        }
+        physicsRate = rate;
     }
  
     /**
-     * starts physics simulation by starting the physics updater timer
+     * records every physics step into a file, which can be read with {@link FlightRecording}. Takes effect for
+     * airplanes created after this call. After a reset the steps are counted from 0 again.
+     * @param file the file to record to (it is replaced), or null to not record
+     */
+    public static void setRecordingFile(File file)
+    {
+        recordingFile = file;
+    }
+
+    /**
+     * logs the controls of every flight into a file, so the flights can be flown again exactly the same way
+     * with {@link FlightReplay}. Takes effect for airplanes created after this call.
+     * @param file the file to log to (it is replaced), or null to not log
+     */
+    public static void setInputLogFile(File file)
+    {
+        inputLogFile = file;
+    }
+
+    /**
+     * flies the flights of an input log instead of taking controls from the keyboard, with the parameters,
+     * step length and ground that they were logged with. Each reset starts the next flight in the log.
+     * Takes effect for airplanes created after this call.
+     * @param replayIn the flights to fly (see {@link FlightReplay#open}), or null to fly with the keyboard
+     */
+    public static void setReplay(FlightReplay replayIn)
+    {
+        replay = replayIn;
+    }
+
+    /**
+     * sets how many times faster than real time a replay is flown.
+     * @param speed the speed, 1 is real time
+     */
+    public static void setReplaySpeed(double speed)
+    {
+        if (speed <= 0)
+        {
+            System.err.println("WARNING at: Airplane/setReplaySpeed() method:\n\treplay speed must be positive, speed not set");
+            return;
+        }
+        replaySpeed = speed;
+    }
+
+    /**
+     * streams the telemetry to programs on this computer that connect to a port, see {@link TelemetryServer}.
+     * Takes effect for airplanes created after this call.
+     * @param port the port, or 0 to not stream
+     */
+    public static void setTelemetryPort(int port)
+    {
+        if (port < 0 || port > 65535)
+        {
+            System.err.println("WARNING at: Airplane/setTelemetryPort() method:\n\tport must be between 0 and 65535, port not set");
+            return;
+        }
+        telemetryPort = port;
+    }
+
+    /**
+     * returns the publisher that sends a {@link TelemetryFrame} after every physics step, for following the
+     * flight as it happens. Subscribers get the frames on their own threads, and never slow down the physics.
+     * After a reset the steps are counted from 0 again.
+     */
+    public TelemetryPublisher getTelemetry()
+    {
+        return telemetry;
+    }
+
+    /**
+     * returns the real time between the starts of the last physics steps, in milliseconds. Ideally every
+     * one is the step length, the spread of them is the jitter. Steps are done in bursts after a pause.
+     */
+    public TimingWindow getTickIntervals()
+    {
+        return tickIntervals;
+    }
+
+    /**
+     * returns the real time that the last physics steps took to calculate, in milliseconds
+     */
+    public TimingWindow getStepTimes()
+    {
+        return stepTimes;
+    }
+
+    /**
+     * returns the fraction of the time that the physics thread spends stepping, rather than sleeping
+     */
+    public double getPhysicsUtilization()
+    {
+        return (physicsThread == null)? 0 : physicsUtilization.getUtilization();
+    }
+
+    /**
+     * returns the number of physics steps per second that the physics is trying to do
+     */
+    public double getTargetTickRate()
+    {
+        return 1/deltaTime;
+    }
+
+    /**
+     * returns the number of steps in the current flight
+     */
+    public long getStepCount()
+    {
+        return physics.getStepCount();
+    }
+
+    public boolean isPhysicsRunning()
+    {
+        return physicsThread != null;
+    }
+
+    /**
+     * starts physics simulation by starting the physics thread
      */
     public void startPhysics()
     {
+        if (physicsThread != null)
+            return;
+        //a replay is stepped by the step length it was logged with
+        if (replay == null)
+        {
+            deltaTime = 1/physicsRate;
+            physics.setDeltaTime(deltaTime);
+        }
+        if (inputLogFile != null && inputLog == null)
+            inputLog = InputLog.create(inputLogFile, physics);
         physicsEnabled = true;
-        airplaneUpdater.start();
-        lastFrame = System.currentTimeMillis();
+        physicsThread = new Thread(this, "Physics");
+        physicsThread.start();
     }
 
     /**
-     * stops the physics simulation by stopping the timer and changing the boolean value
-     * used for pausing
+     * stops the physics simulation by stopping the physics thread and changing the boolean value
+     * used for pausing. Waits for the step that the thread is on to finish.
      */
     public void stopPhysics()
     {
         physicsEnabled = false;
-        airplaneUpdater.stop();
+        if (physicsThread == null)
+            return;
+        try
+        {
+            physicsThread.interrupt();
+            physicsThread.join();
+        }
+        catch (InterruptedException e)
+        {
+            System.err.println("WARNING at: Airplane/stopPhysics() method:\n\tinterrupted while waiting for the physics thread to stop");
+        }
+        physicsThread = null;
+    }
+
+    /**
+     * run by the physics thread. Real time is added to an accumulator, and the physics is stepped
+     * by deltaTime for every whole step that fits in it, then the thread sleeps until the next step is due.
+     * A replay adds the real time times the replay speed.
+     */
+    public void run()
+    {
+        long previousTime = System.nanoTime();
+        long lastDialRepaint = previousTime;
+        double accumulator = 0;
+        double speed = (replay != null)? replaySpeed : 1;
+        stepSpeed = speed;
+        long lastStepStart = 0; //a pause in the physics doesn't count as the time between two steps
+        while (physicsEnabled)
+        {
+            long now = System.nanoTime();
+            //at slow rates (or slow replays) one step can be longer than the catch up time, so the cap has to
+            //be at least one step or the accumulator would never reach deltaTime
+            accumulator = Math.min(Math.max(MAX_CATCH_UP_TIME*speed, deltaTime), accumulator + (now - previousTime)/1000000000.0*speed);
+            long period = now - previousTime;
+            previousTime = now;
+            long busyTime = 0;
+            while (accumulator >= deltaTime && physicsEnabled)
+            {
+                long stepStart = System.nanoTime();
+                if (lastStepStart != 0)
+                    tickIntervals.add((stepStart - lastStepStart)/1000000.0);
+                lastStepStart = stepStart;
+                step();
+                long stepTime = System.nanoTime() - stepStart;
+                stepTimes.add(stepTime/1000000.0);
+                busyTime += stepTime;
+                accumulator -= deltaTime;
+            }
+            physicsUtilization.add(busyTime, period);
+
+            if ((now - lastDialRepaint)/1000000000.0 >= DIAL_REPAINT_INTERVAL)
+            {
+                gamePanel.repaint();
+                lastDialRepaint = now;
+            }
+
+            //the accumulator can still hold whole steps if the physics was stopped in the middle of catching up
+            long sleepTime = Math.max(0, (long)((deltaTime - accumulator)/speed*1000000000));
+            try
+            {
+                Thread.sleep(sleepTime/1000000, (int)(sleepTime%1000000));
+            }
+            catch (InterruptedException e)
+            {}
+        }
     }
  
     /**
-     * called by the timer object and preforms physics updates 
-     * as well as enabling user input
+     * preforms one physics step of deltaTime seconds, including user input, then publishes the new state.
+     * After a crash the airplane stays where it crashed until it is reset. A replay stays where it's flight
+     * ended.
      */
-    public void actionPerformed(ActionEvent e)  
+    private void step()  
     {
-        //checks each inpput of the airplane controller 
-        //and applies the corresponding changes to the physics 
-        //object
-        if (airplaneController.throttleUp && throttle < 1)
-            throttle += 1*deltaTime;
-        if (airplaneController.throttleDown && throttle > 0)
-            throttle -= 1*deltaTime;
-        if (airplaneController.pitchUp)
-            physics.addPitchTorque(-pitchSpeed);
-        if (airplaneController.pitchDown)
-            physics.addPitchTorque(pitchSpeed);
-        if (airplaneController.rollLeft)
-            physics.addRollTorque(rollSpeed);
-        if (airplaneController.rollRight)
-            physics.addRollTorque(-rollSpeed);
-        if (airplaneController.yawLeft)
-            physics.addYawTorque(-yawSpeed);
-        if (airplaneController.yawRight)
-            physics.addYawTorque(yawSpeed);
-
-        //update physics
-        physics.update();
-        physics.applyThrust(throttle*maxEnginePower);
-        getMesh().refreshLighting();
+        if (physics.hasCrashed())
+            return;
+
+        //crashing into an object depends on when the renderer noticed it, so it's logged along with the controls,
+        //and a replay crashes when the log says to rather than when it touches something
+        boolean crash;
+        if (replay != null)
+        {
+            crash = replay.getControlsAt(physics.getStepCount(), controls);
+            if (physics.getStepCount() >= replay.getFlightLength() && !crash)
+                return;
+        }
+        else
+        {
+            //copies each input of the airplane controller, so the whole step
+            //sees the same controls even if a key changes in the middle of it
+            airplaneController.copyTo(controls);
+            crash = collided;
+        }
+        if (inputLog != null)
+            inputLog.record(physics, controls, crash);
+        if (crash)
+            physics.crash();
+        if (physics.hasCrashed())
+            return;
+        FlightEvents.PhysicsStep event = new FlightEvents.PhysicsStep();
+        event.begin();
+        physics.step(controls);
+        if (recorder != null)
+            recorder.record(physics, controls);
 
-        //calculate delta time
-        deltaTime = (System.currentTimeMillis() - lastFrame)/1000.0;
-        lastFrame = System.currentTimeMillis();
-        gamePanel.repaint();
+        PhysicsState previous = physicsState;
+        EulerAngle rotation = physics.getRotation();
+        physicsState = new PhysicsState
+        (
+            previous, new Vector3(physics.getPosition()), physics.getOrientation(), new Vector3(physics.getVelocity()),
+            new EulerAngle(rotation.x, rotation.y, rotation.z), physics.getThrottle(), System.nanoTime(), deltaTime/stepSpeed
+        );
+        if (telemetry.hasSubscribers())
+            telemetry.publish(new TelemetryFrame(physics, controls, physicsState.time));
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.step = physics.getStepCount();
+            event.subSteps = physics.getSubSteps();
+            event.altitude = physics.getAltitude();
+            event.speed = physics.getVelocity().getMagnitude();
+            event.controls = controls.toBits();
+            event.crashed = physics.hasCrashed();
+            event.commit();
+        }
+    }
+
+    /**
+     * moves the airplane's mesh to where it is between the last two physics steps, based on how much
+     * time has passed since the last one, and moves the camera along with it. Called by the rendering
+     * panel at the start of every frame, on the thread that renders.
+     */
+    public void updateRenderTransform()
+    {
+        PhysicsState state = physicsState;
+        if (state == null)
+            return;
+        double alpha = Math.max(0, Math.min(1, (System.nanoTime() - state.time)/1000000000.0/state.interval));
+        Vector3 position = Vector3.lerp(state.previousPosition, state.position, alpha);
+
+        //interpolate each axis, then normalize them again. The axes turn very little between two steps,
+        //so they stay perpendicular enough.
+        Matrix3x3 from = state.previousOrientation;
+        Matrix3x3 to = state.orientation;
+        Vector3 right = Vector3.lerp(new Vector3(from.R1C1, from.R2C1, from.R3C1), new Vector3(to.R1C1, to.R2C1, to.R3C1), alpha).getNormalized();
+        Vector3 up = Vector3.lerp(new Vector3(from.R1C2, from.R2C2, from.R3C2), new Vector3(to.R1C2, to.R2C2, to.R3C2), alpha).getNormalized();
+        Vector3 forward = Vector3.lerp(new Vector3(from.R1C3, from.R2C3, from.R3C3), new Vector3(to.R1C3, to.R2C3, to.R3C3), alpha).getNormalized();
+
+        getTransform().setOrientation(new Matrix3x3(right, up, forward));
+        getTransform().setPosition(position);
+        getMesh().refreshLighting();
+        if (collisionWorld != null)
+        {
+            collisionWorld.update(this);
+            if (collisionWorld.isColliding(this))
+                collided = true;
+        }
+        if (camera.getOrbitCamController() != null)
+            camera.getOrbitCamController().updatePosition();
     }
 
     /**
@@ -153,47 +485,60 @@ public class Airplane extends GameObject implements ActionListener
     {
         gamePanel.pause();
         stopPhysics();
-        takenOff = false;
         getMesh().resetPosition();
         getMesh().rotate(getTransform().toLocalMatrix(), new Vector3());
         
         setTransform(new Transform(new Vector3()));
-        throttle = 0;
-        physics = new AirplanePhysics();
+        if (inputLog != null)
+            inputLog.restart(physics);
+        if (replay != null && replay.getFlightIndex() + 1 < replay.getFlightCount())
+            replay.selectFlight(replay.getFlightIndex() + 1);
+        physics = createPhysics();
+        physicsState = null;
+        collided = false;
         startPhysics();
         gamePanel.unpause();
     }
 
+    //the following getters are used by the flight dials on the EDT, so they read the last published
+    //physics state rather than the physics that the physics thread is in the middle of changing.
+    //Before the first step, they read the physics directly.
+
     /**
      * returns the altitude of the plane relative to ground level
      */
     public double getAltitude()
     {
-        return physics.getPosition().y-groundLevel;
+        PhysicsState state = physicsState;
+        return ((state == null)? physics.getPosition().y : state.position.y)-parameters.groundLevel;
     }
 
     //returns the speed of the plane
     public double getSpeed()
     {
-        return physics.velocity.getMagnitude();
+        PhysicsState state = physicsState;
+        return (state == null)? physics.getVelocity().getMagnitude() : state.velocity.getMagnitude();
     }
 
     //returns the orientation for flight dials
     public EulerAngle orientation()
     {
-        return physics.physicsRotation;
+        PhysicsState state = physicsState;
+        return (state == null)? physics.getRotation() : state.rotation;
     }
 
     //returns the throttle value for the flight dials
     public double getThrottle()
     {
-        return throttle;
+        PhysicsState state = physicsState;
+        return (state == null)? physics.getThrottle() : state.throttle;
     }
 
     //returns vertical speed for flight dials
     public double getVerticalClimb()
     {
-        return physics.velocity.y;
+        PhysicsState state = physicsState;
+        return (state == null)? physics.getVelocity().y : state.velocity.y;
     }
  
 
@@ -202,15 +547,16 @@ public class Airplane extends GameObject implements ActionListener
         //boolean for each user control. 
         //true means that the user is pressing it
         //and false means that the user isn't.
-        private boolean throttleUp;
-        private boolean throttleDown;
-        private boolean pitchUp;
-        private boolean pitchDown;
-        private boolean rollLeft;
-        private boolean rollRight;
-        private boolean yawLeft;
-        private boolean yawRight;
-        private boolean brakes;
+        //set by key events on the EDT and read by the physics thread.
+        private volatile boolean throttleUp;
+        private volatile boolean throttleDown;
+        private volatile boolean pitchUp;
+        private volatile boolean pitchDown;
+        private volatile boolean rollLeft;
+        private volatile boolean rollRight;
+        private volatile boolean yawLeft;
+        private volatile boolean yawRight;
+        private volatile boolean brakes;
  
         public AirplaneController()
         {
@@ -255,6 +601,20 @@ public class Airplane extends GameObject implements ActionListener
  
         public void keyTyped(KeyEvent e) {}
 
+        //copies the state of each control into "input"
+        public void copyTo(ControlInput input)
+        {
+            input.throttleUp = throttleUp;
+            input.throttleDown = throttleDown;
+            input.pitchUp = pitchUp;
+            input.pitchDown = pitchDown;
+            input.rollLeft = rollLeft;
+            input.rollRight = rollRight;
+            input.yawLeft = yawLeft;
+            input.yawRight = yawRight;
+            input.brakes = brakes;
+        }
+
         //checks each keybind based on user settings and sets the 
         //corresponding value accordingly
         public void keyReleased(KeyEvent e)  
@@ -285,238 +645,34 @@ public class Airplane extends GameObject implements ActionListener
     }
  
     /**
-     * Preforms all physics calculations for the airplane. It contains seperated
-     * positions and rotations from the actual GameObject's Transform object.
+     * a snapshot of the airplane after a physics step: the position and orientation, along with the ones from
+     * the step before it so the renderer can interpolate between them, and the values shown on the flight dials.
+     * All of the objects in it are copies, and none of them are changed after it is published, so the
+     * renderer and the EDT can read it while the physics thread carries on.
      */
-    class AirplanePhysics
+    static class PhysicsState
     {
-        private Vector3 physicsPosition; //the simulated position of the airplane physics.
-        //physics calcuations are done to the physicsPosition/rotation before being applied 
-        //to the Transform of the actual GameObject
-        private EulerAngle physicsRotation;//the simulated rotation
-        private double forwardSpeed;//the speed the plane is going strictly in the local z axis.
-        //used for lift, drag and crashing calculations
-        private Vector3 velocity; // the velocty of the plane as a Vector3
-        private double velocityPitch; //the velocty of the plane's pitch. Basically how fast it's pitching
-        private double velocityYaw; //how fast the plane is yawing
-        private double velocityRoll; //how fast the plane is rolling
- 
-        //creates an airplanePhysics object with default physics values
-        public AirplanePhysics()
-        {
-            physicsRotation = new EulerAngle();
-            physicsPosition = new Vector3();
-            velocity = new Vector3();
-            velocityPitch = 0;
-            velocityRoll = 0;
-            velocityYaw = 0;
-        }
-        
-        //applies a force as a Vector3 by dividing by mass and adding that to the velocity.
-        public void addForce(Vector3 force)
-        {
-            velocity.add(Vector3.multiply(force, 1/mass));
-        }
- 
-        //applies a torque around the local x axis by amt again by dividing by mass. 
-        public void addPitchTorque(double amt)
-        {
-            amt *= Math.min(1, forwardSpeed/20);
-            velocityPitch = velocityPitch + amt/mass*deltaTime;
-        }
- 
-        //applies a torque around the local y axis by amt again by dividing by mass. 
-        public void addYawTorque(double amt)
-        {
-            amt *= Math.min(1, forwardSpeed/20);
-            velocityYaw = velocityYaw + amt/mass*deltaTime;
-        }
- 
-        //applies a torque around the local z axis by amt again by dividing by mass. 
-        public void addRollTorque(double amt)
-        {
-            amt *= Math.min(1, forwardSpeed/20);
-            velocityRoll = velocityRoll + amt/mass*deltaTime;
-        }
- 
-        //applies drag to the airplane by decreasing the velocty by an amount based on altitude, speed and the drag
-        //coefficient. The math used is not realistic, but it's looks fine in the simulation
-        public void applyDrag()
-        {
-            if (velocity.getSqrMagnitude() > 0.1)
-            {
-                double altitudeFactor = (2000/(physicsPosition.y-groundLevel+2000));
-                altitudeFactor += 0.6;
-                altitudeFactor *= altitudeFactor * altitudeFactor;
-                velocity = Vector3.subtract(velocity, Vector3.multiply(velocity, Math.min(1, dragCoefficient*velocity.getMagnitude()*deltaTime*altitudeFactor/700)));
-                Vector3 verticalDrag = Vector3.projectToVector(velocity, getTransform().getUp());
-                velocity = Vector3.subtract(velocity, Vector3.multiply(verticalDrag, Math.min(1, dragCoefficient*verticalDrag.getMagnitude()*deltaTime*altitudeFactor)));
-            }
-        }
+        public final Vector3 position;
+        public final Matrix3x3 orientation; //columns are the right, up and forward vectors
+        public final Vector3 previousPosition;
+        public final Matrix3x3 previousOrientation;
+        public final Vector3 velocity;
+        public final EulerAngle rotation;
+        public final double throttle;
+        public final long time; //System.nanoTime() when the step finished
+        public final double interval; //real seconds until the next step is due (shorter than a step in a fast replay)
 
-        //applies the effect that causes an airplane to roll in the direction of a yaw. This is because when yawing, the 
-        //outer wing moves faster, increasing it's lift and causing a roll in the same direction. This method tries to 
-        //replicate that artificially.
-        public void applyYawRollEffect()
+        public PhysicsState(PhysicsState previous, Vector3 positionIn, Matrix3x3 orientationIn, Vector3 velocityIn, EulerAngle rotationIn, double throttleIn, long timeIn, double intervalIn)
         {
-            if (velocity.x != 0 && velocity.z != 0 && (airplaneController.yawLeft || airplaneController.yawRight))
-            {
-                double rollAmount = Vector3.dotProduct(Vector3.projectToPlane(velocity, getTransform().getUp()).getNormalized(), getTransform().getRight());
-                rollAmount *= rollAmount *rollAmount;
-                velocityRoll += deltaTime*rollAmount*yawRollEffectAmount;
-            }
-        }
- 
-        //calculates the forward velocty by getting the magnitude of the projection onto the local z axis of the transform.
-        public void calculateForwardV()
-        {
-            forwardSpeed = Vector3.dotProduct(velocity, getTransform().getForward());
-        }
-
-        //resets the physics entirely. This is caused by the main Airplane class when it is reset.
-        public void physicsReset()
-        {
-            physicsRotation = new EulerAngle();
-            physicsPosition = new Vector3();
-            velocity = new Vector3();
-            velocityPitch = 0;
-            velocityRoll = 0;
-            velocityYaw = 0;
-            updateOrientation();
-            updatePosition();
-        }
- 
-        //applies angular drag by decreasing all the rotational velocities by an amount based off
-        //the angular drag coefficient. 
-        public void applyAngularDrag()
-        {
-            velocityPitch = velocityPitch - velocityPitch*angularDragCoefficient*deltaTime;
-            velocityYaw = velocityYaw - velocityYaw*angularDragCoefficient*deltaTime;
-            velocityRoll = velocityRoll - velocityRoll*angularDragCoefficient*deltaTime;
-        }
- 
-        //applies gravity by adding a force with a magnitude of the gravity strenth
-        public void applyGravity()
-        {
-            velocity.add(new Vector3(0, -gravity*deltaTime, 0));
-        }
- 
-        //applies lift to the velocity by adding a vector perpendicular to the veloicty and the local x-axis of the transoform.
-        public void applyLift()
-        {
-            //scale lift by altitude to account for the lack of flaps.
-            double altitudeFactor = (2000/(physicsPosition.y-groundLevel+2000));
-            altitudeFactor += 1;
-            altitudeFactor *= altitudeFactor * altitudeFactor;
-            addForce(Vector3.multiply(Vector3.crossProduct(velocity, getTransform().getRight()).getNormalized(), Math.min(2000, forwardSpeed*forwardSpeed*liftCoefficient*deltaTime*altitudeFactor)));
-        }
- 
-        //gives the effect of the plane naturally alligning itself to the direction it's pointing.
-        public void applyAerodynamicEffect()
-        {
-            if (velocity.getSqrMagnitude() > 0)
-            {
-                //compares the direction we are facing to the direction we are moving
-                double correctionFactor = Vector3.dotProduct(getTransform().getForward(), velocity.getNormalized());
-                //squaring gives it a better rolloff curve for the effect
-                correctionFactor *= correctionFactor;
- 
-                //calculates the new velocity by bending the current velocity towards the  
-                //direction we are facing, by the correction factor.
-                velocity = Vector3.lerp(velocity, Vector3.projectToVector(velocity, getTransform().getForward()), correctionFactor*forwardSpeed*aerodynamicEffectAmount*deltaTime/2);  
-                 
-                //also rotate the plane towards the direction of movement. (This is innacurate due to linear interpolation with vectors being translated into rotation)
-                //Would be better with the use of quaternion multiplication.
-                Vector3 direction = getTransform().transformToLocal(Vector3.lerp(getTransform().getForward(), velocity.getNormalized(), correctionFactor*aerodynamicEffectAmount*deltaTime*forwardSpeed));
-                physicsRotation.y += ((direction.x < 0)? -Math.atan(direction.z/direction.x)-Math.PI/2 : Math.PI/2-Math.atan(direction.z/direction.x));
-                physicsRotation.x += Math.atan(direction.y/Math.sqrt(direction.x*direction.x + direction.z*direction.z))/5;
-            }
-        }
- 
-        //applies the position of the simulated physicsPosition to the actual Transform of the GameObject.
-        //Makes sure that the position cannot fall below the ground level. However, if it approaches the ground level
-        //it checks for a crash.  
-        public void updatePosition()
-        {
-            if (Vector3.add(physicsPosition, velocity).y > groundLevel)
-            {
-                physicsPosition.add(velocity);
-                if (physicsPosition.y > 50 && takenOff == false)
-                {
-                    takenOff = true;
-                }
-            }
-            else
-            {
-                physicsPosition.y = groundLevel;
-                velocity.y = 0;
-                physicsPosition.add(velocity);
-            }
-            getTransform().setPosition(Vector3.add(getTransform().getPosition(), velocity));
-            if (camera.getOrbitCamController() != null && camera.getOrbitCamController() != null)
-            {
-                camera.getOrbitCamController().updatePosition();
-            }
-        }
- 
-        //applies the velocities to the physics rotation then applies that to the 
-        //game object's transform (this is actually slightly bugged because of the use of 
-        //euler angles. Quaternions would solve this problem but it's a lot of work)
-        public void updateOrientation()
-        {
-            physicsRotation.x += velocityPitch;
-            physicsRotation.y += velocityYaw;
-            physicsRotation.z += velocityRoll;
- 
-            getTransform().setPitch(physicsRotation.x);
-            getTransform().setYaw(physicsRotation.y);
-            getTransform().setRoll(physicsRotation.z);
- 
-        }
-
-        //checks if the user has the brakes button down, if so
-        //it greatly increases the drag coefficient 
-        public void breaks()
-        {
-            if (airplaneController.brakes)
-                dragCoefficient = 1;
-            else
-                dragCoefficient = 0.2;
-        }
- 
-        //applies a force in the forward direction of the plane based on the amount param
-        public void applyThrust(double amount)
-        {
-            addForce(Vector3.multiply(getTransform().getForward(), amount*deltaTime));
-        }
- 
-        //returns the simulated position
-        public Vector3 getPosition()
-        {
-            return physicsPosition;
-        }
- 
-        //calls all the methods for updating and calculating physics.
-        //note that the order matters, so be careful before making changes.
-        public void update()
-        {
-            if (physicsEnabled)
-            {
-                calculateForwardV();
-                applyAerodynamicEffect();
-                applyYawRollEffect();
-                applyGravity();  
-                applyLift();  
-                applyDrag();
-                applyAngularDrag();
-                updateOrientation();
-                updatePosition();     
-                breaks();
-            }
+            position = positionIn;
+            orientation = orientationIn;
+            velocity = velocityIn;
+            rotation = rotationIn;
+            throttle = throttleIn;
+            previousPosition = (previous == null)? positionIn : previous.position;
+            previousOrientation = (previous == null)? orientationIn : previous.orientation;
+            time = timeIn;
+            interval = intervalIn;
         }
     }
- 
-     
 }
- 
- 
@@ -4,17 +4,21 @@ import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseWheelListener;
 import javax.swing.JPanel;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class Camera
 {
     //field of view of the camera.
     private double fov; //strictly reffers to the horizontal fov as vertical fov is based off screen height 
 
-    private Vector3 position; //position of camera in world-space
-    private double hAngle; //horizontal angle of camera
-    private double vAngle; //vertical angle of camera
+    //position and angles of the camera. The camera is moved by mouse events on the EDT and by the airplane on
+    //the rendering thread, and read by the renderer, so they are kept together in an immutable CameraState
+    //which is replaced as a whole. The renderer reads one state per frame and always gets a position and
+    //angles that belong together. Updates retry with compareAndSet instead of locking, so neither thread
+    //ever waits for the other.
+    private AtomicReference<CameraState> state;
     private double renderPlaneDistance; //distance from the camera that the rendering plane is
-    private double farClipDistance; //how far away should triangles stop being rendered?
+    private volatile double farClipDistance; //how far away should triangles stop being rendered? Can be changed while rendering
     private double nearClipDistance; //how close should triangles stop being rendered?
 
     //movement controller 
@@ -26,9 +30,7 @@ public class Camera
     public Camera(Vector3 positionIn, double farClipDistanceIn, double nearClipDistanceIn, double fovIn)
     {
         renderPlaneDistance = 10;
-        hAngle = 0;
-        vAngle = 0;
-        position = positionIn;
+        state = new AtomicReference<CameraState>(new CameraState(positionIn, 0, 0));
         farClipDistance = farClipDistanceIn;
         nearClipDistance = nearClipDistanceIn;
         setFov(fovIn);
@@ -37,12 +39,51 @@ public class Camera
     //sets the v and h angles to look at the specified position. 
     public void lookAt(Vector3 pos)
     {
-        hAngle = (pos.x-position.x < 0)? -Math.toDegrees(Math.atan((pos.z-position.z)/(pos.x-position.x)))-90 : 90-Math.toDegrees(Math.atan((pos.z-position.z)/(pos.x-position.x)));
+        Vector3 position = getPosition();
+        setAngles(lookAtHAngle(position, pos), lookAtVAngle(position, pos));
+    }
 
-        vAngle = Math.toDegrees(Math.atan((pos.y-position.y)/(Math.sqrt((pos.x-position.x)*(pos.x-position.x) + (pos.z-position.z)*(pos.z-position.z)))));
-        
-        hAngle%=360;
-        vAngle%=360;
+    //the h angle that a camera at "position" needs to look at "pos"
+    private static double lookAtHAngle(Vector3 position, Vector3 pos)
+    {
+        double hAngle = (pos.x-position.x < 0)? -Math.toDegrees(Math.atan((pos.z-position.z)/(pos.x-position.x)))-90 : 90-Math.toDegrees(Math.atan((pos.z-position.z)/(pos.x-position.x)));
+        return hAngle%360;
+    }
+
+    //the v angle that a camera at "position" needs to look at "pos"
+    private static double lookAtVAngle(Vector3 position, Vector3 pos)
+    {
+        double vAngle = Math.toDegrees(Math.atan((pos.y-position.y)/(Math.sqrt((pos.x-position.x)*(pos.x-position.x) + (pos.z-position.z)*(pos.z-position.z)))));
+        return vAngle%360;
+    }
+
+    //replaces the whole state of the camera at once. Nothing of the old state is kept, so unlike setPosition()
+    //and setAngles() there is nothing to retry.
+    private void setState(Vector3 position, double hAngle, double vAngle)
+    {
+        state.set(new CameraState(position, hAngle, vAngle));
+    }
+
+    //replaces the position in the camera's state, keeping the angles of whatever state is newest
+    private void setPosition(Vector3 position)
+    {
+        CameraState old;
+        do
+        {
+            old = state.get();
+        }
+        while (!state.compareAndSet(old, new CameraState(position, old.hAngle, old.vAngle)));
+    }
+
+    //replaces the angles in the camera's state, keeping the position of whatever state is newest
+    private void setAngles(double hAngle, double vAngle)
+    {
+        CameraState old;
+        do
+        {
+            old = state.get();
+        }
+        while (!state.compareAndSet(old, new CameraState(old.position, hAngle, vAngle)));
     }
 
     //camera controller which orbits a specified GameObject. panning the camera will cause it to 
@@ -66,8 +107,13 @@ public class Camera
         private int prevY = 0;
 
         //the difference in position between the camera and the object it's focusing on.
-        private Vector3 difference;
+        private volatile Vector3 difference; //set on the EDT, read by updatePosition() on the rendering thread
         private Vector3 directionUnit; // the normalized vector pointing away from the focusObj
+
+        //the meshes that the camera can't go through (like the terrain), null for none
+        private volatile SceneRaycaster raycaster;
+        //how far the camera is kept from a mesh that is between it and the focusObj, about the near clip distance
+        private static final double CLEARANCE = 150;
         
         public OrbitCamController(GameObject focusObjectIn, double startDistanceIn, double sensitivityIn)
         {
@@ -77,8 +123,8 @@ public class Camera
             directionUnit = new Vector3();
 
             //sets up the position of the camera.
-            position = Vector3.add(focusObj.getTransform().getPosition(), new Vector3(0, 0, -distance));
-            directionUnit = Vector3.subtract(position, focusObj.getTransform().getPosition()).getNormalized();
+            setPosition(Vector3.add(focusObj.getTransform().getPosition(), new Vector3(0, 0, -distance)));
+            directionUnit = Vector3.subtract(getPosition(), focusObj.getTransform().getPosition()).getNormalized();
             difference = Vector3.multiply(directionUnit, startDistanceIn);
         }
 
@@ -89,7 +135,7 @@ public class Camera
                 return;
             distance = Math.max(minDistance, Math.min(distance + e.getWheelRotation()*30, maxDistance));
             difference = Vector3.multiply(directionUnit, distance);
-            updatePosition();
+            updateView();
         }
 
         //pans the difference vector around the focused object by changing the directionUnit vector 
@@ -99,15 +145,15 @@ public class Camera
         {
             if (FlightSimulator.flightSim.getGamePanel().isPaused())
                 return;
+            double hAngle = getHorientation();
+            double vAngle = getVorientation();
             directionUnit = Vector3.rotateAroundYaxis(directionUnit, (e.getX()-prevX)/(2000/sensitivity));
             if (vAngle > -maxAngle && (e.getY()-prevY)/(200/sensitivity) > 0)
                 directionUnit = Vector3.rotateAroundYaxis(Vector3.rotateAroundXaxis(Vector3.rotateAroundYaxis(directionUnit, -hAngle*0.017453292519943295), (e.getY()-prevY)/(2000/sensitivity)), hAngle*0.017453292519943295);
             else if (vAngle < -minAngle && (e.getY()-prevY)/(200/sensitivity) < 0)
                 directionUnit = Vector3.rotateAroundYaxis(Vector3.rotateAroundXaxis(Vector3.rotateAroundYaxis(directionUnit, -hAngle*0.017453292519943295), (e.getY()-prevY)/(2000/sensitivity)), hAngle*0.017453292519943295);
             difference = Vector3.multiply(directionUnit, distance);
-            updatePosition();
-            lookAt(focusObj.getTransform().getPosition());
-            vAngle = Math.max(-89, Math.min(89, vAngle));
+            updateView();
             prevX = e.getX();
             prevY = e.getY();
         }
@@ -125,12 +171,42 @@ public class Camera
         }
 
         //updates the position of the camera to be around the focusObject. 
-        //uses the difference vector calculated on other methods
+        //uses the difference vector calculated on other methods. If something is between the focusObj and
+        //where the camera should be, the camera is moved in front of it instead.
         public void updatePosition()
         {
             if (FlightSimulator.flightSim.getGamePanel().isPaused())
                 return;
-            position = Vector3.add(focusObj.getTransform().getPosition(), difference);
+            setPosition(orbitPosition(focusObj.getTransform().getPosition()));
+        }
+
+        //moves the camera around the focusObj like updatePosition(), and turns it to look at the focusObj. The
+        //position and angles are worked out first and then published as one state, so the renderer never
+        //sees the new position with the old or unclamped angles.
+        private void updateView()
+        {
+            Vector3 focusPosition = focusObj.getTransform().getPosition();
+            Vector3 position = orbitPosition(focusPosition);
+            double vAngle = Math.max(-89, Math.min(89, lookAtVAngle(position, focusPosition)));
+            setState(position, lookAtHAngle(position, focusPosition), vAngle);
+        }
+
+        //returns where the camera should be, "difference" away from focusPosition, or in front of whatever
+        //is in the way
+        private Vector3 orbitPosition(Vector3 focusPosition)
+        {
+            Vector3 offset = difference;
+            SceneRaycaster meshes = raycaster;
+            RaycastHit hit = new RaycastHit();
+            if (meshes != null && meshes.raycast(focusPosition, offset, offset.getMagnitude() + CLEARANCE, focusObj.getMesh(), hit))
+                return Vector3.add(hit.point, Vector3.multiply(hit.normal, CLEARANCE));
+            return Vector3.add(focusPosition, offset);
+        }
+
+        //sets the meshes that the camera can't go through, or null to let it go through everything
+        public void setRaycaster(SceneRaycaster raycasterIn)
+        {
+            raycaster = raycasterIn;
         }
 
         //returns the focusObj
@@ -161,12 +237,37 @@ public class Camera
         return Math.tan(fov*0.017453292519943295/2)*renderPlaneDistance*2;
     }
 
+    //returns the view matrix for the camera's current state (see CameraState.getViewMatrix())
+    public Matrix4x4 getViewMatrix()
+    {
+        return state.get().getViewMatrix();
+    }
+
+    //returns the perspective matrix for a screen with the given width/height ratio. The far clip
+    //distance is passed in since the renderer may be using less than the camera's.
+    public Matrix4x4 getProjectionMatrix(double aspectRatio, double farClip)
+    {
+        return Matrix4x4.perspective(fov*0.017453292519943295, aspectRatio, nearClipDistance, farClip);
+    }
+
     //#region getter/setter methods
     public double getFarClipDistancee()
     {
         return farClipDistance;
     }
 
+    //sets how far away triangles stop being rendered. The renderer reads it once per frame, so it can be
+    //changed while rendering.
+    public void setFarClipDistance(double farClipDistanceIn)
+    {
+        if (farClipDistanceIn <= nearClipDistance)
+        {
+            System.err.println("WARNING at: Camera/setFarClipDistance() method:\n\tfar clip distance must be more than the near clip distance, not set");
+            return;
+        }
+        farClipDistance = farClipDistanceIn;
+    }
+
     //returns the distance of the near clipping pane used by rendering
     public double getNearClipDistance()
     {
@@ -200,19 +301,20 @@ public class Camera
     //returns the direction of the camera as a normalized vector.
     public Vector3 getDirectionVector()
     {
-        return Vector3.angleToVector(hAngle*0.017453292519943295, vAngle*0.017453292519943295);
+        CameraState current = state.get();
+        return Vector3.angleToVector(current.hAngle*0.017453292519943295, current.vAngle*0.017453292519943295);
     }
 
     //returns the horizontal orientation of the camera (yaw)
     public double getHorientation()
     {
-        return hAngle;
+        return state.get().hAngle;
     }
 
     //returns the vertical orientation of the camera (pitch)
     public double getVorientation()
     {
-        return vAngle;
+        return state.get().vAngle;
     }
     
     public void setFocusObj(GameObject obj)
@@ -222,7 +324,13 @@ public class Camera
 
     public Vector3 getPosition()
     {
-        return position;
+        return state.get().position;
+    }
+
+    //returns the camera's position and angles together, as they were at one moment
+    public CameraState getState()
+    {
+        return state.get();
     }
 
     public double getRenderPlaneWidth()
@@ -231,5 +339,28 @@ public class Camera
     }
 
     //#endregion
-}
 
+    //the position and angles of the camera at one moment. Never changed after it is created, the camera
+    //replaces it with a new one instead, so it can be shared between threads.
+    static class CameraState
+    {
+        public final Vector3 position; //must not be changed
+        public final double hAngle; //horizontal angle in degrees
+        public final double vAngle; //vertical angle in degrees
+
+        public CameraState(Vector3 positionIn, double hAngleIn, double vAngleIn)
+        {
+            position = positionIn;
+            hAngle = hAngleIn;
+            vAngle = vAngleIn;
+        }
+
+        //returns the view matrix, which moves the world so that the camera is at the origin looking down
+        //the positive z axis
+        public Matrix4x4 getViewMatrix()
+        {
+            Matrix3x3 rotation = Matrix3x3.multiply(Matrix3x3.rotationMatrixAxisX(vAngle*0.017453292519943295), Matrix3x3.rotationMatrixAxisY(-hAngle*0.017453292519943295));
+            return Matrix4x4.multiply(Matrix4x4.rotation(rotation), Matrix4x4.translation(-position.x, -position.y, -position.z));
+        }
+    }
+}
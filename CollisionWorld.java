@@ -0,0 +1,365 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+
+//finds the GameObjects whose meshes touch each other, in two phases:
+//  - the broad phase is a spatial hash: space is split into a grid of cubes (cells), and each object is listed in
+//    every cell that it's bounding box covers. Only objects that share a cell can touch, so each object is only
+//    compared with the few objects near it instead of every object in the world.
+//  - the narrow phase compares the MeshBVHs of two objects whose boxes overlap, to find if any of their
+//    triangles actually touch.
+//The grid is kept up to date a little at a time: update() only looks at the objects whose vertices have changed
+//since the last update, and only moves an object between cells when the range of cells it covers changes.
+//An object's tree is only refit when it's box overlaps another object's box.
+//
+//An object that covers more than MAX_CELLS_PER_OBJECT cells (like a long runway with a small cell size) is
+//kept in a separate list and compared with every other object by it's box, rather than filling up the grid.
+//
+//The meshes are read while they are being checked, so this should be used on the thread that moves them
+//(the rendering thread for the airplane).
+public class CollisionWorld
+{
+    public static final double DEFAULT_CELL_SIZE = 1000;
+    public static final int MAX_CELLS_PER_OBJECT = 512;
+
+    //cell coordinates are packed into 21 bits each for the keys of the grid, so the grid is this many cells wide
+    //in each direction before the cells wrap around (two objects that are very far apart can end up in the same
+    //cell, which is only slower, since their boxes are still compared)
+    private static final int CELL_BITS = 21;
+    private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+
+    private double cellSize;
+    private HashMap<Long, ArrayList<Body>> cells;
+    private ArrayList<Body> bodies;
+    private ArrayList<Body> largeBodies; //bodies that cover too many cells to be put in the grid
+    private int nextId; //the id of the next body that is added
+
+    public CollisionWorld()
+    {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    //cellSize should be around the size of the objects that move, so each of them covers a few cells
+    public CollisionWorld(double cellSizeIn)
+    {
+        if (cellSizeIn <= 0)
+        {
+            System.err.println("WARNING at: CollisionWorld/constructor:\n\tcell size must be positive, using the default");
+            cellSizeIn = DEFAULT_CELL_SIZE;
+        }
+        cellSize = cellSizeIn;
+        cells = new HashMap<Long, ArrayList<Body>>();
+        bodies = new ArrayList<Body>();
+        largeBodies = new ArrayList<Body>();
+    }
+
+    //starts checking "object" for collisions. Builds the MeshBVH for it's mesh, which takes a while for large meshes.
+    public void add(GameObject object)
+    {
+        if (findBody(object) != null)
+            return;
+        Body body = new Body(object, nextId++);
+        bodies.add(body);
+        place(body);
+    }
+
+    public void remove(GameObject object)
+    {
+        Body body = findBody(object);
+        if (body == null)
+            return;
+        unplace(body);
+        bodies.remove(body);
+    }
+
+    //updates the cells of every object that has moved since the last update
+    public void update()
+    {
+        for (int i = 0; i < bodies.size(); i++)
+            update(bodies.get(i));
+    }
+
+    //updates the cells of "object", if it has moved since the last update
+    public void update(GameObject object)
+    {
+        Body body = findBody(object);
+        if (body != null)
+            update(body);
+    }
+
+    //moves the body to it's new cells if it's mesh has moved. Only the box around the mesh's vertices is
+    //recalculated here, the tree is refit later, if the box overlaps another (see touching()), since most
+    //objects aren't near anything.
+    private void update(Body body)
+    {
+        VertexBuffer vertices = body.bvh.getMesh().getVertices();
+        if (body.version == vertices.getVersion())
+            return;
+        body.version = vertices.getVersion();
+        if (!vertices.getBounds(body.bounds))
+            body.bvh.getBounds(body.bounds);
+
+        if (!body.large && coversSameCells(body))
+            return;
+        unplace(body);
+        place(body);
+    }
+
+    //returns every pair of objects that are touching. Call update() first if anything has moved.
+    public ArrayList<Collision> findCollisions()
+    {
+        ArrayList<Collision> collisions = new ArrayList<Collision>();
+        for (int i = 0; i < bodies.size(); i++)
+        {
+            Body body = bodies.get(i);
+            if (body.large || body.empty)
+                continue;
+            for (int x = body.minCellX; x <= body.maxCellX; x++)
+            {
+                for (int y = body.minCellY; y <= body.maxCellY; y++)
+                {
+                    for (int z = body.minCellZ; z <= body.maxCellZ; z++)
+                    {
+                        ArrayList<Body> cell = cells.get(cellKey(x, y, z));
+                        for (int j = 0; j < cell.size(); j++)
+                        {
+                            //each pair is only checked once: from the body that was added first, in the first
+                            //cell that both of them cover
+                            Body other = cell.get(j);
+                            if (other.id > body.id && isFirstSharedCell(body, other, x, y, z) && touching(body, other))
+                                collisions.add(new Collision(body.object, other.object));
+                        }
+                    }
+                }
+            }
+        }
+
+        //the large bodies, against every other body
+        for (int i = 0; i < largeBodies.size(); i++)
+        {
+            Body body = largeBodies.get(i);
+            for (int j = 0; j < bodies.size(); j++)
+            {
+                Body other = bodies.get(j);
+                if (other != body && (!other.large || other.id > body.id) && touching(body, other))
+                    collisions.add(new Collision(body.object, other.object));
+            }
+        }
+        return collisions;
+    }
+
+    //returns the objects that "object" is touching. Call update() first if anything has moved.
+    public ArrayList<GameObject> findCollisions(GameObject object)
+    {
+        ArrayList<GameObject> collisions = new ArrayList<GameObject>();
+        Body body = findBody(object);
+        if (body == null)
+            return collisions;
+
+        if (body.large)
+        {
+            for (int i = 0; i < bodies.size(); i++)
+            {
+                if (bodies.get(i) != body && touching(body, bodies.get(i)))
+                    collisions.add(bodies.get(i).object);
+            }
+            return collisions;
+        }
+
+        if (!body.empty)
+        {
+            for (int x = body.minCellX; x <= body.maxCellX; x++)
+            {
+                for (int y = body.minCellY; y <= body.maxCellY; y++)
+                {
+                    for (int z = body.minCellZ; z <= body.maxCellZ; z++)
+                    {
+                        ArrayList<Body> cell = cells.get(cellKey(x, y, z));
+                        for (int j = 0; j < cell.size(); j++)
+                        {
+                            Body other = cell.get(j);
+                            if (other != body && isFirstSharedCell(body, other, x, y, z) && touching(body, other))
+                                collisions.add(other.object);
+                        }
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < largeBodies.size(); i++)
+        {
+            if (touching(body, largeBodies.get(i)))
+                collisions.add(largeBodies.get(i).object);
+        }
+        return collisions;
+    }
+
+    //returns true if "object" is touching anything. Call update() first if anything has moved.
+    public boolean isColliding(GameObject object)
+    {
+        return !findCollisions(object).isEmpty();
+    }
+
+    //do the boxes of the two bodies overlap, and if they do, do any of their triangles touch?
+    private boolean touching(Body a, Body b)
+    {
+        if (!MeshBVH.boxesOverlap(a.bounds, 0, b.bounds, 0))
+            return false;
+        a.bvh.refit();
+        b.bvh.refit();
+        return a.bvh.intersects(b.bvh);
+    }
+
+    //is cell (x, y, z) the first cell (lowest in each direction) that bodies "a" and "b" both cover?
+    private static boolean isFirstSharedCell(Body a, Body b, int x, int y, int z)
+    {
+        return x == Math.max(a.minCellX, b.minCellX) && y == Math.max(a.minCellY, b.minCellY) && z == Math.max(a.minCellZ, b.minCellZ);
+    }
+
+    //does the body's box still cover the cells that it is listed in?
+    private boolean coversSameCells(Body body)
+    {
+        return !body.empty && body.bounds[3] >= body.bounds[0]
+            && body.minCellX == cell(body.bounds[0]) && body.minCellY == cell(body.bounds[1]) && body.minCellZ == cell(body.bounds[2])
+            && body.maxCellX == cell(body.bounds[3]) && body.maxCellY == cell(body.bounds[4]) && body.maxCellZ == cell(body.bounds[5]);
+    }
+
+    //lists the body in the cells that it's box covers, or in the large bodies if there are too many of them
+    private void place(Body body)
+    {
+        body.empty = body.bounds[3] < body.bounds[0]; //a mesh without any triangles
+        body.large = false;
+        if (body.empty)
+            return;
+        body.minCellX = cell(body.bounds[0]);
+        body.minCellY = cell(body.bounds[1]);
+        body.minCellZ = cell(body.bounds[2]);
+        body.maxCellX = cell(body.bounds[3]);
+        body.maxCellY = cell(body.bounds[4]);
+        body.maxCellZ = cell(body.bounds[5]);
+
+        long cellCount = (long)(body.maxCellX - body.minCellX + 1)*(body.maxCellY - body.minCellY + 1)*(body.maxCellZ - body.minCellZ + 1);
+        if (cellCount > MAX_CELLS_PER_OBJECT)
+        {
+            body.large = true;
+            largeBodies.add(body);
+            return;
+        }
+        for (int x = body.minCellX; x <= body.maxCellX; x++)
+        {
+            for (int y = body.minCellY; y <= body.maxCellY; y++)
+            {
+                for (int z = body.minCellZ; z <= body.maxCellZ; z++)
+                {
+                    Long key = cellKey(x, y, z);
+                    ArrayList<Body> cell = cells.get(key);
+                    if (cell == null)
+                    {
+                        cell = new ArrayList<Body>(4);
+                        cells.put(key, cell);
+                    }
+                    cell.add(body);
+                }
+            }
+        }
+    }
+
+    //takes the body out of the cells (or large bodies) that it is listed in. Cells left empty are removed.
+    private void unplace(Body body)
+    {
+        if (body.empty)
+            return;
+        if (body.large)
+        {
+            largeBodies.remove(body);
+            return;
+        }
+        for (int x = body.minCellX; x <= body.maxCellX; x++)
+        {
+            for (int y = body.minCellY; y <= body.maxCellY; y++)
+            {
+                for (int z = body.minCellZ; z <= body.maxCellZ; z++)
+                {
+                    Long key = cellKey(x, y, z);
+                    ArrayList<Body> cell = cells.get(key);
+                    cell.remove(body);
+                    if (cell.isEmpty())
+                        cells.remove(key);
+                }
+            }
+        }
+    }
+
+    private Body findBody(GameObject object)
+    {
+        for (int i = 0; i < bodies.size(); i++)
+        {
+            if (bodies.get(i).object == object)
+                return bodies.get(i);
+        }
+        return null;
+    }
+
+    //the cell that "value" is in, along one axis
+    private int cell(double value)
+    {
+        return (int)Math.floor(value/cellSize);
+    }
+
+    private static long cellKey(int x, int y, int z)
+    {
+        return ((x & CELL_MASK) << (CELL_BITS*2)) | ((y & CELL_MASK) << CELL_BITS) | (z & CELL_MASK);
+    }
+
+    //#region getter methods
+    public double getCellSize()
+    {
+        return cellSize;
+    }
+
+    //number of cells that have at least one object in them
+    public int getCellCount()
+    {
+        return cells.size();
+    }
+
+    public int getObjectCount()
+    {
+        return bodies.size();
+    }
+    //#endregion
+
+    //two objects that are touching
+    public static class Collision
+    {
+        public final GameObject object1;
+        public final GameObject object2;
+
+        public Collision(GameObject object1In, GameObject object2In)
+        {
+            object1 = object1In;
+            object2 = object2In;
+        }
+    }
+
+    //an object in the world, with it's tree and the cells it is listed in
+    private static class Body
+    {
+        public final GameObject object;
+        public final MeshBVH bvh;
+        public final int id; //bodies added earlier have lower ids
+        public final double[] bounds;
+        public int version; //the version of the mesh's vertices when the body was last updated
+        public boolean empty; //does the mesh have no triangles?
+        public boolean large; //is the body in the large bodies instead of the grid?
+        public int minCellX, minCellY, minCellZ, maxCellX, maxCellY, maxCellZ;
+
+        public Body(GameObject objectIn, int idIn)
+        {
+            object = objectIn;
+            bvh = new MeshBVH(object.getMesh());
+            id = idIn;
+            bounds = new double[6];
+            bvh.getBounds(bounds);
+            version = object.getMesh().getVertices().getVersion();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+//the state of the airplane's controls for one step of the FlightModel.
+//true means that the control is being pressed and false means that it isn't.
+public class ControlInput
+{
+    //the bit of each control in toBits()
+    public static final int THROTTLE_UP = 1;
+    public static final int THROTTLE_DOWN = 1 << 1;
+    public static final int PITCH_UP = 1 << 2;
+    public static final int PITCH_DOWN = 1 << 3;
+    public static final int ROLL_LEFT = 1 << 4;
+    public static final int ROLL_RIGHT = 1 << 5;
+    public static final int YAW_LEFT = 1 << 6;
+    public static final int YAW_RIGHT = 1 << 7;
+    public static final int BRAKES = 1 << 8;
+
+    public boolean throttleUp;
+    public boolean throttleDown;
+    public boolean pitchUp;
+    public boolean pitchDown;
+    public boolean rollLeft;
+    public boolean rollRight;
+    public boolean yawLeft;
+    public boolean yawRight;
+    public boolean brakes;
+
+    //no controls pressed
+    public ControlInput()
+    {
+    }
+
+    //releases every control
+    public void clear()
+    {
+        throttleUp = false;
+        throttleDown = false;
+        pitchUp = false;
+        pitchDown = false;
+        rollLeft = false;
+        rollRight = false;
+        yawLeft = false;
+        yawRight = false;
+        brakes = false;
+    }
+
+    //packs the controls into one int, one bit per control (see THROTTLE_UP and the others), for storing them
+    public int toBits()
+    {
+        int bits = 0;
+        if (throttleUp) bits |= THROTTLE_UP;
+        if (throttleDown) bits |= THROTTLE_DOWN;
+        if (pitchUp) bits |= PITCH_UP;
+        if (pitchDown) bits |= PITCH_DOWN;
+        if (rollLeft) bits |= ROLL_LEFT;
+        if (rollRight) bits |= ROLL_RIGHT;
+        if (yawLeft) bits |= YAW_LEFT;
+        if (yawRight) bits |= YAW_RIGHT;
+        if (brakes) bits |= BRAKES;
+        return bits;
+    }
+
+    //sets the controls from an int made by toBits()
+    public void setBits(int bits)
+    {
+        throttleUp = (bits & THROTTLE_UP) != 0;
+        throttleDown = (bits & THROTTLE_DOWN) != 0;
+        pitchUp = (bits & PITCH_UP) != 0;
+        pitchDown = (bits & PITCH_DOWN) != 0;
+        rollLeft = (bits & ROLL_LEFT) != 0;
+        rollRight = (bits & ROLL_RIGHT) != 0;
+        yawLeft = (bits & YAW_LEFT) != 0;
+        yawRight = (bits & YAW_RIGHT) != 0;
+        brakes = (bits & BRAKES) != 0;
+    }
+}
@@ -0,0 +1,294 @@
+import java.util.Arrays;
+
+//a low resolution, hierarchical depth buffer used for occlusion culling.
+//Each frame a few large occluders close to the camera (nearby terrain and the airplane) are drawn into it,
+//then the bounding boxes of meshes and terrain tiles are tested against it before any of their triangles
+//are projected. A box that is behind the occluders everywhere it covers on screen can be skipped entirely.
+//Occluders are only ever triangles that the renderer is painting this frame, and the culling is geometrically
+//conservative: it only removes boxes that are entirely further away than the occluders' furthest depth
+//wherever they cover the box. It doesn't promise the same image, though. The painter sorts triangles by the
+//distance to their centers, so a hidden triangle could have been painted after an occluder and shown on top
+//of it; culling it changes such frames rather than only skipping work.
+//
+//The screen is split into square cells of CELL_SIZE pixels. A cell stores a depth that everything in the
+//cell is guaranteed to be covered at or in front of (infinity if it isn't fully covered yet). To keep
+//this conservative, a triangle is only drawn into cells that it covers completely, and it writes the
+//depth of it's furthest vertex.
+//Above the base level, each level halves the resolution and every cell takes the furthest depth of the
+//four cells under it, so a large box can be tested against a handful of cells on a coarser level instead
+//of hundreds of cells on the base level.
+public class DepthPyramid
+{
+    //size of a cell of the base level in pixels
+    public static final int CELL_SIZE = 4;
+
+    //triangles have to cover the corners of a cell by at least this many pixels to be counted as covering
+    //the cell. The painter rounds vertices to whole pixels, so the painted triangle can be slightly smaller.
+    private static final double COVERAGE_MARGIN = 1.5;
+
+    //depth values of each level, row by row. levels[0] is the full resolution base level.
+    private float[][] levels;
+    private int[] levelWidths;
+    private int[] levelHeights;
+
+    //view for the current frame, the same projection as RenderingPanel uses
+    private Matrix4x4 viewProjection;
+    private double nearClip;
+    private int screenWidth;
+    private int screenHeight;
+
+    //scratch arrays for projected points
+    private double[] pointX = new double[8];
+    private double[] pointY = new double[8];
+    private double[] pointDepth = new double[8];
+    //scratch arrays for the edge equations of a triangle (a*x + b*y + c)
+    private double[] edgeA = new double[3];
+    private double[] edgeB = new double[3];
+    private double[] edgeC = new double[3];
+
+    //statistics for the current frame
+    private int occluderCount;
+    private int testCount;
+    private int occludedCount;
+
+    //creates a depth pyramid for a screen of the given size in pixels
+    public DepthPyramid(int width, int height)
+    {
+        screenWidth = width;
+        screenHeight = height;
+        int levelCount = 1;
+        int w = cellsFor(width);
+        int h = cellsFor(height);
+        while (w > 1 || h > 1)
+        {
+            w = (w + 1)/2;
+            h = (h + 1)/2;
+            levelCount++;
+        }
+
+        levels = new float[levelCount][];
+        levelWidths = new int[levelCount];
+        levelHeights = new int[levelCount];
+        w = cellsFor(width);
+        h = cellsFor(height);
+        for (int level = 0; level < levelCount; level++)
+        {
+            levels[level] = new float[w*h];
+            levelWidths[level] = w;
+            levelHeights[level] = h;
+            w = (w + 1)/2;
+            h = (h + 1)/2;
+        }
+    }
+
+    //clears the pyramid and sets up the view for a new frame, using the renderer's view-projection matrix
+    public void beginFrame(Matrix4x4 viewProjectionIn, double nearClipDistance)
+    {
+        viewProjection = viewProjectionIn;
+        nearClip = nearClipDistance;
+        Arrays.fill(levels[0], Float.POSITIVE_INFINITY);
+        occluderCount = 0;
+        testCount = 0;
+        occludedCount = 0;
+    }
+
+    //draws a triangle into the base level, given the screen coordinates and depths of it's three verticies
+    //(in pixels, and the depth being clip space w). The triangle must be in front of the near clip plane.
+    public void addOccluder(double[] screenX, double[] screenY, double[] depths)
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            pointX[i] = screenX[i];
+            pointY[i] = screenY[i];
+            pointDepth[i] = depths[i];
+        }
+        float depth = (float)Math.max(pointDepth[0], Math.max(pointDepth[1], pointDepth[2]));
+
+        //edge equations of the triangle, scaled so that they give the distance in pixels from each edge,
+        //positive on the inside
+        double area = (pointX[1]-pointX[0])*(pointY[2]-pointY[0]) - (pointY[1]-pointY[0])*(pointX[2]-pointX[0]);
+        if (area == 0)
+            return;
+        double sign = (area > 0)? 1 : -1;
+        for (int i = 0; i < 3; i++)
+        {
+            int j = (i + 1)%3;
+            double dx = pointX[j] - pointX[i];
+            double dy = pointY[j] - pointY[i];
+            double length = Math.sqrt(dx*dx + dy*dy);
+            edgeA[i] = -dy*sign/length;
+            edgeB[i] = dx*sign/length;
+            edgeC[i] = -(edgeA[i]*pointX[i] + edgeB[i]*pointY[i]);
+        }
+
+        //range of cells the triangle could cover, clamped to the screen
+        float[] base = levels[0];
+        int width = levelWidths[0];
+        int minCellX = Math.max(0, (int)Math.floor(Math.min(pointX[0], Math.min(pointX[1], pointX[2]))/CELL_SIZE));
+        int minCellY = Math.max(0, (int)Math.floor(Math.min(pointY[0], Math.min(pointY[1], pointY[2]))/CELL_SIZE));
+        int maxCellX = Math.min(width - 1, (int)Math.floor(Math.max(pointX[0], Math.max(pointX[1], pointX[2]))/CELL_SIZE));
+        int maxCellY = Math.min(levelHeights[0] - 1, (int)Math.floor(Math.max(pointY[0], Math.max(pointY[1], pointY[2]))/CELL_SIZE));
+
+        for (int cellY = minCellY; cellY <= maxCellY; cellY++)
+        {
+            double top = cellY*CELL_SIZE;
+            double bottom = top + CELL_SIZE;
+            for (int cellX = minCellX; cellX <= maxCellX; cellX++)
+            {
+                double left = cellX*CELL_SIZE;
+                double right = left + CELL_SIZE;
+
+                //the triangle is convex, so it covers the whole cell if it covers all four corners
+                boolean covered = true;
+                for (int i = 0; i < 3 && covered; i++)
+                {
+                    double a = edgeA[i], b = edgeB[i], c = edgeC[i];
+                    covered = a*left + b*top + c >= COVERAGE_MARGIN && a*right + b*top + c >= COVERAGE_MARGIN
+                        && a*left + b*bottom + c >= COVERAGE_MARGIN && a*right + b*bottom + c >= COVERAGE_MARGIN;
+                }
+                if (covered && depth < base[cellY*width + cellX])
+                    base[cellY*width + cellX] = depth;
+            }
+        }
+        occluderCount++;
+    }
+
+    //builds the coarser levels from the base level, once all of the occluders have been added
+    public void buildLevels()
+    {
+        for (int level = 1; level < levels.length; level++)
+        {
+            float[] below = levels[level - 1];
+            float[] current = levels[level];
+            int belowWidth = levelWidths[level - 1];
+            int belowHeight = levelHeights[level - 1];
+            for (int y = 0; y < levelHeights[level]; y++)
+            {
+                for (int x = 0; x < levelWidths[level]; x++)
+                {
+                    //cells off the edge of the level below don't exist, so they are treated as
+                    //covered by anything (they are never tested anyway)
+                    int x2 = Math.min(x*2 + 1, belowWidth - 1);
+                    int y2 = Math.min(y*2 + 1, belowHeight - 1);
+                    current[y*levelWidths[level] + x] = Math.max
+                    (
+                        Math.max(below[y*2*belowWidth + x*2], below[y*2*belowWidth + x2]),
+                        Math.max(below[y2*belowWidth + x*2], below[y2*belowWidth + x2])
+                    );
+                }
+            }
+        }
+    }
+
+    //is the box between the min and max coordinates completely hidden behind the occluders,
+    //or completely off of the screen?
+    public boolean isOccluded(double minX, double minY, double minZ, double maxX, double maxY, double maxZ)
+    {
+        testCount++;
+        //project the eight corners of the box
+        for (int i = 0; i < 8; i++)
+        {
+            project(((i & 1) == 0)? minX : maxX, ((i & 2) == 0)? minY : maxY, ((i & 4) == 0)? minZ : maxZ, i);
+            //a box crossing the near clip plane can't be projected to a rectangle, so it is never hidden
+            if (pointDepth[i] < nearClip)
+                return false;
+        }
+
+        double closestDepth = Double.MAX_VALUE;
+        double left = Double.MAX_VALUE, right = -Double.MAX_VALUE;
+        double top = Double.MAX_VALUE, bottom = -Double.MAX_VALUE;
+        for (int i = 0; i < 8; i++)
+        {
+            closestDepth = Math.min(closestDepth, pointDepth[i]);
+            left = Math.min(left, pointX[i]);
+            right = Math.max(right, pointX[i]);
+            top = Math.min(top, pointY[i]);
+            bottom = Math.max(bottom, pointY[i]);
+        }
+
+        //off of the screen
+        if (right < 0 || bottom < 0 || left >= screenWidth || top >= screenHeight)
+        {
+            occludedCount++;
+            return true;
+        }
+
+        //cell range on the base level, clamped to the screen
+        int minCellX = Math.max(0, (int)(left/CELL_SIZE));
+        int minCellY = Math.max(0, (int)(top/CELL_SIZE));
+        int maxCellX = Math.min(levelWidths[0] - 1, (int)(right/CELL_SIZE));
+        int maxCellY = Math.min(levelHeights[0] - 1, (int)(bottom/CELL_SIZE));
+
+        //go up the pyramid until the box covers at most 2 cells in each direction
+        int level = 0;
+        while (level < levels.length - 1 && (maxCellX - minCellX > 1 || maxCellY - minCellY > 1))
+        {
+            minCellX /= 2;
+            minCellY /= 2;
+            maxCellX /= 2;
+            maxCellY /= 2;
+            level++;
+        }
+
+        float[] cells = levels[level];
+        int width = levelWidths[level];
+        for (int y = minCellY; y <= maxCellY; y++)
+        {
+            for (int x = minCellX; x <= maxCellX; x++)
+            {
+                if (cells[y*width + x] >= closestDepth)
+                    return false;
+            }
+        }
+        occludedCount++;
+        return true;
+    }
+
+    //projects a point onto the screen and stores it in slot "index" of the scratch arrays
+    private void project(double x, double y, double z, int index)
+    {
+        Matrix4x4 m = viewProjection;
+        double clipX = x*m.R1C1 + y*m.R1C2 + z*m.R1C3 + m.R1C4;
+        double clipY = x*m.R2C1 + y*m.R2C2 + z*m.R2C3 + m.R2C4;
+        double clipW = x*m.R4C1 + y*m.R4C2 + z*m.R4C3 + m.R4C4;
+        pointX[index] = screenWidth/2.0*(1 + clipX/clipW);
+        pointY[index] = screenHeight/2.0*(1 - clipY/clipW);
+        pointDepth[index] = clipW;
+    }
+
+    //number of cells needed to cover "pixels" pixels
+    private static int cellsFor(int pixels)
+    {
+        return Math.max(1, (pixels + CELL_SIZE - 1)/CELL_SIZE);
+    }
+
+    //#region getter methods
+    public int getScreenWidth()
+    {
+        return screenWidth;
+    }
+
+    public int getScreenHeight()
+    {
+        return screenHeight;
+    }
+
+    //number of triangles drawn into the pyramid this frame
+    public int getOccluderCount()
+    {
+        return occluderCount;
+    }
+
+    //number of boxes tested this frame
+    public int getTestCount()
+    {
+        return testCount;
+    }
+
+    //number of boxes found to be hidden this frame
+    public int getOccludedCount()
+    {
+        return occludedCount;
+    }
+    //#endregion
+}
@@ -0,0 +1,194 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+//events for Java Flight Recorder, so a recording of the game (java -XX:StartFlightRecording=filename=game.jfr
+//FlightSimulator) shows the stages of each frame, each physics step and the loading of terrain and meshes on
+//it's timeline, next to the garbage collections and allocations, in JDK Mission Control.
+//
+//Used like this, so nothing is measured or filled in unless the event is turned on in the recording:
+//  FlightEvents.Sort event = new FlightEvents.Sort();
+//  event.begin();
+//  ...the work...
+//  if (event.shouldCommit())
+//  {
+//      event.triangles = ...;
+//      event.commit();
+//  }
+//When recording is off, the JIT compiles all of it away (the event object is never even created).
+//Per frame and per step events don't record stack traces, which would cost more than the event itself.
+public class FlightEvents
+{
+    private static final String CATEGORY = "Flight Simulator";
+
+    @Name("FlightSimulator.Project")
+    @Label("Cull and Project")
+    @Category({CATEGORY, "Rendering"})
+    @Description("Culling the meshes and terrain tiles of a frame, and projecting the rest of their triangles into the draw qeue")
+    @StackTrace(false)
+    public static class Project extends Event
+    {
+        @Label("Triangles Submitted")
+        @Description("Triangles in every mesh, before culling")
+        public int trianglesSubmitted;
+
+        @Label("Triangles Calculated")
+        @Description("Triangles left after terrain and occlusion culling")
+        public int trianglesCalculated;
+
+        @Label("Triangles Queued")
+        @Description("Triangles put in the draw qeue, after clipping and back face culling")
+        public int trianglesQueued;
+
+        @Label("Visible Terrain Tiles")
+        public int visibleTiles;
+
+        @Label("Width")
+        public int width;
+
+        @Label("Height")
+        public int height;
+    }
+
+    @Name("FlightSimulator.Sort")
+    @Label("Sort")
+    @Category({CATEGORY, "Rendering"})
+    @Description("Sorting the draw qeue of a frame by distance")
+    @StackTrace(false)
+    public static class Sort extends Event
+    {
+        @Label("Triangles")
+        public int triangles;
+    }
+
+    @Name("FlightSimulator.Rasterize")
+    @Label("Rasterize")
+    @Category({CATEGORY, "Rendering"})
+    @Description("Painting the triangles of a frame into it's image")
+    @StackTrace(false)
+    public static class Rasterize extends Event
+    {
+        @Label("Triangles Queued")
+        public int trianglesQueued;
+
+        @Label("Triangles Painted")
+        @Description("Triangles that were painted, the span buffer skips the hidden ones")
+        public int trianglesPainted;
+
+        @Label("Span Buffer")
+        public boolean spanBuffer;
+
+        @Label("Width")
+        public int width;
+
+        @Label("Height")
+        public int height;
+    }
+
+    @Name("FlightSimulator.Blit")
+    @Label("Blit")
+    @Category({CATEGORY, "Rendering"})
+    @Description("Drawing a finished frame onto the panel, on the event dispatch thread")
+    @StackTrace(false)
+    public static class Blit extends Event
+    {
+        @Label("Frame Width")
+        public int frameWidth;
+
+        @Label("Frame Height")
+        public int frameHeight;
+
+        @Label("Panel Width")
+        public int panelWidth;
+
+        @Label("Panel Height")
+        public int panelHeight;
+
+        @Label("Scaled")
+        @Description("Was the frame stretched to fill the panel?")
+        public boolean scaled;
+    }
+
+    @Name("FlightSimulator.PhysicsStep")
+    @Label("Physics Step")
+    @Category({CATEGORY, "Physics"})
+    @Description("One step of the airplane's flight model, on the physics thread")
+    @StackTrace(false)
+    public static class PhysicsStep extends Event
+    {
+        @Label("Step")
+        public long step;
+
+        @Label("Sub-steps")
+        public int subSteps;
+
+        @Label("Altitude")
+        public double altitude;
+
+        @Label("Speed")
+        public double speed;
+
+        @Label("Controls")
+        @Description("ControlInput.toBits() of the controls used for the step")
+        public int controls;
+
+        @Label("Crashed")
+        public boolean crashed;
+    }
+
+    @Name("FlightSimulator.TerrainGeneration")
+    @Label("Terrain Generation")
+    @Category({CATEGORY, "Loading"})
+    @Description("Generating the terrain's heights, triangles and tiles")
+    public static class TerrainGeneration extends Event
+    {
+        @Label("Grid Width")
+        public int gridWidth;
+
+        @Label("Grid Length")
+        public int gridLength;
+
+        @Label("Grid Interval")
+        public double gridInterval;
+
+        @Label("Triangles")
+        public int triangles;
+
+        @Label("Vertices")
+        public int vertices;
+
+        @Label("Tiles")
+        public int tiles;
+
+        @Label("Vertex Memory")
+        @DataAmount
+        public long vertexBytes;
+    }
+
+    @Name("FlightSimulator.MeshLoad")
+    @Label("Mesh Load")
+    @Category({CATEGORY, "Loading"})
+    @Description("Loading a mesh from an .obj file, and it's texture")
+    public static class MeshLoad extends Event
+    {
+        @Label("Model File")
+        public String modelFile;
+
+        @Label("Texture File")
+        public String textureFile;
+
+        @Label("Triangles")
+        public int triangles;
+
+        @Label("Vertices")
+        public int vertices;
+
+        @Label("Vertex Memory")
+        @DataAmount
+        public long vertexBytes;
+    }
+}
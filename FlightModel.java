@@ -0,0 +1,687 @@
+//the airplane's flight physics, without any rendering, input handling or threads. Each call to step()
+//simulates a fixed amount of time with the given controls, so it can be run in a loop as fast as the
+//computer allows (see HeadlessFlight), as well as in real time by the Airplane.
+//
+//The model is deterministic: the same parameters, time step and sequence of control inputs always give
+//bit-identical results, on any computer. Java does all floating point math in strict IEEE 754 (since Java 17)
+//and Math.sqrt is exact, but Math's trig functions may use faster platform specific versions, so StrictMath
+//is used for those.
+//
+//The math was written for 30ms steps, so values that are added once per step (like the velocity, which is
+//in units per 30ms) are scaled to the actual step length.
+//
+//The physics runs many thousands of times per simulated minute, so the sub-steps of SEMI_IMPLICIT_EULER
+//don't create any objects: the vectors are changed in place, using the scratch vectors below for the
+//in between values, so there is no garbage to collect.
+//
+//Each step is split into sub-steps, more of them the faster the airplane is moving and turning, so that no
+//sub-step moves or turns the airplane too far. The Integrator moves the airplane forward one sub-step at
+//a time. This keeps the flight close to the same at any step length, so long steps can be used to
+//simulate faster.
+public class FlightModel
+{
+    //the step length that the values were tuned for, in seconds
+    public static final double REFERENCE_TICK = 0.03;
+    //the most that a sub-step may move the airplane (in units) or turn it (in radians around any axis).
+    //At 120 steps per second most steps are one sub-step.
+    public static final double MAX_SUB_STEP_DISTANCE = 25;
+    public static final double MAX_SUB_STEP_ANGLE = 0.02;
+    //the most sub-steps that one step can be split into
+    public static final int MAX_SUB_STEPS = 256;
+
+    private FlightParameters parameters;
+    private double deltaTime; //seconds simulated by each step
+    private double tickScale; //deltaTime as a fraction of REFERENCE_TICK
+    private long stepCount; //number of steps simulated so far
+    private Integrator integrator; //moves the airplane forward each sub-step
+    private double subStepTime; //seconds simulated by the current sub-step
+    private double subStepScale; //subStepTime as a fraction of REFERENCE_TICK
+    private int subSteps; //number of sub-steps in the last step
+
+    private Vector3 position; //the simulated position
+    private Vector3 velocity; //the velocity in units per reference tick
+    private EulerAngle rotation; //the simulated rotation, x = pitch, y = yaw and z = roll
+    private double velocityPitch; //how fast the plane is pitching
+    private double velocityYaw; //how fast the plane is yawing
+    private double velocityRoll; //how fast the plane is rolling
+    private double forwardSpeed; //the speed the plane is going strictly in the local z axis.
+    private double throttle; //the throttle of the plane from 0-1
+    private double dragCoefficient; //the drag coefficient in use, which changes when braking
+    private boolean takenOff; //has the airplane taken off yet?
+    private HeightField ground; //the height of the ground, or null for flat ground at groundLevel
+    private boolean crashed; //has the airplane hit the ground faster than the crash speed?
+    private double crashTime; //seconds into the simulation that the airplane crashed
+
+    //the airplane's local axes in world space. They are turned by the changes in rotation each step, the
+    //same way a Transform turns it's axes.
+    private Vector3 right;
+    private Vector3 up;
+    private Vector3 forward;
+    private EulerAngle axesRotation; //the rotation that the axes have been turned to
+
+    //scratch vectors for the physics, so it doesn't need to create new ones
+    private Vector3 scratch;
+    private Vector3 normalizedVelocity;
+    private Vector3 direction;
+    private Vector3 groundNormal;
+
+    //creates a model at (0, 0, 0) at rest, which simulates "deltaTimeIn" seconds per step
+    public FlightModel(FlightParameters parametersIn, double deltaTimeIn)
+    {
+        parameters = new FlightParameters(parametersIn);
+        setDeltaTime(deltaTimeIn);
+        position = new Vector3();
+        velocity = new Vector3();
+        rotation = new EulerAngle();
+        right = new Vector3(1, 0, 0);
+        up = new Vector3(0, 1, 0);
+        forward = new Vector3(0, 0, 1);
+        axesRotation = new EulerAngle();
+        scratch = new Vector3();
+        normalizedVelocity = new Vector3();
+        direction = new Vector3();
+        groundNormal = new Vector3();
+        dragCoefficient = parameters.dragCoefficient;
+        integrator = Integrator.SEMI_IMPLICIT_EULER;
+    }
+
+    //creates a copy of another model, in the same state, that carries on the same way. Used to save the state of
+    //a flight so it can be gone back to (see FlightReplay). The ground is shared, not copied.
+    public FlightModel(FlightModel other)
+    {
+        this(other.parameters, other.deltaTime);
+        stepCount = other.stepCount;
+        integrator = other.integrator;
+        subStepTime = other.subStepTime;
+        subStepScale = other.subStepScale;
+        subSteps = other.subSteps;
+        position.set(other.position);
+        velocity.set(other.velocity);
+        rotation = new EulerAngle(other.rotation.x, other.rotation.y, other.rotation.z);
+        velocityPitch = other.velocityPitch;
+        velocityYaw = other.velocityYaw;
+        velocityRoll = other.velocityRoll;
+        forwardSpeed = other.forwardSpeed;
+        throttle = other.throttle;
+        dragCoefficient = other.dragCoefficient;
+        takenOff = other.takenOff;
+        ground = other.ground;
+        crashed = other.crashed;
+        crashTime = other.crashTime;
+        right.set(other.right);
+        up.set(other.up);
+        forward.set(other.forward);
+        axesRotation = new EulerAngle(other.axesRotation.x, other.axesRotation.y, other.axesRotation.z);
+    }
+
+    //simulates one step of deltaTime seconds with the given controls.
+    public void step(ControlInput input)
+    {
+        subSteps = countSubSteps();
+        subStepTime = deltaTime/subSteps;
+        subStepScale = subStepTime/REFERENCE_TICK;
+        for (int i = 0; i < subSteps; i++)
+        {
+            applyControls(input);
+            integrator.integrate(this, input);
+        }
+        stepCount++;
+    }
+
+    //returns how many sub-steps the next step needs so that none of them moves or turns the airplane more
+    //than MAX_SUB_STEP_DISTANCE or MAX_SUB_STEP_ANGLE.
+    private int countSubSteps()
+    {
+        double distance = velocity.getMagnitude()*tickScale;
+        double angle = Math.max(Math.abs(velocityPitch), Math.max(Math.abs(velocityYaw), Math.abs(velocityRoll)))*tickScale;
+        double count = Math.ceil(Math.max(distance/MAX_SUB_STEP_DISTANCE, angle/MAX_SUB_STEP_ANGLE));
+        //also catches NaN
+        if (!(count >= 1))
+            return 1;
+        return (int)Math.min(count, MAX_SUB_STEPS);
+    }
+
+    //changes the throttle and applies torques for the controls that are pressed
+    private void applyControls(ControlInput input)
+    {
+        if (input.throttleUp && throttle < 1)
+            throttle += 1*subStepTime;
+        if (input.throttleDown && throttle > 0)
+            throttle -= 1*subStepTime;
+        if (input.pitchUp)
+            addPitchTorque(-parameters.pitchSpeed);
+        if (input.pitchDown)
+            addPitchTorque(parameters.pitchSpeed);
+        if (input.rollLeft)
+            addRollTorque(parameters.rollSpeed);
+        if (input.rollRight)
+            addRollTorque(-parameters.rollSpeed);
+        if (input.yawLeft)
+            addYawTorque(-parameters.yawSpeed);
+        if (input.yawRight)
+            addYawTorque(parameters.yawSpeed);
+    }
+
+    //applies a force (x, y, z) by dividing by mass and adding that to the velocity.
+    private void addForce(double x, double y, double z)
+    {
+        double inverseMass = 1/parameters.mass;
+        velocity.x += x*inverseMass;
+        velocity.y += y*inverseMass;
+        velocity.z += z*inverseMass;
+    }
+
+    //applies a torque around the local x axis by amt again by dividing by mass.
+    private void addPitchTorque(double amt)
+    {
+        amt *= Math.min(1, forwardSpeed/20);
+        velocityPitch = velocityPitch + amt/parameters.mass*subStepTime;
+    }
+
+    //applies a torque around the local y axis by amt again by dividing by mass.
+    private void addYawTorque(double amt)
+    {
+        amt *= Math.min(1, forwardSpeed/20);
+        velocityYaw = velocityYaw + amt/parameters.mass*subStepTime;
+    }
+
+    //applies a torque around the local z axis by amt again by dividing by mass.
+    private void addRollTorque(double amt)
+    {
+        amt *= Math.min(1, forwardSpeed/20);
+        velocityRoll = velocityRoll + amt/parameters.mass*subStepTime;
+    }
+
+    //applies drag to the airplane by decreasing the velocty by an amount based on altitude, speed and the drag
+    //coefficient. The math used is not realistic, but it's looks fine in the simulation
+    void applyDrag()
+    {
+        if (velocity.getSqrMagnitude() > 0.1)
+        {
+            double altitudeFactor = (2000/(position.y-parameters.groundLevel+2000));
+            altitudeFactor += 0.6;
+            altitudeFactor *= altitudeFactor * altitudeFactor;
+            double drag = Math.min(1, dragCoefficient*velocity.getMagnitude()*subStepTime*altitudeFactor/700);
+            velocity.x -= velocity.x*drag;
+            velocity.y -= velocity.y*drag;
+            velocity.z -= velocity.z*drag;
+            Vector3 verticalDrag = scratch.setProjectionToVector(velocity, upAxis());
+            verticalDrag.multiply(Math.min(1, dragCoefficient*verticalDrag.getMagnitude()*subStepTime*altitudeFactor));
+            velocity.subtract(verticalDrag);
+        }
+    }
+
+    //applies the effect that causes an airplane to roll in the direction of a yaw. This is because when yawing, the
+    //outer wing moves faster, increasing it's lift and causing a roll in the same direction. This method tries to
+    //replicate that artificially.
+    void applyYawRollEffect(ControlInput input)
+    {
+        if (velocity.x != 0 && velocity.z != 0 && (input.yawLeft || input.yawRight))
+        {
+            //the velocity projected onto the plane of the wings (see Vector3.projectToPlane())
+            Vector3 up = upAxis();
+            double scale = Vector3.dotProduct(velocity, up)/up.getSqrMagnitude();
+            scratch.set(velocity.x - up.x*scale, velocity.y - up.y*scale, velocity.z - up.z*scale).normalize();
+            double rollAmount = Vector3.dotProduct(scratch, rightAxis());
+            rollAmount *= rollAmount *rollAmount;
+            velocityRoll += subStepTime*rollAmount*parameters.yawRollEffectAmount;
+        }
+    }
+
+    //calculates the forward velocty by getting the magnitude of the projection onto the local z axis.
+    void calculateForwardV()
+    {
+        forwardSpeed = Vector3.dotProduct(velocity, forwardAxis());
+    }
+
+    //applies angular drag by decreasing all the rotational velocities by an amount based off
+    //the angular drag coefficient.
+    void applyAngularDrag()
+    {
+        velocityPitch = velocityPitch - velocityPitch*parameters.angularDragCoefficient*subStepTime;
+        velocityYaw = velocityYaw - velocityYaw*parameters.angularDragCoefficient*subStepTime;
+        velocityRoll = velocityRoll - velocityRoll*parameters.angularDragCoefficient*subStepTime;
+    }
+
+    //applies gravity by adding a force with a magnitude of the gravity strenth
+    void applyGravity()
+    {
+        velocity.y -= parameters.gravity*subStepTime;
+    }
+
+    //applies lift to the velocity by adding a vector perpendicular to the veloicty and the local x-axis.
+    void applyLift()
+    {
+        //scale lift by altitude to account for the lack of flaps.
+        double altitudeFactor = (2000/(position.y-parameters.groundLevel+2000));
+        altitudeFactor += 1;
+        altitudeFactor *= altitudeFactor * altitudeFactor;
+        double lift = Math.min(2000, forwardSpeed*forwardSpeed*parameters.liftCoefficient*subStepTime*altitudeFactor);
+        Vector3 liftDirection = scratch.setCrossProduct(velocity, rightAxis()).normalize();
+        addForce(liftDirection.x*lift, liftDirection.y*lift, liftDirection.z*lift);
+    }
+
+    //gives the effect of the plane naturally alligning itself to the direction it's pointing.
+    void applyAerodynamicEffect()
+    {
+        if (velocity.getSqrMagnitude() > 0)
+        {
+            double correctionFactor = getCorrectionFactor(velocity);
+
+            //calculates the new velocity by bending the current velocity towards the
+            //direction we are facing, by the correction factor.
+            velocity.lerp(scratch.setProjectionToVector(velocity, forwardAxis()), correctionFactor*forwardSpeed*parameters.aerodynamicEffectAmount*subStepTime/2);
+            turnTowardsVelocity(correctionFactor);
+        }
+    }
+
+    //compares the direction we are facing to the direction "velocity" is moving
+    double getCorrectionFactor(Vector3 velocity)
+    {
+        double correctionFactor = Vector3.dotProduct(forwardAxis(), normalizedVelocity.set(velocity).normalize());
+        //squaring gives it a better rolloff curve for the effect
+        return correctionFactor*correctionFactor;
+    }
+
+    //the other half of the aerodynamic effect: rotates the plane towards the direction of movement.
+    void turnTowardsVelocity(double correctionFactor)
+    {
+        if (velocity.getSqrMagnitude() > 0)
+        {
+            //(This is innacurate due to linear interpolation with vectors being translated into rotation)
+            //Would be better with the use of quaternion multiplication.
+            direction.set(forwardAxis()).lerp(normalizedVelocity.set(velocity).normalize(), correctionFactor*parameters.aerodynamicEffectAmount*subStepTime*forwardSpeed);
+            transformToLocal(direction);
+            rotation.y += ((direction.x < 0)? -StrictMath.atan(direction.z/direction.x)-Math.PI/2 : Math.PI/2-StrictMath.atan(direction.z/direction.x));
+            rotation.x += StrictMath.atan(direction.y/Math.sqrt(direction.x*direction.x + direction.z*direction.z))/5;
+        }
+    }
+
+    //moves the position by the velocity. Makes sure that the position cannot fall below the ground.
+    void updatePosition()
+    {
+        double nextX = position.x + velocity.x*subStepScale;
+        double nextZ = position.z + velocity.z*subStepScale;
+        double groundHeight = getGroundHeight(nextX, nextZ);
+        if (position.y + velocity.y*subStepScale > groundHeight)
+        {
+            movePosition();
+            if (position.y - groundHeight > 50 && takenOff == false)
+            {
+                takenOff = true;
+            }
+        }
+        else
+        {
+            touchGround(nextX, nextZ);
+            movePosition();
+            position.y = groundHeight;
+        }
+    }
+
+    //stops the airplane from moving into the ground at (x, z). Hitting the ground faster than the crash speed
+    //(measured straight into the ground, along it's normal) is a crash. The simulation carries on after a
+    //crash, it's up to whatever is running it to decide what happens.
+    private void touchGround(double x, double z)
+    {
+        Vector3 normal = getGroundNormal(x, z);
+        double impactSpeed = -Vector3.dotProduct(velocity, normal);
+        if (impactSpeed > parameters.crashSpeed && !crashed)
+        {
+            crashed = true;
+            crashTime = getTime();
+        }
+        if (normal.y == 1)
+            velocity.y = 0;
+        else if (impactSpeed > 0)
+        {
+            //slide along the ground
+            velocity.x += normal.x*impactSpeed;
+            velocity.y += normal.y*impactSpeed;
+            velocity.z += normal.z*impactSpeed;
+        }
+    }
+
+    //crashes the airplane into something other than the ground, like another object (see CollisionWorld)
+    public void crash()
+    {
+        if (crashed)
+            return;
+        crashed = true;
+        crashTime = getTime();
+    }
+
+    //returns the height of the ground at (x, z)
+    private double getGroundHeight(double x, double z)
+    {
+        return (ground == null)? parameters.groundLevel : ground.getHeight(x, z);
+    }
+
+    //returns the upwards normal of the ground at (x, z), in a scratch vector
+    private Vector3 getGroundNormal(double x, double z)
+    {
+        return (ground == null)? groundNormal.set(0, 1, 0) : ground.getNormal(x, z, groundNormal);
+    }
+
+    private void movePosition()
+    {
+        position.x += velocity.x*subStepScale;
+        position.y += velocity.y*subStepScale;
+        position.z += velocity.z*subStepScale;
+    }
+
+    //applies the rotational velocities to the rotation, then turns the axes to match
+    //(this is actually slightly bugged because of the use of euler angles. Quaternions
+    //would solve this problem but it's a lot of work)
+    void updateOrientation()
+    {
+        rotation.x += velocityPitch*subStepScale;
+        rotation.y += velocityYaw*subStepScale;
+        rotation.z += velocityRoll*subStepScale;
+
+        //pitch around the right axis, yaw around the up axis, then roll around the forward axis
+        rotate(right, rotation.x - axesRotation.x, up, forward);
+        axesRotation.x = rotation.x;
+        rotate(up, rotation.y - axesRotation.y, forward, right);
+        axesRotation.y = rotation.y;
+        rotate(forward, rotation.z - axesRotation.z, up, right);
+        axesRotation.z = rotation.z;
+    }
+
+    //uses more drag while the brakes are on
+    void brakes(ControlInput input)
+    {
+        dragCoefficient = input.brakes? parameters.brakeDragCoefficient : parameters.dragCoefficient;
+    }
+
+    //applies a force in the forward direction of the plane based on the amount param
+    void applyThrust(double amount)
+    {
+        Vector3 forward = forwardAxis();
+        double force = amount*subStepTime;
+        addForce(forward.x*force, forward.y*force, forward.z*force);
+    }
+
+    //returns the rate that velocity changes at (in units per reference tick, per second) for an airplane at
+    //"atPosition" moving at "atVelocity", with the current orientation, throttle and brakes. These are the same
+    //forces as the methods above, written as rates instead of changes over a sub-step, for integrators that
+    //need to measure the forces at more than one point in a sub-step (see Integrator.RK4).
+    Vector3 getAcceleration(Vector3 atPosition, Vector3 atVelocity)
+    {
+        double speed = atVelocity.getMagnitude();
+        double atForwardSpeed = Vector3.dotProduct(atVelocity, forwardAxis());
+        double altitude = atPosition.y-parameters.groundLevel;
+        Vector3 acceleration = Vector3.multiply(forwardAxis(), throttle*parameters.maxEnginePower/parameters.mass);
+        acceleration.y -= parameters.gravity;
+        if (speed == 0)
+            return acceleration;
+
+        //aerodynamic effect, bending the velocity towards the direction we are facing
+        double correctionFactor = getCorrectionFactor(atVelocity);
+        acceleration.add(Vector3.multiply(Vector3.subtract(Vector3.projectToVector(atVelocity, forwardAxis()), atVelocity), correctionFactor*atForwardSpeed*parameters.aerodynamicEffectAmount/2));
+
+        //lift. Like applyLift(), the most lift that a sub-step can add is limited
+        double liftFactor = 2000/(altitude+2000) + 1;
+        liftFactor *= liftFactor * liftFactor;
+        double lift = Math.min(2000/subStepTime, atForwardSpeed*atForwardSpeed*parameters.liftCoefficient*liftFactor);
+        acceleration.add(Vector3.multiply(Vector3.crossProduct(atVelocity, rightAxis()).getNormalized(), lift/parameters.mass));
+
+        //drag. Like applyDrag(), it can never do more than stop the airplane in one sub-step
+        if (speed*speed > 0.1)
+        {
+            double dragFactor = 2000/(altitude+2000) + 0.6;
+            dragFactor *= dragFactor * dragFactor;
+            acceleration.add(Vector3.multiply(atVelocity, -Math.min(1/subStepTime, dragCoefficient*speed*dragFactor/700)));
+            Vector3 verticalVelocity = Vector3.projectToVector(atVelocity, upAxis());
+            acceleration.add(Vector3.multiply(verticalVelocity, -Math.min(1/subStepTime, dragCoefficient*verticalVelocity.getMagnitude()*dragFactor)));
+        }
+        return acceleration;
+    }
+
+    //sets the position and velocity to the results of an integrator's sub-step. Like updatePosition(), the
+    //position cannot fall below the ground.
+    void moveTo(Vector3 positionIn, Vector3 velocityIn)
+    {
+        velocity.set(velocityIn);
+        position.set(positionIn);
+        double groundHeight = getGroundHeight(position.x, position.z);
+        if (position.y <= groundHeight)
+        {
+            touchGround(position.x, position.z);
+            position.y = groundHeight;
+        }
+        else if (position.y - groundHeight > 50 && takenOff == false)
+            takenOff = true;
+    }
+
+    //changes "point" from world space to local space (see Transform.transformToLocal()). The axes change every
+    //sub-step, so the inverse of the orientation matrix is worked out each time, but in local variables rather than
+    //as new Matrix3x3s. The math is the same as Matrix3x3.getInverse().
+    private void transformToLocal(Vector3 point)
+    {
+        up.normalize();
+        forward.normalize();
+        right.normalize();
+        //the orientation matrix, with the right, up and forward vectors as it's columns
+        double r1c1 = right.x, r1c2 = up.x, r1c3 = forward.x;
+        double r2c1 = right.y, r2c2 = up.y, r2c3 = forward.y;
+        double r3c1 = right.z, r3c2 = up.z, r3c3 = forward.z;
+        double inverseDeterminant = 1/(r1c1*(r2c2*r3c3-r2c3*r3c2)-r1c2*(r2c1*r3c3-r2c3*r3c1)+r1c3*(r2c1*r3c2-r2c2*r3c1));
+
+        //the adjugate matrix divided by the determinant
+        double i1c1 = (r2c2*r3c3-r2c3*r3c2)*inverseDeterminant;
+        double i1c2 = -(r1c2*r3c3-r1c3*r3c2)*inverseDeterminant;
+        double i1c3 = (r1c2*r2c3-r1c3*r2c2)*inverseDeterminant;
+        double i2c1 = -(r2c1*r3c3-r2c3*r3c1)*inverseDeterminant;
+        double i2c2 = (r1c1*r3c3-r1c3*r3c1)*inverseDeterminant;
+        double i2c3 = -(r1c1*r2c3-r1c3*r2c1)*inverseDeterminant;
+        double i3c1 = (r2c1*r3c2-r2c2*r3c1)*inverseDeterminant;
+        double i3c2 = -(r1c1*r3c2-r1c2*r3c1)*inverseDeterminant;
+        double i3c3 = (r1c1*r2c2-r1c2*r2c1)*inverseDeterminant;
+
+        point.set
+        (
+            point.x*i1c1 + point.y*i1c2 + point.z*i1c3,
+            point.x*i2c1 + point.y*i2c2 + point.z*i2c3,
+            point.x*i3c1 + point.y*i3c2 + point.z*i3c3
+        );
+    }
+
+    //rotates a and b "angle" radians around "axis", in place. The math is the same as Matrix3x3.axisAngleMatrix()
+    //(using StrictMath) followed by Vector3.applyMatrix(), without creating the matrix.
+    private static void rotate(Vector3 axis, double angle, Vector3 a, Vector3 b)
+    {
+        double x = axis.x, y = axis.y, z = axis.z;
+        if (axis.getSqrMagnitude() != 1)
+        {
+            double magnitude = axis.getMagnitude();
+            x /= magnitude;
+            y /= magnitude;
+            z /= magnitude;
+        }
+        double cos = StrictMath.cos(angle);
+        double cos1 = 1-cos;
+        double sin = StrictMath.sin(angle);
+
+        double r1c1 = cos+x*x*cos1, r1c2 = x*y*cos1-z*sin, r1c3 = x*z*cos1+y*sin;
+        double r2c1 = y*x*cos1+z*sin, r2c2 = cos+y*y*cos1, r2c3 = y*z*cos1-x*sin;
+        double r3c1 = z*x*cos1-y*sin, r3c2 = z*y*cos1+x*sin, r3c3 = cos+z*z*cos1;
+
+        a.set(a.x*r1c1 + a.y*r1c2 + a.z*r1c3, a.x*r2c1 + a.y*r2c2 + a.z*r2c3, a.x*r3c1 + a.y*r3c2 + a.z*r3c3);
+        b.set(b.x*r1c1 + b.y*r1c2 + b.z*r1c3, b.x*r2c1 + b.y*r2c2 + b.z*r2c3, b.x*r3c1 + b.y*r3c2 + b.z*r3c3);
+    }
+
+    //the following three methods normalize the axes (they slowly lose length from being rotated so
+    //many times) and store them again, the same as the getters of a Transform.
+    private Vector3 forwardAxis()
+    {
+        return forward.normalize();
+    }
+
+    private Vector3 upAxis()
+    {
+        return up.normalize();
+    }
+
+    private Vector3 rightAxis()
+    {
+        return right.normalize();
+    }
+
+    //sets the ground that the airplane can touch and crash into, like a Terrain's HeightField. null (the default)
+    //makes the ground flat at the groundLevel parameter.
+    public void setGround(HeightField groundIn)
+    {
+        ground = groundIn;
+    }
+
+    //changes how the airplane is moved forward each sub-step
+    public void setIntegrator(Integrator integratorIn)
+    {
+        integrator = integratorIn;
+    }
+
+    //changes the length of each step. Used when the physics rate is changed.
+    public void setDeltaTime(double deltaTimeIn)
+    {
+        deltaTime = deltaTimeIn;
+        tickScale = deltaTime/REFERENCE_TICK;
+    }
+
+    //#region getter methods
+    public FlightParameters getParameters()
+    {
+        return parameters;
+    }
+
+    public double getDeltaTime()
+    {
+        return deltaTime;
+    }
+
+    public Integrator getIntegrator()
+    {
+        return integrator;
+    }
+
+    //returns the number of sub-steps that the last step was split into
+    public int getSubSteps()
+    {
+        return subSteps;
+    }
+
+    //returns seconds simulated by each sub-step of the last step
+    double getSubStepTime()
+    {
+        return subStepTime;
+    }
+
+    public long getStepCount()
+    {
+        return stepCount;
+    }
+
+    //seconds simulated so far
+    public double getTime()
+    {
+        return stepCount*deltaTime;
+    }
+
+    public Vector3 getPosition()
+    {
+        return position;
+    }
+
+    public Vector3 getVelocity()
+    {
+        return velocity;
+    }
+
+    public EulerAngle getRotation()
+    {
+        return rotation;
+    }
+
+    //returns the orientation as a matrix with the right, up and forward vectors as it's columns
+    public Matrix3x3 getOrientation()
+    {
+        return new Matrix3x3(right, up, forward);
+    }
+
+    //the following getters don't store the normalized axes, so reading them between steps can't change
+    //the result of the simulation.
+    public Vector3 getForward()
+    {
+        return forward.getNormalized();
+    }
+
+    public Vector3 getUp()
+    {
+        return up.getNormalized();
+    }
+
+    public Vector3 getRight()
+    {
+        return right.getNormalized();
+    }
+
+    //the same as getForward() and getUp(), but sets "out" instead of creating a new Vector3, and returns it
+    public Vector3 getForward(Vector3 out)
+    {
+        return out.set(forward).normalize();
+    }
+
+    public Vector3 getUp(Vector3 out)
+    {
+        return out.set(up).normalize();
+    }
+
+    //returns the speed in the direction the airplane is pointing, as of the start of the last step
+    public double getForwardSpeed()
+    {
+        return forwardSpeed;
+    }
+
+    public double getThrottle()
+    {
+        return throttle;
+    }
+
+    public double getAltitude()
+    {
+        return position.y - parameters.groundLevel;
+    }
+
+    public boolean hasTakenOff()
+    {
+        return takenOff;
+    }
+
+    public boolean hasCrashed()
+    {
+        return crashed;
+    }
+
+    //seconds into the simulation that the airplane crashed, if it has
+    public double getCrashTime()
+    {
+        return crashTime;
+    }
+
+    public HeightField getGround()
+    {
+        return ground;
+    }
+
+    //combines the exact bits of the position, velocity, rotation and throttle into one number. Two models that
+    //have flown the same way have the same checksum.
+    public long getChecksum()
+    {
+        double[] values = {position.x, position.y, position.z, velocity.x, velocity.y, velocity.z, rotation.x, rotation.y, rotation.z, throttle};
+        long checksum = 17;
+        for (double value : values)
+            checksum = checksum*31 + Double.doubleToLongBits(value);
+        return checksum;
+    }
+    //#endregion
+}
@@ -0,0 +1,130 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+//the values that control how the FlightModel flies. The defaults are the airplane's.
+public class FlightParameters
+{
+    public double maxEnginePower; //the maximum power the engine can produce when throttle is 1
+    public double pitchSpeed; //sensitivity of the pitch user control
+    public double yawSpeed; //sensitivty of the yaw user control
+    public double rollSpeed; //sensitivity of the roll user control
+    public double gravity; //the force of gravity on the airplane
+    public double mass; //the mass of the airplane
+    public double liftCoefficient; //the strenth of lift
+    public double dragCoefficient; //strenth of drag
+    public double brakeDragCoefficient; //strenth of drag while the brakes are on
+    public double angularDragCoefficient; //strenth of rotational drag.
+    public double yawRollEffectAmount; //the magnitude of the effect of rolling when the airplane yaws
+    public double aerodynamicEffectAmount; //the strenth of the effect that straightens out the airplane
+    public double groundLevel; //the level of ground as a y coordinate
+    public double crashSpeed; //hitting the ground faster than this (straight into it) is a crash
+
+    //creates the default parameters
+    public FlightParameters()
+    {
+        maxEnginePower = 20000;
+        pitchSpeed = 30;
+        yawSpeed = 20;
+        rollSpeed = 40;
+        gravity = 65;
+        mass = 1000;
+        liftCoefficient = 1.5;
+        dragCoefficient = 0.2;
+        brakeDragCoefficient = 1;
+        angularDragCoefficient = 1;
+        aerodynamicEffectAmount = 0.01;
+        yawRollEffectAmount = 30;
+        groundLevel = 0;
+        crashSpeed = 30;
+    }
+
+    //creates a copy of other parameters
+    public FlightParameters(FlightParameters other)
+    {
+        maxEnginePower = other.maxEnginePower;
+        pitchSpeed = other.pitchSpeed;
+        yawSpeed = other.yawSpeed;
+        rollSpeed = other.rollSpeed;
+        gravity = other.gravity;
+        mass = other.mass;
+        liftCoefficient = other.liftCoefficient;
+        dragCoefficient = other.dragCoefficient;
+        brakeDragCoefficient = other.brakeDragCoefficient;
+        angularDragCoefficient = other.angularDragCoefficient;
+        aerodynamicEffectAmount = other.aerodynamicEffectAmount;
+        yawRollEffectAmount = other.yawRollEffectAmount;
+        groundLevel = other.groundLevel;
+        crashSpeed = other.crashSpeed;
+    }
+
+    //writes every parameter, in the order that read() reads them
+    public void write(DataOutput out) throws IOException
+    {
+        double[] values =
+        {
+            maxEnginePower, pitchSpeed, yawSpeed, rollSpeed, gravity, mass, liftCoefficient, dragCoefficient,
+            brakeDragCoefficient, angularDragCoefficient, yawRollEffectAmount, aerodynamicEffectAmount, groundLevel, crashSpeed
+        };
+        for (double value : values)
+            out.writeDouble(value);
+    }
+
+    //reads parameters written by write()
+    public static FlightParameters read(DataInput in) throws IOException
+    {
+        FlightParameters parameters = new FlightParameters();
+        parameters.maxEnginePower = in.readDouble();
+        parameters.pitchSpeed = in.readDouble();
+        parameters.yawSpeed = in.readDouble();
+        parameters.rollSpeed = in.readDouble();
+        parameters.gravity = in.readDouble();
+        parameters.mass = in.readDouble();
+        parameters.liftCoefficient = in.readDouble();
+        parameters.dragCoefficient = in.readDouble();
+        parameters.brakeDragCoefficient = in.readDouble();
+        parameters.angularDragCoefficient = in.readDouble();
+        parameters.yawRollEffectAmount = in.readDouble();
+        parameters.aerodynamicEffectAmount = in.readDouble();
+        parameters.groundLevel = in.readDouble();
+        parameters.crashSpeed = in.readDouble();
+        return parameters;
+    }
+
+    //sets the parameter with the same name as it's field to "value". Returns false if there is no
+    //parameter called "name". Used to set parameters from the command line (see ParameterSweep)
+    public boolean set(String name, double value)
+    {
+        if (name.equals("maxEnginePower"))
+            maxEnginePower = value;
+        else if (name.equals("pitchSpeed"))
+            pitchSpeed = value;
+        else if (name.equals("yawSpeed"))
+            yawSpeed = value;
+        else if (name.equals("rollSpeed"))
+            rollSpeed = value;
+        else if (name.equals("gravity"))
+            gravity = value;
+        else if (name.equals("mass"))
+            mass = value;
+        else if (name.equals("liftCoefficient"))
+            liftCoefficient = value;
+        else if (name.equals("dragCoefficient"))
+            dragCoefficient = value;
+        else if (name.equals("brakeDragCoefficient"))
+            brakeDragCoefficient = value;
+        else if (name.equals("angularDragCoefficient"))
+            angularDragCoefficient = value;
+        else if (name.equals("yawRollEffectAmount"))
+            yawRollEffectAmount = value;
+        else if (name.equals("aerodynamicEffectAmount"))
+            aerodynamicEffectAmount = value;
+        else if (name.equals("groundLevel"))
+            groundLevel = value;
+        else if (name.equals("crashSpeed"))
+            crashSpeed = value;
+        else
+            return false;
+        return true;
+    }
+}
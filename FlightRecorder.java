@@ -0,0 +1,158 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+//a flight data recorder: saves the state of a FlightModel and the controls after every physics step, into a
+//binary file that can be read back with FlightRecording after the flight.
+//
+//The file is a fixed number of records long, and is used as a ring buffer: once it is full, each new record
+//replaces the oldest one, so the file always holds the last "capacity" steps of the flight. The file is memory
+//mapped, so writing a record is just copying a few numbers into memory, without any system calls or new
+//objects, and the operating system writes the changed pages to the disk in the background. The records are
+//still in the file if the game crashes, since the memory belongs to the operating system, not the game.
+//
+//file layout (big endian):
+//  header, HEADER_SIZE bytes:
+//    int magic (MAGIC), int version (VERSION), int record size (RECORD_SIZE), int capacity (records),
+//    double seconds per step, long number of records written (including ones that have been replaced)
+//  followed by "capacity" records of RECORD_SIZE bytes each:
+//    long step, double time, double x, y, z position, float x, y, z velocity, float x, y, z forward vector,
+//    float x, y, z up vector, float throttle, int controls (ControlInput.toBits(), plus CRASHED),
+//    int number of sub-steps
+//record i (counting every record ever written) is at HEADER_SIZE + (i % capacity)*RECORD_SIZE. The number of
+//records written is updated after each record, so after the game has stopped the records it counts are
+//complete. While the game is still running:
+//  - the number is stored with release ordering (see COUNT), so a reader that loads it with acquire ordering
+//    sees all of every record it counts
+//  - there is a store-store fence between storing the number and writing the next record, so a reader that
+//    has seen any part of record n has also seen a count of at least n. The record replaces record
+//    n - capacity, so the reader can check after reading a record whether it may have been torn (see
+//    FlightRecording.isIntact()).
+//Java only promises this between threads of the same program. Another program reading the file sees the
+//same memory, and the fences are done with the processor's own ordering instructions, so in practice it
+//holds there as well.
+public class FlightRecorder
+{
+    public static final int MAGIC = 0x464C5452; //"FLTR"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 32;
+    public static final int RECORD_SIZE = 88;
+    //a bit of the record's controls that is set once the airplane has crashed
+    public static final int CRASHED = 1 << 31;
+    //the whole file is mapped as one buffer, which can't be bigger than this
+    public static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE)/RECORD_SIZE;
+
+    //where in the header the number of records written is
+    static final int COUNT_OFFSET = 24;
+    //reads and writes the number of records written with memory ordering, which plain buffer reads and
+    //writes don't have (see the comment at the top)
+    static final VarHandle COUNT = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private long recordCount; //number of records written, including ones that have been replaced
+    private Vector3 forward; //the model's axes are copied into these, so recording doesn't create any objects
+    private Vector3 up;
+
+    private FlightRecorder(MappedByteBuffer bufferIn, int capacityIn, double deltaTime)
+    {
+        buffer = bufferIn;
+        capacity = capacityIn;
+        forward = new Vector3();
+        up = new Vector3();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(8, RECORD_SIZE);
+        buffer.putInt(12, capacity);
+        buffer.putDouble(16, deltaTime);
+        buffer.putLong(COUNT_OFFSET, 0);
+    }
+
+    //creates (or replaces) "file" with room for "capacity" records, for a model stepped by "deltaTime" seconds.
+    //At 120 steps per second, an hour is 432000 records and about 38MB.
+    //Returns null if the file can't be made.
+    public static FlightRecorder create(File file, int capacity, double deltaTime)
+    {
+        if (capacity <= 0 || capacity > MAX_CAPACITY)
+        {
+            System.err.println("ERROR at: FlightRecorder/create() method:\n\tcapacity must be between 1 and " + MAX_CAPACITY + " records");
+            return null;
+        }
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw"))
+        {
+            long size = HEADER_SIZE + (long)capacity*RECORD_SIZE;
+            randomAccessFile.setLength(0);
+            randomAccessFile.setLength(size);
+            //the mapping stays valid after the file is closed
+            MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            return new FlightRecorder(buffer, capacity, deltaTime);
+        }
+        catch (IOException e)
+        {
+            System.err.println("ERROR at: FlightRecorder/create() method:\n\tcould not create flight recording " + file.getAbsolutePath() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    //adds a record of the model's state after a step, along with the controls that were used for the step
+    public void record(FlightModel model, ControlInput input)
+    {
+        //the previous count has to be seen before any part of this record: this record replaces the oldest one,
+        //and a reader that sees some of it must also see the count that tells it the oldest record is going
+        //(a release store only orders the stores before it, not the ones after)
+        VarHandle.storeStoreFence();
+        int offset = HEADER_SIZE + (int)(recordCount % capacity)*RECORD_SIZE;
+        Vector3 position = model.getPosition();
+        Vector3 velocity = model.getVelocity();
+        model.getForward(forward);
+        model.getUp(up);
+
+        buffer.putLong(offset, model.getStepCount());
+        buffer.putDouble(offset + 8, model.getTime());
+        buffer.putDouble(offset + 16, position.x);
+        buffer.putDouble(offset + 24, position.y);
+        buffer.putDouble(offset + 32, position.z);
+        buffer.putFloat(offset + 40, (float)velocity.x);
+        buffer.putFloat(offset + 44, (float)velocity.y);
+        buffer.putFloat(offset + 48, (float)velocity.z);
+        buffer.putFloat(offset + 52, (float)forward.x);
+        buffer.putFloat(offset + 56, (float)forward.y);
+        buffer.putFloat(offset + 60, (float)forward.z);
+        buffer.putFloat(offset + 64, (float)up.x);
+        buffer.putFloat(offset + 68, (float)up.y);
+        buffer.putFloat(offset + 72, (float)up.z);
+        buffer.putFloat(offset + 76, (float)model.getThrottle());
+        buffer.putInt(offset + 80, input.toBits() | (model.hasCrashed()? CRASHED : 0));
+        buffer.putInt(offset + 84, model.getSubSteps());
+
+        recordCount++;
+        //released, so the record is written before it is counted
+        COUNT.setRelease(buffer, COUNT_OFFSET, recordCount);
+    }
+
+    //asks the operating system to write everything recorded so far to the disk now, rather than when it wants to.
+    //Can take a while, so it shouldn't be called on the physics thread.
+    public void flush()
+    {
+        buffer.force();
+    }
+
+    //#region getter methods
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    //number of records written, including ones that have been replaced
+    public long getRecordCount()
+    {
+        return recordCount;
+    }
+    //#endregion
+}
@@ -0,0 +1,233 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+//reads a file written by FlightRecorder, for looking at a flight afterwards. The records that are still in the
+//file are numbered from 0 (the oldest) to size()-1 (the newest). The file is memory mapped, so only the parts
+//that are read are loaded from the disk, and a recording can be read while it is still being written (the
+//records are counted when it is opened, see refresh()). Once the file is full, the writer replaces the oldest
+//records while they are being read, so a live reader should check isIntact() after reading a record and
+//throw away the values it read if the record has been replaced.
+//
+//usage: java FlightRecording <file> [every nth record]
+//prints the records as comma separated values, to be opened in a spreadsheet or plotted
+public class FlightRecording
+{
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private double deltaTime;
+    private long recordCount; //number of records written, including ones that have been replaced
+
+    private FlightRecording(MappedByteBuffer bufferIn)
+    {
+        buffer = bufferIn;
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        capacity = buffer.getInt(12);
+        deltaTime = buffer.getDouble(16);
+        refresh();
+    }
+
+    //opens a recording, returns null if it can't be read or isn't a recording
+    public static FlightRecording open(File file)
+    {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r"))
+        {
+            if (randomAccessFile.length() < FlightRecorder.HEADER_SIZE)
+            {
+                System.err.println("ERROR at: FlightRecording/open() method:\n\t" + file.getAbsolutePath() + " is not a flight recording");
+                return null;
+            }
+            MappedByteBuffer buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            if (buffer.getInt(0) != FlightRecorder.MAGIC || buffer.getInt(8) != FlightRecorder.RECORD_SIZE
+                || randomAccessFile.length() < FlightRecorder.HEADER_SIZE + (long)buffer.getInt(12)*FlightRecorder.RECORD_SIZE)
+            {
+                System.err.println("ERROR at: FlightRecording/open() method:\n\t" + file.getAbsolutePath() + " is not a flight recording");
+                return null;
+            }
+            if (buffer.getInt(4) != FlightRecorder.VERSION)
+            {
+                System.err.println("ERROR at: FlightRecording/open() method:\n\t" + file.getAbsolutePath() + " was recorded by a different version (" + buffer.getInt(4) + ")");
+                return null;
+            }
+            return new FlightRecording(buffer);
+        }
+        catch (IOException e)
+        {
+            System.err.println("ERROR at: FlightRecording/open() method:\n\tcould not read flight recording " + file.getAbsolutePath() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    //counts the records again, for a recording that is still being written. Every record counted is complete.
+    public void refresh()
+    {
+        recordCount = (long)FlightRecorder.COUNT.getAcquire(buffer, FlightRecorder.COUNT_OFFSET);
+    }
+
+    //returns whether record "index" (numbered as of the last refresh()) is still in the file and hasn't started
+    //being replaced, so the values that have been read from it belong together. Call it after reading the
+    //record. Always true for a recording that isn't being written.
+    public boolean isIntact(int index)
+    {
+        //the record's values must be read before the count is
+        VarHandle.acquireFence();
+        long written = (long)FlightRecorder.COUNT.getAcquire(buffer, FlightRecorder.COUNT_OFFSET);
+        //the writer may be writing record number "written", which replaces record number written - capacity.
+        //The writer stores the count before it starts a record, so if any of the values read came from a
+        //newer record, "written" counts at least up to it.
+        return recordCount - size() + index > written - capacity;
+    }
+
+    //where record "index" (0 is the oldest still in the file) starts in the file
+    private int offset(int index)
+    {
+        if (index < 0 || index >= size())
+            throw new IndexOutOfBoundsException("record " + index + " of " + size());
+        long first = recordCount - size();
+        return FlightRecorder.HEADER_SIZE + (int)((first + index) % capacity)*FlightRecorder.RECORD_SIZE;
+    }
+
+    //number of records in the file
+    public int size()
+    {
+        return (int)Math.min(recordCount, capacity);
+    }
+
+    //the physics step that the record was made after
+    public long getStep(int index)
+    {
+        return buffer.getLong(offset(index));
+    }
+
+    //seconds into the flight
+    public double getTime(int index)
+    {
+        return buffer.getDouble(offset(index) + 8);
+    }
+
+    //sets "out" to the airplane's position and returns it
+    public Vector3 getPosition(int index, Vector3 out)
+    {
+        int offset = offset(index);
+        return out.set(buffer.getDouble(offset + 16), buffer.getDouble(offset + 24), buffer.getDouble(offset + 32));
+    }
+
+    public Vector3 getVelocity(int index, Vector3 out)
+    {
+        return getVector(offset(index) + 40, out);
+    }
+
+    public Vector3 getForward(int index, Vector3 out)
+    {
+        return getVector(offset(index) + 52, out);
+    }
+
+    public Vector3 getUp(int index, Vector3 out)
+    {
+        return getVector(offset(index) + 64, out);
+    }
+
+    public double getThrottle(int index)
+    {
+        return buffer.getFloat(offset(index) + 76);
+    }
+
+    //sets "out" to the controls that were pressed for the step, and returns it
+    public ControlInput getControls(int index, ControlInput out)
+    {
+        out.setBits(buffer.getInt(offset(index) + 80));
+        return out;
+    }
+
+    //had the airplane crashed by the end of the step?
+    public boolean hasCrashed(int index)
+    {
+        return (buffer.getInt(offset(index) + 80) & FlightRecorder.CRASHED) != 0;
+    }
+
+    //number of sub-steps that the step was split into (see FlightModel.getSubSteps())
+    public int getSubSteps(int index)
+    {
+        return buffer.getInt(offset(index) + 84);
+    }
+
+    //reads three floats into "out"
+    private Vector3 getVector(int offset, Vector3 out)
+    {
+        return out.set(buffer.getFloat(offset), buffer.getFloat(offset + 4), buffer.getFloat(offset + 8));
+    }
+
+    //#region getter methods
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    //seconds simulated by each step
+    public double getDeltaTime()
+    {
+        return deltaTime;
+    }
+
+    //number of records written, including ones that have been replaced
+    public long getRecordCount()
+    {
+        return recordCount;
+    }
+    //#endregion
+
+    public static void main(String[] args)
+    {
+        if (args.length < 1)
+        {
+            System.err.println("WARNING at: FlightRecording/main() method:\n\tusage: java FlightRecording <file> [every nth record]");
+            return;
+        }
+        int interval = 1;
+        try
+        {
+            if (args.length > 1)
+                interval = Math.max(1, Integer.parseInt(args[1]));
+        }
+        catch (NumberFormatException e)
+        {
+            System.err.println("WARNING at: FlightRecording/main() method:\n\tinvalid number: " + args[1]);
+            return;
+        }
+        FlightRecording recording = open(new File(args[0]));
+        if (recording == null)
+            return;
+
+        Vector3 position = new Vector3();
+        Vector3 velocity = new Vector3();
+        Vector3 forward = new Vector3();
+        Vector3 up = new Vector3();
+        ControlInput controls = new ControlInput();
+        System.out.println("step,time,x,y,z,vx,vy,vz,forwardX,forwardY,forwardZ,upX,upY,upZ,throttle,controls,crashed,subSteps");
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < recording.size(); i += interval)
+        {
+            recording.getPosition(i, position);
+            recording.getVelocity(i, velocity);
+            recording.getForward(i, forward);
+            recording.getUp(i, up);
+            line.setLength(0);
+            line.append(recording.getStep(i)).append(',').append(recording.getTime(i)).append(',');
+            line.append(position.x).append(',').append(position.y).append(',').append(position.z).append(',');
+            line.append(velocity.x).append(',').append(velocity.y).append(',').append(velocity.z).append(',');
+            line.append(forward.x).append(',').append(forward.y).append(',').append(forward.z).append(',');
+            line.append(up.x).append(',').append(up.y).append(',').append(up.z).append(',');
+            line.append(recording.getThrottle(i)).append(',');
+            line.append(Integer.toHexString(recording.getControls(i, controls).toBits())).append(',');
+            line.append(recording.hasCrashed(i)).append(',').append(recording.getSubSteps(i));
+            //the flight may still be running, and have replaced the record while it was being read
+            if (recording.isIntact(i))
+                System.out.println(line);
+        }
+    }
+}
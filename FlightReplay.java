@@ -0,0 +1,351 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+//flies the flights in a file written by InputLog again, step by step, with the same parameters, ground and
+//controls, so they come out exactly the same as when they were flown. Used to reproduce problems that happened
+//during a flight, without having to fly it again by hand.
+//
+//A log can hold many flights (a new one starts every time the airplane is reset). One of them is replayed at a
+//time, starting with the first. While replaying, the model's checksum is compared with the ones in the log, and
+//the first step where they are different is remembered (see getMismatchStep()).
+//
+//Every CHECKPOINT_INTERVAL seconds of the flight, a copy of the model is kept as a checkpoint, so seek() can jump
+//back to any step by starting from the checkpoint before it, instead of replaying from the start.
+//
+//usage: java FlightReplay <log file> [seconds to seek to]
+//replays every flight in the log as fast as possible and prints if it matched, or replays the first flight up
+//to the given time and prints the state there
+public class FlightReplay
+{
+    //seconds of the flight between the checkpoints
+    public static final double CHECKPOINT_INTERVAL = 10;
+
+    private double deltaTime;
+    private Integrator integrator;
+    private FlightParameters parameters;
+    private HeightField ground;
+    private ArrayList<Flight> flights;
+
+    //the flight being replayed
+    private Flight flight;
+    private int flightIndex;
+    private FlightModel model;
+    private ControlInput input;
+    private ArrayList<FlightModel> checkpoints; //checkpoint i is the model after i*checkpointInterval steps
+    private long checkpointInterval; //steps between the checkpoints
+    private int event; //the index of the last control change at or before the model's step
+    private long mismatchStep; //the first step where the checksum didn't match the log, -1 if none has
+
+    private FlightReplay()
+    {
+        flights = new ArrayList<Flight>();
+        input = new ControlInput();
+        checkpoints = new ArrayList<FlightModel>();
+    }
+
+    //reads a log, returns null if it can't be read
+    public static FlightReplay open(File file)
+    {
+        FlightReplay replay = new FlightReplay();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != InputLog.MAGIC)
+            {
+                System.err.println("ERROR at: FlightReplay/open() method:\n\t" + file.getAbsolutePath() + " is not an input log");
+                return null;
+            }
+            int version = in.readInt();
+            if (version != InputLog.VERSION)
+            {
+                System.err.println("ERROR at: FlightReplay/open() method:\n\t" + file.getAbsolutePath() + " was logged by a different version (" + version + ")");
+                return null;
+            }
+            replay.deltaTime = in.readDouble();
+            replay.integrator = (in.readByte() == 1)? Integrator.RK4 : Integrator.SEMI_IMPLICIT_EULER;
+            replay.parameters = FlightParameters.read(in);
+            if (in.readBoolean())
+                replay.ground = HeightField.read(in);
+            replay.readEvents(in);
+        }
+        catch (IOException e)
+        {
+            System.err.println("ERROR at: FlightReplay/open() method:\n\tcould not read input log " + file.getAbsolutePath() + ": " + e.getMessage());
+            return null;
+        }
+        replay.checkpointInterval = Math.max(1, (long)Math.ceil(CHECKPOINT_INTERVAL/replay.deltaTime));
+        replay.selectFlight(0);
+        return replay;
+    }
+
+    //reads events until the end of the file. A log that was cut off in the middle of an event (if the game
+    //was closed while it was being written) ends at the last whole event.
+    private void readEvents(DataInputStream in) throws IOException
+    {
+        Flight current = new Flight();
+        flights.add(current);
+        long step = 0;
+        while (true)
+        {
+            try
+            {
+                long steps = 0;
+                int shift = 0;
+                int b;
+                do
+                {
+                    b = in.readUnsignedByte();
+                    steps |= (long)(b & 0x7F) << shift;
+                    shift += 7;
+                }
+                while ((b & 0x80) != 0);
+                int event = in.readUnsignedShort();
+                step += steps;
+
+                if (event == InputLog.RESET)
+                {
+                    current.length = Math.max(current.length, step);
+                    current = new Flight();
+                    flights.add(current);
+                    step = 0;
+                }
+                else if (event == InputLog.SYNC)
+                    current.addSync(step, in.readLong());
+                else
+                    current.addChange(step, event);
+                current.length = Math.max(current.length, step);
+            }
+            catch (EOFException e)
+            {
+                break;
+            }
+        }
+        //a reset at the very end of the log leaves an empty flight
+        if (flights.size() > 1 && current.changeCount == 0 && current.syncCount == 0)
+            flights.remove(flights.size() - 1);
+    }
+
+    //starts replaying flight "index" from the start
+    public void selectFlight(int index)
+    {
+        flightIndex = index;
+        flight = flights.get(index);
+        model = new FlightModel(parameters, deltaTime);
+        model.setIntegrator(integrator);
+        model.setGround(ground);
+        checkpoints.clear();
+        checkpoints.add(new FlightModel(model));
+        event = -1;
+        mismatchStep = -1;
+    }
+
+    //replays one step. Returns false (and doesn't step) at the end of the flight.
+    public boolean step()
+    {
+        long step = model.getStepCount();
+        int bits = getControls(step, input);
+        if ((bits & InputLog.CRASH) != 0)
+            model.crash();
+        if (step >= flight.length)
+            return false;
+        model.step(input);
+        step++;
+
+        int sync = Arrays.binarySearch(flight.syncSteps, 0, flight.syncCount, step);
+        if (sync >= 0 && flight.syncChecksums[sync] != model.getChecksum() && mismatchStep < 0)
+            mismatchStep = step;
+        if (step % checkpointInterval == 0 && step/checkpointInterval == checkpoints.size())
+            checkpoints.add(new FlightModel(model));
+        return true;
+    }
+
+    //replays steps as fast as possible until the model has done "targetStep" steps, or the flight ends.
+    //Going backwards starts from the last checkpoint before the target, which is never more than
+    //CHECKPOINT_INTERVAL seconds of replaying. Going forwards past the checkpoints makes new ones on the way.
+    public void seek(long targetStep)
+    {
+        targetStep = Math.max(0, Math.min(targetStep, flight.length));
+        if (targetStep < model.getStepCount() || targetStep - model.getStepCount() > checkpointInterval)
+        {
+            int checkpoint = (int)Math.min(targetStep/checkpointInterval, checkpoints.size() - 1);
+            if ((long)checkpoint*checkpointInterval > model.getStepCount() || targetStep < model.getStepCount())
+            {
+                model = new FlightModel(checkpoints.get(checkpoint));
+                event = -1;
+            }
+        }
+        while (model.getStepCount() < targetStep && step());
+    }
+
+    //sets "out" to the controls of "step" in the flight being replayed, and returns them with the CRASH bit
+    private int getControls(long step, ControlInput out)
+    {
+        //the controls usually carry on from the last step, so the search starts from the last change
+        if (event < 0 || flight.changeSteps[event] > step)
+            event = Arrays.binarySearch(flight.changeSteps, 0, flight.changeCount, step);
+        else
+        {
+            while (event + 1 < flight.changeCount && flight.changeSteps[event + 1] <= step)
+                event++;
+        }
+        if (event < 0 && event != -1)
+            event = -event - 2; //binarySearch returns -(insertion point) - 1 if the step isn't a change
+        int bits = (event >= 0)? flight.changeBits[event] : 0;
+        out.setBits(bits);
+        return bits;
+    }
+
+    //sets "out" to the controls of "step" of the flight being replayed, and returns true if the model was crashed
+    //into something before the step. Used by the Airplane to fly a replay in the game.
+    public boolean getControlsAt(long step, ControlInput out)
+    {
+        return (getControls(step, out) & InputLog.CRASH) != 0;
+    }
+
+    //#region getter methods
+    public FlightModel getModel()
+    {
+        return model;
+    }
+
+    public int getFlightCount()
+    {
+        return flights.size();
+    }
+
+    public int getFlightIndex()
+    {
+        return flightIndex;
+    }
+
+    //number of steps in the flight being replayed
+    public long getFlightLength()
+    {
+        return flight.length;
+    }
+
+    //the first step where the model's checksum didn't match the log, or -1 if it has matched so far
+    public long getMismatchStep()
+    {
+        return mismatchStep;
+    }
+
+    //number of checksums in the log that the replay has reached, or would reach by the end of the flight
+    public int getSyncCount()
+    {
+        return flight.syncCount;
+    }
+
+    public double getDeltaTime()
+    {
+        return deltaTime;
+    }
+
+    public FlightParameters getParameters()
+    {
+        return parameters;
+    }
+
+    public Integrator getIntegrator()
+    {
+        return integrator;
+    }
+
+    public HeightField getGround()
+    {
+        return ground;
+    }
+    //#endregion
+
+    //the events of one flight: the steps where the controls change and what they change to, and the checksums
+    private static class Flight
+    {
+        public long length; //the step of the last event, the flight isn't known to go any further
+        public long[] changeSteps = new long[16];
+        public int[] changeBits = new int[16];
+        public int changeCount;
+        public long[] syncSteps = new long[16];
+        public long[] syncChecksums = new long[16];
+        public int syncCount;
+
+        public void addChange(long step, int bits)
+        {
+            if (changeCount == changeSteps.length)
+            {
+                changeSteps = Arrays.copyOf(changeSteps, changeCount*2);
+                changeBits = Arrays.copyOf(changeBits, changeCount*2);
+            }
+            //two changes on the same step (a crash logged after the controls) keep the last one
+            if (changeCount > 0 && changeSteps[changeCount - 1] == step)
+                changeCount--;
+            changeSteps[changeCount] = step;
+            changeBits[changeCount] = bits;
+            changeCount++;
+        }
+
+        public void addSync(long step, long checksum)
+        {
+            if (syncCount == syncSteps.length)
+            {
+                syncSteps = Arrays.copyOf(syncSteps, syncCount*2);
+                syncChecksums = Arrays.copyOf(syncChecksums, syncCount*2);
+            }
+            if (syncCount > 0 && syncSteps[syncCount - 1] == step)
+                syncCount--;
+            syncSteps[syncCount] = step;
+            syncChecksums[syncCount] = checksum;
+            syncCount++;
+        }
+    }
+
+    public static void main(String[] args)
+    {
+        if (args.length < 1)
+        {
+            System.err.println("WARNING at: FlightReplay/main() method:\n\tusage: java FlightReplay <log file> [seconds to seek to]");
+            return;
+        }
+        FlightReplay replay = open(new File(args[0]));
+        if (replay == null)
+            return;
+
+        if (args.length > 1)
+        {
+            double seconds;
+            try
+            {
+                seconds = Double.parseDouble(args[1]);
+            }
+            catch (NumberFormatException e)
+            {
+                System.err.println("WARNING at: FlightReplay/main() method:\n\tinvalid number: " + args[1]);
+                return;
+            }
+            long startTime = System.nanoTime();
+            replay.seek(Math.round(seconds/replay.getDeltaTime()));
+            FlightModel model = replay.getModel();
+            System.out.printf("flight 0 at %.2f s (step %d of %d), reached in %.3f s%n", model.getTime(), model.getStepCount(), replay.getFlightLength(), (System.nanoTime() - startTime)/1000000000.0);
+            System.out.println("position: " + model.getPosition());
+            System.out.println("velocity: " + model.getVelocity());
+            System.out.println("rotation: " + model.getRotation());
+            System.out.printf("throttle: %.3f  crashed: %b%n", model.getThrottle(), model.hasCrashed());
+            System.out.printf("checksum: %016x%n", model.getChecksum());
+            return;
+        }
+
+        for (int i = 0; i < replay.getFlightCount(); i++)
+        {
+            long startTime = System.nanoTime();
+            replay.selectFlight(i);
+            while (replay.step());
+            FlightModel model = replay.getModel();
+            String result = (replay.getMismatchStep() < 0)? "matched " + replay.getSyncCount() + " checksums" : "DIFFERENT from step " + replay.getMismatchStep();
+            System.out.printf("flight %d: %.1f s in %.3f s, %s, crashed: %b, checksum %016x%n", i, model.getTime(), (System.nanoTime() - startTime)/1000000000.0, result, model.hasCrashed(), model.getChecksum());
+        }
+    }
+}
@@ -0,0 +1,51 @@
+//a scripted pilot for the FlightModel: sets the controls for each step based on the time in the flight.
+//A script shouldn't keep any state between calls, so the same script can fly many simulations at once
+//on different threads (see ParameterSweep).
+public interface FlightScript
+{
+    //sets "input" to the controls that should be pressed "time" seconds into the flight
+    public void setControls(ControlInput input, double time);
+
+    //full throttle down the runway, then a short pull up just after the wheels leave the ground to climb
+    //away (a longer one stalls the airplane straight back into the ground). After a minute the nose is pulled
+    //up until the airplane stalls, then let go so it can recover. The airplane isn't stable enough to fly the
+    //same way with every set of parameters, so some crash before the stall (see ParameterSweep).
+    public static final FlightScript TAKEOFF_AND_STALL = new FlightScript()
+    {
+        public void setControls(ControlInput input, double time)
+        {
+            input.clear();
+            input.throttleUp = time < 5;
+            input.pitchUp = (time > 6 && time < 6.2) || (time > 60 && time < 63);
+        }
+    };
+
+    //the same take off and climb as TAKEOFF_AND_STALL, then a two minute cycle of turns and pitches with the
+    //throttle going up and down is repeated. With the default parameters the airplane flies through the
+    //first roll, and the long yaw at 40 seconds takes it into the ground.
+    public static final FlightScript MANEUVERS = new FlightScript()
+    {
+        public void setControls(ControlInput input, double time)
+        {
+            input.clear();
+            if (time < 5)
+            {
+                input.throttleUp = true;
+                return;
+            }
+            if (time > 6 && time < 6.2)
+                input.pitchUp = true;
+
+            double t = time % 120;
+            input.rollLeft = t > 30 && t < 30.5;
+            input.rollRight = t > 60 && t < 61;
+            input.yawLeft = t > 40 && t < 43;
+            input.yawRight = t > 70 && t < 72;
+            input.pitchUp = input.pitchUp || (t > 80 && t < 80.6);
+            input.pitchDown = t > 95 && t < 95.4;
+            input.throttleDown = t > 100 && t < 100.5;
+            input.throttleUp = t > 110 && t < 110.5;
+            input.brakes = t > 115 && t < 116;
+        }
+    };
+}
@@ -42,8 +42,75 @@ public class FlightSimulator
 
 
     
+    //command line options:
+    //  -float      store mesh and terrain geometry in single precision (see VertexBuffer)
+    //  -benchmark  run the quality benchmark again and save the preset it chooses (see QualityBenchmark)
+    //  -physicsrate <steps per second>  how often the airplane physics is stepped (see Airplane)
+    //  -record <file>  record every physics step into a file (see FlightRecorder)
+    //  -inputlog <file>  log the controls of every flight into a file, so it can be replayed (see InputLog)
+    //  -replay <file>  fly the flights in an input log instead of using the keyboard (see FlightReplay)
+    //  -replayspeed <times real time>  how fast a replay is flown
+    //  -telemetryport <port>  stream the airplane's state to programs on this computer (see TelemetryServer)
     public static void main(String [] args)
     {   
+        for (int i = 0; i < args.length; i++)
+        {
+            if (args[i].equals("-float"))
+                VertexBuffer.setSinglePrecision(true);
+            else if (args[i].equals("-benchmark"))
+            {
+                //without a user the benchmark is run every time anyway, there is just nowhere to save it's preset
+                if (user != null)
+                    user.getSettings().quality = null;
+                else
+                    System.err.println("WARNING at: FlightSimulator/main() method:\n\tno user to save the benchmark's preset for, it will only be used this time");
+            }
+            else if (args[i].equals("-physicsrate") && i + 1 < args.length)
+            {
+                try
+                {
+                    Airplane.setPhysicsRate(Double.parseDouble(args[++i]));
+                }
+                catch (NumberFormatException e)
+                {
+                    System.err.println("WARNING at: FlightSimulator/main() method:\n\tinvalid physics rate: " + args[i]);
+                }
+            }
+            else if (args[i].equals("-record") && i + 1 < args.length)
+                Airplane.setRecordingFile(new File(args[++i]));
+            else if (args[i].equals("-inputlog") && i + 1 < args.length)
+                Airplane.setInputLogFile(new File(args[++i]));
+            else if (args[i].equals("-replay") && i + 1 < args.length)
+            {
+                FlightReplay replay = FlightReplay.open(new File(args[++i]));
+                if (replay != null)
+                    Airplane.setReplay(replay);
+            }
+            else if (args[i].equals("-replayspeed") && i + 1 < args.length)
+            {
+                try
+                {
+                    Airplane.setReplaySpeed(Double.parseDouble(args[++i]));
+                }
+                catch (NumberFormatException e)
+                {
+                    System.err.println("WARNING at: FlightSimulator/main() method:\n\tinvalid replay speed: " + args[i]);
+                }
+            }
+            else if (args[i].equals("-telemetryport") && i + 1 < args.length)
+            {
+                try
+                {
+                    Airplane.setTelemetryPort(Integer.parseInt(args[++i]));
+                }
+                catch (NumberFormatException e)
+                {
+                    System.err.println("WARNING at: FlightSimulator/main() method:\n\tinvalid telemetry port: " + args[i]);
+                }
+            }
+            else
+                System.err.println("WARNING at: FlightSimulator/main() method:\n\tunknown option: " + args[i]);
+        }
         flightSim = new FlightSimulator();
         flightSim.startGame();
     }
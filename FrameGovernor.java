@@ -0,0 +1,142 @@
+//watches how long frames take to render and lowers or raises the rendering quality to stay near a target
+//frame time. Quality is a single value from 0 (lowest) to 1 (highest) which controls:
+//  - the render scale: the fraction of the panel's resolution that frames are rendered at (then stretched)
+//  - the draw distance: the fraction of the camera's far clip distance (and fog distances) that is used
+//
+//To stop the quality from going back and forth every few frames, it only changes when the average frame
+//time has been clearly too slow (or clearly fast enough to afford more) for a number of frames in a row,
+//and frame times are ignored for a short while after every change so the average can settle.
+public class FrameGovernor
+{
+    //how much the average frame time follows each new frame (exponential moving average)
+    private static final double SMOOTHING = 0.1;
+    //frames slower than this fraction of the target count as too slow
+    private static final double SLOW_THRESHOLD = 1.1;
+    //frames faster than this fraction of the target count as fast enough to raise the quality
+    private static final double FAST_THRESHOLD = 0.7;
+    //number of slow or fast frames in a row needed before the quality is changed. Lowering quality
+    //reacts quickly, raising it takes longer.
+    private static final int SLOW_FRAMES_NEEDED = 10;
+    private static final int FAST_FRAMES_NEEDED = 60;
+    //raising the quality back to the step it last had to be lowered from takes this many times longer,
+    //so a scene that is just on the edge doesn't keep switching between two steps
+    private static final int RETRY_DELAY_MULTIPLIER = 5;
+    //number of frames ignored after every change
+    private static final int COOLDOWN_FRAMES = 20;
+    //number of steps the quality is split into. The quality changes by one step at a time.
+    private static final int QUALITY_STEPS = 10;
+
+    private double targetFrameTime; //in milliseconds
+    private double minRenderScale;
+    private double maxRenderScale;
+    private double minDrawDistance;
+    private double maxDrawDistance;
+
+    private int qualityStep; //from 0 to QUALITY_STEPS
+    private int lastLoweredFrom; //the step that the quality was last lowered from, -1 if none
+    private double averageFrameTime;
+    private int slowFrames;
+    private int fastFrames;
+    private int cooldown;
+
+    //targetFps is the frame rate to aim for. The render scale is kept between minRenderScale and
+    //maxRenderScale, and the draw distance between minDrawDistance and maxDrawDistance (both as
+    //fractions of the camera's far clip distance).
+    public FrameGovernor(double targetFps, double minRenderScaleIn, double maxRenderScaleIn, double minDrawDistanceIn, double maxDrawDistanceIn)
+    {
+        if (targetFps <= 0)
+        {
+            System.err.println("WARNING at: FrameGovernor/constructor:\n\ttarget fps must be positive, using 60");
+            targetFps = 60;
+        }
+        targetFrameTime = 1000/targetFps;
+        minRenderScale = Math.max(0.1, Math.min(minRenderScaleIn, maxRenderScaleIn));
+        maxRenderScale = Math.max(minRenderScale, maxRenderScaleIn);
+        minDrawDistance = Math.max(0.05, Math.min(minDrawDistanceIn, maxDrawDistanceIn));
+        maxDrawDistance = Math.max(minDrawDistance, maxDrawDistanceIn);
+        qualityStep = QUALITY_STEPS;
+        lastLoweredFrom = -1;
+        averageFrameTime = targetFrameTime;
+        cooldown = COOLDOWN_FRAMES;
+    }
+
+    //records how long the last frame took to render, in milliseconds, and changes the quality if needed.
+    public void update(double frameTime)
+    {
+        if (cooldown > 0)
+        {
+            cooldown--;
+            averageFrameTime = frameTime;
+            return;
+        }
+        averageFrameTime += (frameTime - averageFrameTime)*SMOOTHING;
+
+        if (averageFrameTime > targetFrameTime*SLOW_THRESHOLD)
+        {
+            slowFrames++;
+            fastFrames = 0;
+        }
+        else if (averageFrameTime < targetFrameTime*FAST_THRESHOLD)
+        {
+            fastFrames++;
+            slowFrames = 0;
+        }
+        else
+        {
+            slowFrames = 0;
+            fastFrames = 0;
+        }
+
+        int fastFramesNeeded = (qualityStep + 1 == lastLoweredFrom)? FAST_FRAMES_NEEDED*RETRY_DELAY_MULTIPLIER : FAST_FRAMES_NEEDED;
+        if (slowFrames >= SLOW_FRAMES_NEEDED && qualityStep > 0)
+        {
+            lastLoweredFrom = qualityStep;
+            setQualityStep(qualityStep - 1);
+        }
+        else if (fastFrames >= fastFramesNeeded && qualityStep < QUALITY_STEPS)
+            setQualityStep(qualityStep + 1);
+    }
+
+    //sets the quality directly (clamped between 0 and 1, and rounded to the nearest step)
+    public void setQuality(double quality)
+    {
+        setQualityStep((int)Math.round(Math.max(0, Math.min(1, quality))*QUALITY_STEPS));
+    }
+
+    private void setQualityStep(int step)
+    {
+        qualityStep = step;
+        slowFrames = 0;
+        fastFrames = 0;
+        cooldown = COOLDOWN_FRAMES;
+    }
+
+    //#region getter methods
+    public double getQuality()
+    {
+        return (double)qualityStep/QUALITY_STEPS;
+    }
+
+    //fraction of the panel's resolution to render at
+    public double getRenderScale()
+    {
+        return minRenderScale + (maxRenderScale - minRenderScale)*getQuality();
+    }
+
+    //fraction of the camera's far clip distance to render up to
+    public double getDrawDistance()
+    {
+        return minDrawDistance + (maxDrawDistance - minDrawDistance)*getQuality();
+    }
+
+    public double getTargetFrameTime()
+    {
+        return targetFrameTime;
+    }
+
+    public double getAverageFrameTime()
+    {
+        return averageFrameTime;
+    }
+    //#endregion
+}
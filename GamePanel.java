@@ -30,12 +30,15 @@ public class GamePanel extends JPanel implements KeyListener, MouseListener, Foc
     private Terrain ground; //the terrain object which is just a mesh
     private GameObject runway1; //a runway game object 
     private GameObject runway2;
+    private CollisionWorld collisionWorld; //the objects that the airplane can crash into
+    private SceneRaycaster raycaster; //the meshes that rays can hit
 
     private Image flightDials; //the image of the flight dials used on the side of the panel
 
     private boolean paused; //is the game paused?
     private SidePanel sidePanel; //the panel on the side of the screen which has dials and buttons
     private Color skyColor = new Color(91, 215, 252);
+    private QualityPreset quality; //the graphics preset for this computer
 
 
     //creates game objects and rendering related objects. 
@@ -52,10 +55,27 @@ public class GamePanel extends JPanel implements KeyListener, MouseListener, Foc
         
         flightDials = Utils.makeImage(new File(FlightSimulator.RESOURCES_FOLDER, "AirplaneDials.png"));
         lighting = new Lighting(new Vector3(1, -1, 1), 30, 150);
-        gameCamera = new Camera(new Vector3(0, 0, -250), 100000, 100, 60);
+        quality = getQualityPreset();
+        gameCamera = new Camera(new Vector3(0, 0, -250), quality.getViewDistance(), 100, 60);
         airplane = new Airplane(this, gameCamera);
-        ground = new Terrain(-500, -200, 6000, 1000, 800, 300, 0.02, 30, new Color(1, 75, 148), new Color(15, 99, 0), new Color(200, 200, 210));
+        ground = quality.createTerrain();
+        //the airplane flies over the terrain, with the runways flat at the height the airplane starts at
+        addRunway(runway1.getMesh());
+        addRunway(runway2.getMesh());
+        airplane.setGround(ground.getHeightField());
+        //the runways are checked against the airplane's mesh, so a wing that hits one is a crash
+        collisionWorld = new CollisionWorld();
+        collisionWorld.add(runway1);
+        collisionWorld.add(runway2);
+        airplane.setCollisionWorld(collisionWorld);
         gameCamera.setOrbitControls(this, airplane, 1000, 10);
+        //rays can hit the ground, runways and airplane. The orbit camera uses them to stay above the ground.
+        raycaster = new SceneRaycaster();
+        raycaster.add(ground);
+        raycaster.add(runway1.getMesh());
+        raycaster.add(runway2.getMesh());
+        raycaster.add(airplane.getMesh());
+        gameCamera.getOrbitCamController().setRaycaster(raycaster);
     }
 
     //sets up the rendering panel and starts the rendering updates. 
@@ -78,9 +98,15 @@ public class GamePanel extends JPanel implements KeyListener, MouseListener, Foc
             renderingPanel.addMesh(runway1.getMesh());
             renderingPanel.addMesh(runway2.getMesh());
             renderingPanel.setFPSlimit(150);
+            //keep frames near 60fps by rendering at down to half of the preset's resolution and 40% of the draw distance
+            renderingPanel.setGovernor(new FrameGovernor(60, quality.getRenderScale()/2, quality.getRenderScale(), 0.4, 1));
+            //project the next frame on one thread while the last one is rasterized on another
+            renderingPanel.setPipelined(quality.getThreadCount() > 1);
             renderingPanel.start();
             add(renderingPanel);
             validate();
+            //lets JMX tools (like JConsole) watch the renderer, physics and terrain, and change some settings
+            SimulatorMBeans.register(renderingPanel, gameCamera, airplane, ground);
         }
     }
 
@@ -171,6 +197,39 @@ public class GamePanel extends JPanel implements KeyListener, MouseListener, Foc
         return "GamePanel";
     }
 
+    //makes the ground flat (at y = 0, where the airplane starts) under the rectangle that a runway covers
+    private void addRunway(Mesh runway)
+    {
+        VertexBuffer vertices = runway.getVertices();
+        double minX = Double.MAX_VALUE;
+        double minZ = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxZ = -Double.MAX_VALUE;
+        for (int i = 0; i < vertices.size(); i++)
+        {
+            minX = Math.min(minX, vertices.getX(i));
+            minZ = Math.min(minZ, vertices.getZ(i));
+            maxX = Math.max(maxX, vertices.getX(i));
+            maxZ = Math.max(maxZ, vertices.getZ(i));
+        }
+        ground.getHeightField().addFlatArea(minX, minZ, maxX, maxZ, 0);
+    }
+
+    //returns the user's quality preset. The first time the game is run (or after starting with -benchmark)
+    //the user doesn't have one yet, so the benchmark is run to choose one and it is saved.
+    private QualityPreset getQualityPreset()
+    {
+        if (FlightSimulator.user == null)
+            return new QualityBenchmark().run();
+        GameSettings settings = FlightSimulator.user.getSettings();
+        if (settings.quality == null)
+        {
+            settings.quality = new QualityBenchmark().run();
+            FlightSimulator.user.saveData();
+        }
+        return settings.quality;
+    }
+
     public void keyPressed(KeyEvent e) 
     {
         if (e.getKeyCode() == KeyEvent.VK_ESCAPE)
@@ -234,6 +293,12 @@ public class GamePanel extends JPanel implements KeyListener, MouseListener, Foc
         return paused;
     }
 
+    //the meshes that rays can be cast against, for things like line of sight checks
+    public SceneRaycaster getRaycaster()
+    {
+        return raycaster;
+    }
+
     public void keyTyped(KeyEvent e) {}
     public void keyReleased(KeyEvent e) {}
 
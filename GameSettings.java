@@ -32,12 +32,16 @@ public class GameSettings
     public double sensitivity;
     public boolean fog;
 
+    //graphics preset chosen by QualityBenchmark, null until the benchmark has been run.
+    //not changed by restoreDefaults() since it depends on the computer, not the user's preference.
+    public QualityPreset quality;
+
     public GameSettings()
     {
         restoreDefaults();
     }
 
-    public GameSettings(int thUp, int thDown, int pUp, int pDown, int rLeft, int rRight, int yLeft, int yRight, int b, double fv, double sens, boolean fg)
+    public GameSettings(int thUp, int thDown, int pUp, int pDown, int rLeft, int rRight, int yLeft, int yRight, int b, double fv, double sens, boolean fg, QualityPreset q)
     {
         throttleUp = thUp;
         throttleDown = thDown;
@@ -51,6 +55,7 @@ public class GameSettings
         fov = fv;
         sensitivity = sens;
         fog = fg;
+        quality = q;
     }
 
     //restores to defaults. 
@@ -74,6 +79,6 @@ public class GameSettings
     //formats the settings into a string for writing to the file
     public String toString()
     {
-        return String.format(" %d %d %d %d %d %d %d %d %d %f %f %b", throttleUp, throttleDown, pitchUp, pitchDown, rollLeft, rollRight, yawLeft, yawRight, brakes, fov, sensitivity, fog);
+        return String.format(" %d %d %d %d %d %d %d %d %d %f %f %b %s", throttleUp, throttleDown, pitchUp, pitchDown, rollLeft, rollRight, yawLeft, yawRight, brakes, fov, sensitivity, fog, (quality == null)? "none" : quality.name());
     }
 }
\ No newline at end of file
@@ -0,0 +1,84 @@
+import java.io.File;
+
+//runs the FlightModel without any window, as fast as the computer can step it. The airplane flies a
+//scripted set of maneuvers (FlightScript.MANEUVERS), and at the end the final state is
+//printed along with how much faster than real time the simulation ran. The flight carries on after a crash
+//(with the default parameters the script crashes after about 43 seconds), so long runs still measure the
+//speed of the physics, but most of their steps are spent sitting where the airplane crashed.
+//
+//The checksum is made from the exact bits of the final state, so two runs with the same arguments
+//should always print the same checksum, on any computer. If they don't, something in the flight model
+//isn't deterministic.
+//
+//usage: java HeadlessFlight [seconds to simulate] [physics steps per second] [euler or rk4 (see Integrator)] [recording file]
+//with a recording file, every step is recorded (see FlightRecorder), which can be read with FlightRecording.
+public class HeadlessFlight
+{
+    public static final double DEFAULT_SECONDS = 3600;
+    public static final double DEFAULT_RATE = 120; //the same as Airplane.DEFAULT_PHYSICS_RATE
+
+    public static void main(String[] args)
+    {
+        double seconds = DEFAULT_SECONDS;
+        double rate = DEFAULT_RATE;
+        Integrator integrator = Integrator.SEMI_IMPLICIT_EULER;
+        try
+        {
+            if (args.length > 0)
+                seconds = Double.parseDouble(args[0]);
+            if (args.length > 1)
+                rate = Double.parseDouble(args[1]);
+            if (args.length > 2 && args[2].equals("rk4"))
+                integrator = Integrator.RK4;
+            else if (args.length > 2 && !args[2].equals("euler"))
+            {
+                System.err.println("WARNING at: HeadlessFlight/main() method:\n\tunknown integrator: " + args[2]);
+                return;
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            System.err.println("WARNING at: HeadlessFlight/main() method:\n\tinvalid number, usage: java HeadlessFlight [seconds] [steps per second]");
+            return;
+        }
+        if (seconds <= 0 || rate <= 0)
+        {
+            System.err.println("WARNING at: HeadlessFlight/main() method:\n\tseconds and steps per second must be positive");
+            return;
+        }
+
+        FlightModel model = new FlightModel(new FlightParameters(), 1/rate);
+        model.setIntegrator(integrator);
+        ControlInput input = new ControlInput();
+        long steps = (long)Math.ceil(seconds*rate);
+        FlightRecorder recorder = null;
+        if (args.length > 3)
+        {
+            recorder = FlightRecorder.create(new File(args[3]), (int)Math.min(FlightRecorder.MAX_CAPACITY, steps), 1/rate);
+            if (recorder == null)
+                return;
+        }
+
+        long subSteps = 0;
+        long startTime = System.nanoTime();
+        for (long i = 0; i < steps; i++)
+        {
+            FlightScript.MANEUVERS.setControls(input, model.getTime());
+            model.step(input);
+            subSteps += model.getSubSteps();
+            if (recorder != null)
+                recorder.record(model, input);
+        }
+        double realTime = (System.nanoTime() - startTime)/1000000000.0;
+
+        System.out.printf("simulated %.1f s in %d steps of %.5f s (%d sub-steps, %s)%n", model.getTime(), model.getStepCount(), model.getDeltaTime(), subSteps, integrator);
+        System.out.println("position: " + model.getPosition());
+        System.out.println("velocity: " + model.getVelocity());
+        System.out.println("rotation: " + model.getRotation());
+        System.out.printf("throttle: %.3f  taken off: %b%n", model.getThrottle(), model.hasTakenOff());
+        if (model.hasCrashed())
+            System.out.printf("crashed at %.1f s (the flight carries on after a crash)%n", model.getCrashTime());
+        System.out.printf("real time: %.3f s (%.0fx real time, %.0f steps per second)%n", realTime, model.getTime()/realTime, steps/realTime);
+        System.out.printf("checksum: %016x%n", model.getChecksum());
+    }
+}
@@ -0,0 +1,196 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+//the height of the terrain's surface at any (x, z), for the physics. The heights of the terrain's grid are kept
+//in a compact array (floats, one per grid vertex), and the surface between them is the same two triangles per
+//grid cell that the Terrain mesh draws, so the airplane touches the ground where it can be seen. Each query
+//only looks at the three corners of one triangle, so it takes the same time anywhere on the terrain.
+//
+//Outside of the stored grid, the heights of the grid vertices are calculated from the same noise as the
+//terrain, so the ground carries on past the edges of the terrain that is loaded.
+//
+//Flat areas (like runways) can be added, which override the terrain inside of them.
+public class HeightField
+{
+    private float[] heights; //height of grid vertex (x, z) at index x*gridLength + z
+    private int gridWidth;
+    private int gridLength;
+    private double gridInterval; //distance between neighbouring grid vertices
+    private double originX; //position of grid vertex (0, 0)
+    private double originZ;
+
+    //the values used to make the terrain's heights, for the vertices outside of the grid (see computeHeight())
+    private double baseHeight;
+    private double waterLevel;
+    private double frequency;
+    private double amplitude;
+
+    //minX, minZ, maxX, maxZ and height of each flat area, one after the other
+    private double[] flatAreas;
+    private int flatAreaCount;
+
+    public HeightField(double baseHeightIn, double waterLevelIn, double gridIntervalIn, int gridLengthIn, int gridWidthIn, double frequencyIn, double amplitudeIn, double originXIn, double originZIn)
+    {
+        baseHeight = baseHeightIn;
+        waterLevel = waterLevelIn;
+        gridInterval = gridIntervalIn;
+        gridLength = gridLengthIn;
+        gridWidth = gridWidthIn;
+        frequency = frequencyIn;
+        amplitude = amplitudeIn;
+        originX = originXIn;
+        originZ = originZIn;
+        flatAreas = new double[0];
+
+        heights = new float[gridWidth*gridLength];
+        for (int x = 0; x < gridWidth; x++)
+        {
+            for (int z = 0; z < gridLength; z++)
+                heights[x*gridLength + z] = (float)computeHeight(x, z);
+        }
+    }
+
+    //calculates the height of grid vertex (x, z) from the noise. Used by the Terrain for it's vertices, and
+    //for vertices outside of the stored grid. The physics collides with these heights, so they have to be the
+    //same on every computer (see FlightModel): the cube is two multiplies rather than Math.pow, which may
+    //use a platform specific version. The rest of the ground math (including SimplexNoise) is only +, -, *, /,
+    //floor and sqrt, which are exact.
+    public double computeHeight(int x, int z)
+    {
+        double height = SimplexNoise.noise(x*frequency, z*frequency)*amplitude;
+        return Math.max(baseHeight + height*height*height, baseHeight+waterLevel);
+    }
+
+    //returns the height of grid vertex (x, z), which can be outside of the stored grid
+    public double getVertexHeight(int x, int z)
+    {
+        if (x < 0 || z < 0 || x >= gridWidth || z >= gridLength)
+            return computeHeight(x, z);
+        return heights[x*gridLength + z];
+    }
+
+    //makes the ground flat at "height" inside of the rectangle from (minX, minZ) to (maxX, maxZ)
+    public void addFlatArea(double minX, double minZ, double maxX, double maxZ, double height)
+    {
+        double[] newFlatAreas = new double[(flatAreaCount+1)*5];
+        System.arraycopy(flatAreas, 0, newFlatAreas, 0, flatAreaCount*5);
+        newFlatAreas[flatAreaCount*5] = minX;
+        newFlatAreas[flatAreaCount*5+1] = minZ;
+        newFlatAreas[flatAreaCount*5+2] = maxX;
+        newFlatAreas[flatAreaCount*5+3] = maxZ;
+        newFlatAreas[flatAreaCount*5+4] = height;
+        flatAreas = newFlatAreas;
+        flatAreaCount++;
+    }
+
+    //returns the index of the flat area that (x, z) is in, or -1 if it isn't in one
+    private int findFlatArea(double x, double z)
+    {
+        for (int i = 0; i < flatAreaCount; i++)
+        {
+            if (x >= flatAreas[i*5] && z >= flatAreas[i*5+1] && x <= flatAreas[i*5+2] && z <= flatAreas[i*5+3])
+                return i;
+        }
+        return -1;
+    }
+
+    //returns the height of the ground at (x, z)
+    public double getHeight(double x, double z)
+    {
+        int flatArea = findFlatArea(x, z);
+        if (flatArea >= 0)
+            return flatAreas[flatArea*5+4];
+
+        double gridX = (x - originX)/gridInterval;
+        double gridZ = (z - originZ)/gridInterval;
+        int cellX = (int)Math.floor(gridX);
+        int cellZ = (int)Math.floor(gridZ);
+        double u = gridX - cellX; //how far across the cell (x, z) is, from 0 to 1
+        double v = gridZ - cellZ;
+
+        //each cell is split into two triangles along the diagonal from corner (1, 0) to corner (0, 1),
+        //the same as the terrain's triangles
+        if (u + v <= 1)
+        {
+            double h00 = getVertexHeight(cellX, cellZ);
+            return h00 + (getVertexHeight(cellX+1, cellZ) - h00)*u + (getVertexHeight(cellX, cellZ+1) - h00)*v;
+        }
+        double h11 = getVertexHeight(cellX+1, cellZ+1);
+        return h11 + (getVertexHeight(cellX, cellZ+1) - h11)*(1-u) + (getVertexHeight(cellX+1, cellZ) - h11)*(1-v);
+    }
+
+    //sets "normal" to the upwards facing normal of the ground at (x, z), and returns it
+    public Vector3 getNormal(double x, double z, Vector3 normal)
+    {
+        if (findFlatArea(x, z) >= 0)
+            return normal.set(0, 1, 0);
+
+        double gridX = (x - originX)/gridInterval;
+        double gridZ = (z - originZ)/gridInterval;
+        int cellX = (int)Math.floor(gridX);
+        int cellZ = (int)Math.floor(gridZ);
+
+        //the rise of the triangle across one grid interval in the x and z directions
+        double riseX;
+        double riseZ;
+        if ((gridX - cellX) + (gridZ - cellZ) <= 1)
+        {
+            double h00 = getVertexHeight(cellX, cellZ);
+            riseX = getVertexHeight(cellX+1, cellZ) - h00;
+            riseZ = getVertexHeight(cellX, cellZ+1) - h00;
+        }
+        else
+        {
+            double h11 = getVertexHeight(cellX+1, cellZ+1);
+            riseX = h11 - getVertexHeight(cellX, cellZ+1);
+            riseZ = h11 - getVertexHeight(cellX+1, cellZ);
+        }
+        return normal.set(-riseX, gridInterval, -riseZ).normalize();
+    }
+
+    //writes the values that the height field was made from, and it's flat areas, so read() can make the same one
+    //again. The heights aren't written, since they are calculated from the noise.
+    public void write(DataOutput out) throws IOException
+    {
+        out.writeDouble(baseHeight);
+        out.writeDouble(waterLevel);
+        out.writeDouble(gridInterval);
+        out.writeInt(gridLength);
+        out.writeInt(gridWidth);
+        out.writeDouble(frequency);
+        out.writeDouble(amplitude);
+        out.writeDouble(originX);
+        out.writeDouble(originZ);
+        out.writeInt(flatAreaCount);
+        for (int i = 0; i < flatAreaCount*5; i++)
+            out.writeDouble(flatAreas[i]);
+    }
+
+    //makes a height field written by write()
+    public static HeightField read(DataInput in) throws IOException
+    {
+        HeightField heightField = new HeightField(in.readDouble(), in.readDouble(), in.readDouble(), in.readInt(), in.readInt(), in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+        int flatAreaCount = in.readInt();
+        for (int i = 0; i < flatAreaCount; i++)
+            heightField.addFlatArea(in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble());
+        return heightField;
+    }
+
+    //#region getter methods
+    public double getGridInterval()
+    {
+        return gridInterval;
+    }
+
+    public double getOriginX()
+    {
+        return originX;
+    }
+
+    public double getOriginZ()
+    {
+        return originZ;
+    }
+    //#endregion
+}
@@ -0,0 +1,222 @@
+import java.util.Arrays;
+
+//culls terrain tiles that are hidden behind nearer parts of the terrain, before any of their triangles are
+//projected. Because the terrain is a heightfield, this can be done with a "horizon":
+//Looking out from the camera in some horizontal direction, the terrain seen so far reaches up to some highest
+//slope (height above the camera divided by horizontal distance). Anything further away in that direction with
+//a lower slope is below that horizon, so the ray from the camera to it has to pass under the terrain, meaning
+//it is hidden.
+//Each frame the tiles are swept from front to back, keeping the highest slope seen so far for a set of
+//horizontal directions around the camera, and any tile that is completely below the horizon is dropped.
+//Tiles only ever use the lowest point of a nearer tile (as a lower bound of how high it reaches) and the
+//highest point of themselves, so a visible tile is never culled.
+public class HorizonCuller
+{
+    //number of directions around the camera that the horizon is kept for
+    private static final int DIRECTION_COUNT = 2048;
+
+    private Terrain terrain;
+
+    //highest slope of the terrain found so far in each direction
+    private double[] horizon = new double[DIRECTION_COUNT];
+
+    //per tile values for the current frame
+    private double[] minDistance; //horizontal distance from the camera to the closest point of the tile
+    private double[] maxDistance; //horizontal distance to the furthest point of the tile
+    private double[] startDirection; //the tile covers the directions from startDirection to endDirection
+    private double[] endDirection;
+    private long[] sortKeys; //distance and index of each tile packed into a long, for sorting front to back
+    private double[] cornersX = new double[4]; //scratch arrays for the corners of a tile
+    private double[] cornersZ = new double[4];
+
+    //tiles which were found visible, but aren't part of the horizon yet because there might still be tiles
+    //closer than them that haven't been checked.
+    private int[] pending;
+    private int pendingCount;
+
+    //the result of the last call to cull()
+    private int[] visibleTiles;
+    private int visibleTileCount;
+    private int culledTileCount;
+
+    public HorizonCuller(Terrain terrainIn)
+    {
+        terrain = terrainIn;
+        int tileCount = terrain.getTileCount();
+        minDistance = new double[tileCount];
+        maxDistance = new double[tileCount];
+        startDirection = new double[tileCount];
+        endDirection = new double[tileCount];
+        sortKeys = new long[tileCount];
+        pending = new int[tileCount];
+        visibleTiles = new int[tileCount];
+    }
+
+    //finds the tiles of the terrain that could be visible from the camera position, within the far clip distance.
+    //returns the number of visible tiles, which can be read with getVisibleTile()
+    public int cull(Vector3 camPos, double farClipDistance)
+    {
+        int tileCount = terrain.getTileCount();
+        visibleTileCount = 0;
+        culledTileCount = 0;
+        pendingCount = 0;
+        Arrays.fill(horizon, Double.NEGATIVE_INFINITY);
+
+        //the horizon only works if the camera is above the terrain. If it's below (or off the edge of the
+        //terrain, where there is nothing to stop it looking underneath) just return every tile in range.
+        double groundHeight = terrain.getCellMaxHeight(camPos.x, camPos.z);
+        boolean useHorizon = !Double.isNaN(groundHeight) && camPos.y > groundHeight;
+
+        //work out the distances of each tile, and sort the ones in range from front to back
+        int tilesInRange = 0;
+        for (int tile = 0; tile < tileCount; tile++)
+        {
+            double minX = terrain.getTileMinX(tile) - camPos.x;
+            double minZ = terrain.getTileMinZ(tile) - camPos.z;
+            double maxX = terrain.getTileMaxX(tile) - camPos.x;
+            double maxZ = terrain.getTileMaxZ(tile) - camPos.z;
+            double closestX = Math.max(0, Math.max(minX, -maxX));
+            double closestZ = Math.max(0, Math.max(minZ, -maxZ));
+            double furthestX = Math.max(-minX, maxX);
+            double furthestZ = Math.max(-minZ, maxZ);
+            minDistance[tile] = Math.sqrt(closestX*closestX + closestZ*closestZ);
+            maxDistance[tile] = Math.sqrt(furthestX*furthestX + furthestZ*furthestZ);
+
+            if (minDistance[tile] < farClipDistance)
+            {
+                if (minDistance[tile] > 0)
+                    calculateDirections(tile, minX, minZ, maxX, maxZ);
+                sortKeys[tilesInRange++] = ((long)Float.floatToIntBits((float)minDistance[tile]) << 32) | tile;
+            }
+            else
+                culledTileCount++;
+        }
+        Arrays.sort(sortKeys, 0, tilesInRange);
+
+        for (int i = 0; i < tilesInRange; i++)
+        {
+            int tile = (int)sortKeys[i];
+            if (!useHorizon || minDistance[tile] == 0)
+            {
+                //tiles that the camera is above are always visible, and can't be used as part of the horizon
+                visibleTiles[visibleTileCount++] = tile;
+                continue;
+            }
+
+            //add every tile that is completely closer than this one to the horizon
+            for (int j = 0; j < pendingCount; j++)
+            {
+                if (maxDistance[pending[j]] <= minDistance[tile])
+                {
+                    addToHorizon(pending[j], camPos.y);
+                    pending[j--] = pending[--pendingCount];
+                }
+            }
+
+            if (isBelowHorizon(tile, camPos.y))
+                culledTileCount++;
+            else
+            {
+                visibleTiles[visibleTileCount++] = tile;
+                pending[pendingCount++] = tile;
+            }
+        }
+        return visibleTileCount;
+    }
+
+    //is the highest point the tile could reach below the horizon in every direction the tile covers?
+    private boolean isBelowHorizon(int tile, double camY)
+    {
+        double heightDifference = terrain.getTileMaxY(tile) - camY;
+        double maxSlope = (heightDifference >= 0)? heightDifference/minDistance[tile] : heightDifference/maxDistance[tile];
+
+        int first = (int)Math.floor(startDirection[tile]);
+        int last = (int)Math.floor(endDirection[tile]);
+        for (int direction = first; direction <= last; direction++)
+        {
+            if (horizon[(direction + DIRECTION_COUNT) % DIRECTION_COUNT] <= maxSlope)
+                return false;
+        }
+        return true;
+    }
+
+    //raises the horizon to the lowest point the tile could reach, in the directions that are completely
+    //covered by the tile
+    private void addToHorizon(int tile, double camY)
+    {
+        double heightDifference = terrain.getTileMinY(tile) - camY;
+        double minSlope = (heightDifference < 0)? heightDifference/minDistance[tile] : heightDifference/maxDistance[tile];
+
+        int first = (int)Math.ceil(startDirection[tile]);
+        int last = (int)Math.floor(endDirection[tile]) - 1;
+        for (int direction = first; direction <= last; direction++)
+        {
+            int index = (direction + DIRECTION_COUNT) % DIRECTION_COUNT;
+            horizon[index] = Math.max(horizon[index], minSlope);
+        }
+    }
+
+    //finds the range of directions that the tile covers (as seen from the camera), measured in horizon indexes.
+    //the parameters are the tile's corners relative to the camera. The start direction may be negative
+    //and the end direction may be past DIRECTION_COUNT, when the range wraps around.
+    private void calculateDirections(int tile, double minX, double minZ, double maxX, double maxZ)
+    {
+        double center = direction((minX + maxX)/2, (minZ + maxZ)/2);
+        double start = 0;
+        double end = 0;
+        cornersX[0] = minX; cornersZ[0] = minZ;
+        cornersX[1] = maxX; cornersZ[1] = minZ;
+        cornersX[2] = minX; cornersZ[2] = maxZ;
+        cornersX[3] = maxX; cornersZ[3] = maxZ;
+        for (int i = 0; i < 4; i++)
+        {
+            //direction relative to the center, wrapped to between -half and half of a full turn
+            double relative = direction(cornersX[i], cornersZ[i]) - center;
+            if (relative > DIRECTION_COUNT/2)
+                relative -= DIRECTION_COUNT;
+            else if (relative < -DIRECTION_COUNT/2)
+                relative += DIRECTION_COUNT;
+            start = Math.min(start, relative);
+            end = Math.max(end, relative);
+        }
+        startDirection[tile] = center + start;
+        endDirection[tile] = center + end;
+    }
+
+    //returns the horizontal direction of (x, z) as a value from 0 to DIRECTION_COUNT. This is a "diamond angle",
+    //which increases with the actual angle but avoids the slow Math.atan2 function.
+    private static double direction(double x, double z)
+    {
+        double diamondAngle; //0 to 4 for a full turn
+        if (x == 0 && z == 0)
+            diamondAngle = 0;
+        else if (z >= 0)
+            diamondAngle = (x >= 0)? z/(x + z) : 1 - x/(-x + z);
+        else
+            diamondAngle = (x < 0)? 2 - z/(-x - z) : 3 + x/(x - z);
+        return diamondAngle*DIRECTION_COUNT/4;
+    }
+
+    //#region getter methods
+    public Terrain getTerrain()
+    {
+        return terrain;
+    }
+
+    public int getVisibleTile(int index)
+    {
+        return visibleTiles[index];
+    }
+
+    public int getVisibleTileCount()
+    {
+        return visibleTileCount;
+    }
+
+    //number of tiles dropped by the last call to cull(), either for being behind the horizon or out of range
+    public int getCulledTileCount()
+    {
+        return culledTileCount;
+    }
+    //#endregion
+}
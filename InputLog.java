@@ -0,0 +1,174 @@
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+//logs the controls of a flight, so the flight can be flown again exactly the same way by FlightReplay. The
+//FlightModel is deterministic, so the parameters, the ground and the controls of every step are all that is
+//needed to reproduce a flight, and the controls only change a few times a second at most. So rather than
+//saving the controls of every step, only the changes are saved (run length encoding): the number of steps since
+//the last change, and the new controls, usually 3 bytes per change. An hour of flying is a few kilobytes.
+//
+//Every SYNC_INTERVAL seconds the checksum of the model is saved too (see FlightModel.getChecksum()), so a replay
+//can check that it is still flying the same way, and where it went wrong if it isn't. The file is flushed
+//after each of these, so at most that much of the flight is lost if the game is closed without closing the log.
+//
+//file layout (big endian):
+//  int magic (MAGIC), int version (VERSION), double seconds per step, byte integrator (0 = semi-implicit euler,
+//  1 = rk4), FlightParameters.write(), boolean has ground, HeightField.write() if it has ground
+//  then events, each one is the number of steps since the last event (since the start of the flight for the
+//  first event of a flight) as a variable length int (7 bits per byte, low bits first, the top bit set on every
+//  byte but the last), then an unsigned short:
+//    - the controls used from that step on (ControlInput.toBits(), plus CRASH if the airplane was crashed into
+//      something other than the ground before the step)
+//    - SYNC, followed by a long: the checksum of the model after that many steps
+//    - RESET: the flight is over, and a new one starts with a new model from the next event
+public class InputLog
+{
+    public static final int MAGIC = 0x464C5449; //"FLTI"
+    public static final int VERSION = 1;
+    //seconds between the checksums that are saved
+    public static final double SYNC_INTERVAL = 10;
+
+    //the event types, in place of the controls
+    public static final int SYNC = 0xFFFF;
+    public static final int RESET = 0xFFFE;
+    //a bit of the controls: the model was crashed (FlightModel.crash()) before the step
+    public static final int CRASH = 1 << 15;
+
+    private DataOutputStream out;
+    private File file;
+    private long syncInterval; //steps between the checksums
+    private long lastEventStep; //the step of the last event
+    private int lastBits; //the controls of the last change, -1 before the first one of a flight
+
+    private InputLog(DataOutputStream outIn, File fileIn, double deltaTime)
+    {
+        out = outIn;
+        file = fileIn;
+        syncInterval = Math.max(1, (long)Math.ceil(SYNC_INTERVAL/deltaTime));
+        lastBits = -1;
+    }
+
+    //creates (or replaces) "file" and writes the parts of "model" that don't change during the flight: it's step
+    //length, integrator, parameters and ground. Should be called before the model's first step.
+    //Returns null if the file can't be made.
+    public static InputLog create(File file, FlightModel model)
+    {
+        try
+        {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeDouble(model.getDeltaTime());
+            out.writeByte((model.getIntegrator() == Integrator.RK4)? 1 : 0);
+            model.getParameters().write(out);
+            out.writeBoolean(model.getGround() != null);
+            if (model.getGround() != null)
+                model.getGround().write(out);
+            out.flush();
+            return new InputLog(out, file, model.getDeltaTime());
+        }
+        catch (IOException e)
+        {
+            System.err.println("ERROR at: InputLog/create() method:\n\tcould not create input log " + file.getAbsolutePath() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    //logs the controls for the model's next step, and whether the model is about to be crashed (see
+    //FlightModel.crash()). Should be called before each step. Only writes anything if the controls have changed,
+    //or if it is time for a checksum.
+    public void record(FlightModel model, ControlInput input, boolean crash)
+    {
+        if (out == null)
+            return;
+        long step = model.getStepCount();
+        int bits = input.toBits() | (crash? CRASH : 0);
+        try
+        {
+            if (step > 0 && step % syncInterval == 0)
+            {
+                writeEvent(step, SYNC);
+                out.writeLong(model.getChecksum());
+                out.flush();
+            }
+            if (bits != lastBits)
+            {
+                writeEvent(step, bits);
+                lastBits = bits;
+            }
+        }
+        catch (IOException e)
+        {
+            fail(e);
+        }
+    }
+
+    //ends the flight, for when the model is replaced by a new one (like when the airplane is reset).
+    //The checksum of the last model is saved, so the end of it's flight can be checked too.
+    public void restart(FlightModel lastModel)
+    {
+        if (out == null)
+            return;
+        try
+        {
+            writeEvent(lastModel.getStepCount(), SYNC);
+            out.writeLong(lastModel.getChecksum());
+            writeEvent(lastModel.getStepCount(), RESET);
+            out.flush();
+        }
+        catch (IOException e)
+        {
+            fail(e);
+        }
+        lastEventStep = 0;
+        lastBits = -1;
+    }
+
+    //saves the checksum of the model at the end of the flight, and closes the file
+    public void close(FlightModel lastModel)
+    {
+        if (out == null)
+            return;
+        try
+        {
+            writeEvent(lastModel.getStepCount(), SYNC);
+            out.writeLong(lastModel.getChecksum());
+            out.close();
+        }
+        catch (IOException e)
+        {
+            System.err.println("ERROR at: InputLog/close() method:\n\tcould not finish input log " + file.getAbsolutePath() + ": " + e.getMessage());
+        }
+        out = null;
+    }
+
+    //writes the steps since the last event, then the event
+    private void writeEvent(long step, int event) throws IOException
+    {
+        long steps = step - lastEventStep;
+        while (steps >= 0x80)
+        {
+            out.writeByte((int)(steps & 0x7F) | 0x80);
+            steps >>>= 7;
+        }
+        out.writeByte((int)steps);
+        out.writeShort(event);
+        lastEventStep = step;
+    }
+
+    //stops logging after a write fails, since the rest of the log couldn't be replayed anyway
+    private void fail(IOException e)
+    {
+        System.err.println("ERROR at: InputLog/record() method:\n\tcould not write to input log " + file.getAbsolutePath() + ", logging stopped: " + e.getMessage());
+        try
+        {
+            out.close();
+        }
+        catch (IOException closeException)
+        {}
+        out = null;
+    }
+}
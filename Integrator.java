@@ -0,0 +1,74 @@
+//moves a FlightModel forward by one sub-step (see FlightModel.step()). The model has already applied the
+//controls for the sub-step, and getSubStepTime() is how long the sub-step is.
+//An integrator shouldn't keep any state between calls, so the same one can be used by many models at once.
+public interface Integrator
+{
+    public void integrate(FlightModel model, ControlInput input);
+
+    //the airplane's original physics: each force changes the velocity in turn, then the position is moved
+    //by the new velocity. Fast and stable, but the result depends on the sub-step length.
+    //note that the order matters, so be careful before making changes.
+    public static final Integrator SEMI_IMPLICIT_EULER = new Integrator()
+    {
+        public void integrate(FlightModel model, ControlInput input)
+        {
+            model.calculateForwardV();
+            model.applyAerodynamicEffect();
+            model.applyYawRollEffect(input);
+            model.applyGravity();
+            model.applyLift();
+            model.applyDrag();
+            model.applyAngularDrag();
+            model.updateOrientation();
+            model.updatePosition();
+            model.brakes(input);
+            model.applyThrust(model.getThrottle()*model.getParameters().maxEnginePower);
+        }
+
+        public String toString()
+        {
+            return "semi-implicit euler";
+        }
+    };
+
+    //fourth order Runge-Kutta for the position and velocity: the forces are measured four times across the
+    //sub-step and averaged, so the result changes much less with the sub-step length. The rotation is still
+    //moved the same way as SEMI_IMPLICIT_EULER, with the orientation held still while the forces are measured.
+    public static final Integrator RK4 = new Integrator()
+    {
+        public void integrate(FlightModel model, ControlInput input)
+        {
+            double h = model.getSubStepTime();
+            double scale = 1/FlightModel.REFERENCE_TICK; //converts velocity to units per second
+            model.calculateForwardV();
+
+            Vector3 position = model.getPosition();
+            Vector3 velocity = model.getVelocity();
+            Vector3 acceleration1 = model.getAcceleration(position, velocity);
+            Vector3 velocity2 = Vector3.add(velocity, Vector3.multiply(acceleration1, h/2));
+            Vector3 acceleration2 = model.getAcceleration(Vector3.add(position, Vector3.multiply(velocity, scale*h/2)), velocity2);
+            Vector3 velocity3 = Vector3.add(velocity, Vector3.multiply(acceleration2, h/2));
+            Vector3 acceleration3 = model.getAcceleration(Vector3.add(position, Vector3.multiply(velocity2, scale*h/2)), velocity3);
+            Vector3 velocity4 = Vector3.add(velocity, Vector3.multiply(acceleration3, h));
+            Vector3 acceleration4 = model.getAcceleration(Vector3.add(position, Vector3.multiply(velocity3, scale*h)), velocity4);
+
+            //weighted average of the four measurements: (1 + 2 + 2 + 1)/6
+            Vector3 averageVelocity = Vector3.add(Vector3.add(velocity, velocity4), Vector3.multiply(Vector3.add(velocity2, velocity3), 2));
+            Vector3 averageAcceleration = Vector3.add(Vector3.add(acceleration1, acceleration4), Vector3.multiply(Vector3.add(acceleration2, acceleration3), 2));
+
+            //the rotation, using the velocity at the start of the sub-step
+            model.turnTowardsVelocity(model.getCorrectionFactor(velocity));
+            model.applyYawRollEffect(input);
+            model.applyAngularDrag();
+            model.updateOrientation();
+
+            model.moveTo(Vector3.add(position, Vector3.multiply(averageVelocity, scale*h/6)), Vector3.add(velocity, Vector3.multiply(averageAcceleration, h/6)));
+            model.brakes(input);
+        }
+
+        public String toString()
+        {
+            return "rk4";
+        }
+    };
+}
@@ -0,0 +1,106 @@
+//4x4 matrix used for the renderer's view and perspective transforms. Points are treated as
+//(x, y, z, 1), so unlike Matrix3x3 these matrices can translate as well as rotate and scale, and the
+//perspective matrix can put the depth of a point into w for the perspective divide.
+public class Matrix4x4
+{
+    //R means row and C means column. R2C3 would be second row third column.
+    public final double R1C1, R1C2, R1C3, R1C4, R2C1, R2C2, R2C3, R2C4, R3C1, R3C2, R3C3, R3C4, R4C1, R4C2, R4C3, R4C4;
+
+    //constructor which accepts all 16 values of the matrix, row by row.
+    public Matrix4x4
+    (
+        double r1c1, double r1c2, double r1c3, double r1c4,
+        double r2c1, double r2c2, double r2c3, double r2c4,
+        double r3c1, double r3c2, double r3c3, double r3c4,
+        double r4c1, double r4c2, double r4c3, double r4c4
+    )
+    {
+        R1C1 = r1c1;    R1C2 = r1c2;    R1C3 = r1c3;    R1C4 = r1c4;
+        R2C1 = r2c1;    R2C2 = r2c2;    R2C3 = r2c3;    R2C4 = r2c4;
+        R3C1 = r3c1;    R3C2 = r3c2;    R3C3 = r3c3;    R3C4 = r3c4;
+        R4C1 = r4c1;    R4C2 = r4c2;    R4C3 = r4c3;    R4C4 = r4c4;
+    }
+
+    //formats the values in the matrix into a string.
+    public String toString()
+    {
+        return String.format("\n|%10.2f%10.2f%10.2f%10.2f |\n|%10.2f%10.2f%10.2f%10.2f |\n|%10.2f%10.2f%10.2f%10.2f |\n|%10.2f%10.2f%10.2f%10.2f |\n",
+        R1C1, R1C2, R1C3, R1C4, R2C1, R2C2, R2C3, R2C4, R3C1, R3C2, R3C3, R3C4, R4C1, R4C2, R4C3, R4C4);
+    }
+
+    //#region ----------- static methods -------------
+
+    //applies matrix m1 to matrix m2 and returns the resulting matrix. order matters!
+    public static Matrix4x4 multiply(Matrix4x4 m1, Matrix4x4 m2)
+    {
+        return new Matrix4x4
+        (
+            m1.R1C1*m2.R1C1 + m1.R1C2*m2.R2C1 + m1.R1C3*m2.R3C1 + m1.R1C4*m2.R4C1,
+            m1.R1C1*m2.R1C2 + m1.R1C2*m2.R2C2 + m1.R1C3*m2.R3C2 + m1.R1C4*m2.R4C2,
+            m1.R1C1*m2.R1C3 + m1.R1C2*m2.R2C3 + m1.R1C3*m2.R3C3 + m1.R1C4*m2.R4C3,
+            m1.R1C1*m2.R1C4 + m1.R1C2*m2.R2C4 + m1.R1C3*m2.R3C4 + m1.R1C4*m2.R4C4,
+
+            m1.R2C1*m2.R1C1 + m1.R2C2*m2.R2C1 + m1.R2C3*m2.R3C1 + m1.R2C4*m2.R4C1,
+            m1.R2C1*m2.R1C2 + m1.R2C2*m2.R2C2 + m1.R2C3*m2.R3C2 + m1.R2C4*m2.R4C2,
+            m1.R2C1*m2.R1C3 + m1.R2C2*m2.R2C3 + m1.R2C3*m2.R3C3 + m1.R2C4*m2.R4C3,
+            m1.R2C1*m2.R1C4 + m1.R2C2*m2.R2C4 + m1.R2C3*m2.R3C4 + m1.R2C4*m2.R4C4,
+
+            m1.R3C1*m2.R1C1 + m1.R3C2*m2.R2C1 + m1.R3C3*m2.R3C1 + m1.R3C4*m2.R4C1,
+            m1.R3C1*m2.R1C2 + m1.R3C2*m2.R2C2 + m1.R3C3*m2.R3C2 + m1.R3C4*m2.R4C2,
+            m1.R3C1*m2.R1C3 + m1.R3C2*m2.R2C3 + m1.R3C3*m2.R3C3 + m1.R3C4*m2.R4C3,
+            m1.R3C1*m2.R1C4 + m1.R3C2*m2.R2C4 + m1.R3C3*m2.R3C4 + m1.R3C4*m2.R4C4,
+
+            m1.R4C1*m2.R1C1 + m1.R4C2*m2.R2C1 + m1.R4C3*m2.R3C1 + m1.R4C4*m2.R4C1,
+            m1.R4C1*m2.R1C2 + m1.R4C2*m2.R2C2 + m1.R4C3*m2.R3C2 + m1.R4C4*m2.R4C2,
+            m1.R4C1*m2.R1C3 + m1.R4C2*m2.R2C3 + m1.R4C3*m2.R3C3 + m1.R4C4*m2.R4C3,
+            m1.R4C1*m2.R1C4 + m1.R4C2*m2.R2C4 + m1.R4C3*m2.R3C4 + m1.R4C4*m2.R4C4
+        );
+    }
+
+    //returns a matrix which moves points by (x, y, z)
+    public static Matrix4x4 translation(double x, double y, double z)
+    {
+        return new Matrix4x4
+        (
+            1, 0, 0, x,
+            0, 1, 0, y,
+            0, 0, 1, z,
+            0, 0, 0, 1
+        );
+    }
+
+    //returns a matrix which preforms the same rotation as a 3x3 rotation matrix
+    public static Matrix4x4 rotation(Matrix3x3 matrix)
+    {
+        return new Matrix4x4
+        (
+            matrix.R1C1, matrix.R1C2, matrix.R1C3, 0,
+            matrix.R2C1, matrix.R2C2, matrix.R2C3, 0,
+            matrix.R3C1, matrix.R3C2, matrix.R3C3, 0,
+            0, 0, 0, 1
+        );
+    }
+
+    //returns a perspective matrix for a camera looking down the positive z axis (the way the view matrix
+    //leaves the camera) with a horizontal field of view of "fov" radians and a width/height "aspectRatio".
+    //After the matrix is applied, w is the depth of the point in front of the camera, and dividing
+    //x, y and z by w gives normalized coordinates that are between -1 and 1 for points inside the view:
+    //x from left to right, y from bottom to top and z from the near to the far clip distance.
+    public static Matrix4x4 perspective(double fov, double aspectRatio, double nearClipDistance, double farClipDistance)
+    {
+        double scaleX = 1/Math.tan(fov/2);
+        double scaleY = scaleX*aspectRatio;
+        double depthScale = (farClipDistance + nearClipDistance)/(farClipDistance - nearClipDistance);
+        double depthOffset = -2*farClipDistance*nearClipDistance/(farClipDistance - nearClipDistance);
+
+        return new Matrix4x4
+        (
+            scaleX, 0, 0, 0,
+            0, scaleY, 0, 0,
+            0, 0, depthScale, depthOffset,
+            0, 0, 1, 0
+        );
+    }
+
+    //#endregion
+}
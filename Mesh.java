@@ -15,7 +15,8 @@ public class Mesh
 {
     //a collection of all the triangles in the mesh.
     private ArrayList<Triangle> triangles;
-    private ArrayList<Vector3> vertices;
+    //the coordinates of every vertex in the mesh. triangles refer to vertices by their index in this buffer.
+    private VertexBuffer vertices;
 
     //the color of all the triangles of the mesh.
     private Color baseColor;
@@ -43,6 +44,8 @@ public class Mesh
     public Mesh(String modelFileName, String textureFileName, Vector3 modelOffsetAmount, EulerAngle modelOffsetRotation, double scale, boolean shaded, boolean shouldBackFaceCull)
     {
         long start = System.nanoTime();
+        FlightEvents.MeshLoad event = new FlightEvents.MeshLoad();
+        event.begin();
         texture = null;
         try
         {
@@ -56,7 +59,7 @@ public class Mesh
         if (texture != null)
             textureRaster = texture.getData();
 
-        vertices = new ArrayList<Vector3>();
+        vertices = new VertexBuffer();
         triangles = new ArrayList<Triangle>();
         shading = shaded;
         backFaceCull = shouldBackFaceCull;
@@ -72,15 +75,18 @@ public class Mesh
             System.err.println("ERROR at: Mesh/constructor:\n\tUnsupported 3d model file type. Please use .obj files");
         }
         System.out.println("mesh created: " + modelFileName + " in " + (System.nanoTime() - start)/1000000 + "ms\n\t- " + triangles.size() + " triangles");
+        commitLoadEvent(event, modelFileName, textureFileName);
     }
 
     //a second constructor for models without a texture file
     public Mesh(String modelFileName, Color color, Vector3 modelOffsetAmount, EulerAngle modelOffsetRotation, double scale, boolean shaded, boolean shouldBackFaceCull)
     {
         long start = System.nanoTime();
+        FlightEvents.MeshLoad event = new FlightEvents.MeshLoad();
+        event.begin();
         texture = null;
         textureRaster = null;
-        vertices = new ArrayList<Vector3>();
+        vertices = new VertexBuffer();
         triangles = new ArrayList<Triangle>();
         shading = shaded;
         backFaceCull = shouldBackFaceCull;
@@ -96,6 +102,22 @@ public class Mesh
             System.err.println("ERROR at: Mesh/constructor:\n\tUnsupported 3d model file type. Please use .obj files");
         }
         System.out.println("mesh created: " + modelFileName + " in " + (System.nanoTime() - start)/1000000 + "ms\n\t- " + triangles.size() + " triangles");
+        commitLoadEvent(event, modelFileName, null);
+    }
+
+    //fills in and records a mesh load event for Java Flight Recorder, if it's being recorded
+    private void commitLoadEvent(FlightEvents.MeshLoad event, String modelFileName, String textureFileName)
+    {
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.modelFile = modelFileName;
+            event.textureFile = textureFileName;
+            event.triangles = triangles.size();
+            event.vertices = vertices.size();
+            event.vertexBytes = vertices.getMemoryUsage();
+            event.commit();
+        }
     }
 
     //mesh constructor for children
@@ -103,26 +125,23 @@ public class Mesh
     {        
         shading = shadedIn;
         backFaceCull = shouldBackFaceCull;
+        vertices = new VertexBuffer();
         triangles = new ArrayList<Triangle>();
+        totalMovement = new Vector3();
     }
 
     //rotates each triangle in the mesh according to a rotation matrix, and around the center of rotation.
+    //the whole vertex buffer is rotated in one batch by VertexKernels.
     public void rotate(Matrix3x3 rotationMatrix, Vector3 centerOfRotation)
     {
-        for (int i = 0; i < vertices.size(); i ++)
-        {
-            vertices.get(i).set(Vector3.add(Vector3.applyMatrix(rotationMatrix, Vector3.subtract(vertices.get(i), centerOfRotation)), centerOfRotation));
-        }
+        vertices.rotate(rotationMatrix, centerOfRotation);
     }
 
     //translates each triangle in the mesh by "amount" 
     public void translate(Vector3 amount)
     {
-        for (int i = 0; i < vertices.size(); i ++)
-        {
-            vertices.get(i).set(Vector3.add(vertices.get(i), amount));
-        }
-        totalMovement = Vector3.add(totalMovement, amount);
+        vertices.translate(amount);
+        totalMovement.add(amount);
     }
 
     //#region getter methods 
@@ -151,7 +170,7 @@ public class Mesh
         translate(Vector3.negate(totalMovement));
     }
 
-    public ArrayList<Vector3> getVertices()
+    public VertexBuffer getVertices()
     {
         return vertices;
     }
@@ -225,7 +244,7 @@ public class Mesh
                     vertexCoordinate = Vector3.add(offsetPosition, vertexCoordinate);
                     vertexCoordinate = Vector3.multiply(vertexCoordinate, scale);
 
-                    //adds the Vector3 to the array of vertices
+                    //adds the Vector3 to the vertex buffer
                     vertices.add(vertexCoordinate);
                 }
 
@@ -260,16 +279,16 @@ public class Mesh
                     for (int i = 0; i < coordinateIndexes.length - 2; i ++)
                     {   
                         if (texture == null)
-                            triangles.add(new Triangle(this, vertices.get(coordinateIndexes[0]), vertices.get(coordinateIndexes[i+1]), vertices.get(coordinateIndexes[i+2]), color));
+                            triangles.add(new Triangle(this, coordinateIndexes[0], coordinateIndexes[i+1], coordinateIndexes[i+2], color));
                         else
                             triangles.add
                             (
                                 new Triangle
                                 (
                                     this, 
-                                    vertices.get(coordinateIndexes[0]), 
-                                    vertices.get(coordinateIndexes[i+1]), 
-                                    vertices.get(coordinateIndexes[i+2]), 
+                                    coordinateIndexes[0], 
+                                    coordinateIndexes[i+1], 
+                                    coordinateIndexes[i+2], 
                                     textureCoords.get(textureIndexes[0]),
                                     textureCoords.get(textureIndexes[i+1]),
                                     textureCoords.get(textureIndexes[i+2])
@@ -279,5 +298,6 @@ public class Mesh
                 }
             }
         }
+        vertices.trimToSize();
     }
 }
@@ -0,0 +1,489 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+
+//a bounding volume hierarchy over the triangles of a mesh: a binary tree of boxes, where each box holds the
+//boxes of it's two children, and the boxes at the bottom (the leaves) hold a few triangles each. Finding the
+//triangles of two meshes that touch only needs to look inside the boxes that overlap, instead of testing every
+//triangle of one mesh against every triangle of the other.
+//
+//The mesh's vertices are already in world space, so the tree is built once from the triangles and then refit
+//whenever the vertices move (see VertexBuffer.getVersion()): the boxes are recalculated from the bottom up,
+//but the triangles stay in the same leaves. A mesh that only moves and rotates keeps it's shape, so the
+//refit tree stays as good as a new one.
+//
+//The tree is stored in flat arrays (like VertexBuffer) rather than an object per node, and a node's children
+//always come after it in the arrays, so a refit is one backwards pass over them.
+public class MeshBVH
+{
+    //most triangles in one leaf
+    private static final int MAX_LEAF_SIZE = 4;
+    //axes shorter than this (squared) are left out of the triangle test, since they are the cross product of
+    //two parallel edges and can't separate anything
+    private static final double MIN_AXIS_LENGTH_SQUARED = 1e-12;
+
+    private Mesh mesh;
+    private VertexBuffer vertices;
+    private int builtVersion; //the vertices' version when the boxes were last calculated
+
+    //the three vertex indexes of each triangle, in the order of the leaves
+    private int[] triangleVertices;
+    //the index in the mesh's triangle list of each triangle, in the order of the leaves
+    private int[] triangleOrder;
+
+    //minX, minY, minZ, maxX, maxY, maxZ of each node, root first
+    private double[] nodeBounds;
+    //for a leaf, the first of it's triangles. Otherwise the index of it's first child (the second is right after it)
+    private int[] nodeStart;
+    //the number of triangles in a leaf, 0 for nodes with children
+    private int[] nodeTriangleCount;
+    private int nodeCount;
+
+    //nodes (or node pairs) that are still to be checked by raycast() and intersects()
+    private int[] stack;
+
+    //the corners of the two triangles being tested by trianglesIntersect()
+    private double[] triangle1;
+    private double[] triangle2;
+
+    public MeshBVH(Mesh meshIn)
+    {
+        mesh = meshIn;
+        vertices = mesh.getVertices();
+        stack = new int[64];
+        triangle1 = new double[9];
+        triangle2 = new double[9];
+        build();
+    }
+
+    //builds the tree from the mesh's triangles, splitting each node in the middle of it's longest side
+    private void build()
+    {
+        ArrayList<Triangle> triangles = mesh.getTriangles();
+        int triangleCount = triangles.size();
+        triangleVertices = new int[triangleCount*3];
+        double[] centers = new double[triangleCount*3];
+        int[] order = new int[triangleCount];
+        for (int i = 0; i < triangleCount; i++)
+        {
+            Triangle triangle = triangles.get(i);
+            triangleVertices[i*3] = triangle.vertex1;
+            triangleVertices[i*3+1] = triangle.vertex2;
+            triangleVertices[i*3+2] = triangle.vertex3;
+            centers[i*3] = (vertices.getX(triangle.vertex1) + vertices.getX(triangle.vertex2) + vertices.getX(triangle.vertex3))/3;
+            centers[i*3+1] = (vertices.getY(triangle.vertex1) + vertices.getY(triangle.vertex2) + vertices.getY(triangle.vertex3))/3;
+            centers[i*3+2] = (vertices.getZ(triangle.vertex1) + vertices.getZ(triangle.vertex2) + vertices.getZ(triangle.vertex3))/3;
+            order[i] = i;
+        }
+
+        //a tree with one triangle per leaf has 2n-1 nodes, so this is always enough
+        int maxNodes = Math.max(1, triangleCount*2);
+        nodeBounds = new double[maxNodes*6];
+        nodeStart = new int[maxNodes];
+        nodeTriangleCount = new int[maxNodes];
+        nodeCount = 1;
+        split(0, 0, triangleCount, order, centers);
+
+        //put the triangles in the order of the leaves, so each leaf's triangles are next to each other
+        int[] sorted = new int[triangleCount*3];
+        for (int i = 0; i < triangleCount; i++)
+            System.arraycopy(triangleVertices, order[i]*3, sorted, i*3, 3);
+        triangleVertices = sorted;
+        triangleOrder = order;
+
+        //most trees have far fewer nodes than the most they could have
+        nodeBounds = Arrays.copyOf(nodeBounds, nodeCount*6);
+        nodeStart = Arrays.copyOf(nodeStart, nodeCount);
+        nodeTriangleCount = Arrays.copyOf(nodeTriangleCount, nodeCount);
+        refitNodes();
+    }
+
+    //makes "node" hold triangles "start" to "end" of "order", splitting it into two children if there are too many
+    private void split(int node, int start, int end, int[] order, double[] centers)
+    {
+        nodeStart[node] = start;
+        nodeTriangleCount[node] = end - start;
+        if (end - start <= MAX_LEAF_SIZE)
+            return;
+
+        //the box around the centers of the triangles
+        double[] min = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+        double[] max = {-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+        for (int i = start; i < end; i++)
+        {
+            for (int axis = 0; axis < 3; axis++)
+            {
+                min[axis] = Math.min(min[axis], centers[order[i]*3 + axis]);
+                max[axis] = Math.max(max[axis], centers[order[i]*3 + axis]);
+            }
+        }
+        int axis = 0;
+        if (max[1] - min[1] > max[axis] - min[axis])
+            axis = 1;
+        if (max[2] - min[2] > max[axis] - min[axis])
+            axis = 2;
+
+        //move the triangles with centers before the middle of the box to the front
+        double middle = (min[axis] + max[axis])/2;
+        int mid = start;
+        for (int i = start; i < end; i++)
+        {
+            if (centers[order[i]*3 + axis] < middle)
+            {
+                int temp = order[i];
+                order[i] = order[mid];
+                order[mid] = temp;
+                mid++;
+            }
+        }
+        //if every center is on one side (like triangles that all share the same center), split them in half instead
+        if (mid == start || mid == end)
+            mid = (start + end)/2;
+
+        int child = nodeCount;
+        nodeCount += 2;
+        nodeStart[node] = child;
+        nodeTriangleCount[node] = 0;
+        split(child, start, mid, order, centers);
+        split(child + 1, mid, end, order, centers);
+    }
+
+    //recalculates every box from the mesh's vertices, if they have changed since the last time
+    public void refit()
+    {
+        if (builtVersion != vertices.getVersion())
+            refitNodes();
+    }
+
+    //recalculates every box. Children are after their parents in the arrays, so going backwards does every
+    //child before it's parent. A mesh without triangles gets an empty box (min greater than max).
+    private void refitNodes()
+    {
+        for (int node = nodeCount - 1; node >= 0; node--)
+        {
+            int b = node*6;
+            if (nodeTriangleCount[node] > 0 || triangleVertices.length == 0)
+            {
+                int first = nodeStart[node]*3;
+                int last = first + nodeTriangleCount[node]*3;
+                //plain comparisons rather than Math.min() and Math.max(), which also have to check for NaN
+                //and are several times slower here
+                double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+                double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+                for (int i = first; i < last; i++)
+                {
+                    int vertex = triangleVertices[i];
+                    double x = vertices.getX(vertex), y = vertices.getY(vertex), z = vertices.getZ(vertex);
+                    if (x < minX) minX = x;
+                    if (x > maxX) maxX = x;
+                    if (y < minY) minY = y;
+                    if (y > maxY) maxY = y;
+                    if (z < minZ) minZ = z;
+                    if (z > maxZ) maxZ = z;
+                }
+                nodeBounds[b] = minX;
+                nodeBounds[b+1] = minY;
+                nodeBounds[b+2] = minZ;
+                nodeBounds[b+3] = maxX;
+                nodeBounds[b+4] = maxY;
+                nodeBounds[b+5] = maxZ;
+            }
+            else
+            {
+                int left = nodeStart[node]*6;
+                int right = left + 6;
+                for (int i = 0; i < 3; i++)
+                {
+                    nodeBounds[b+i] = (nodeBounds[left+i] < nodeBounds[right+i])? nodeBounds[left+i] : nodeBounds[right+i];
+                    nodeBounds[b+3+i] = (nodeBounds[left+3+i] > nodeBounds[right+3+i])? nodeBounds[left+3+i] : nodeBounds[right+3+i];
+                }
+            }
+        }
+        builtVersion = vertices.getVersion();
+    }
+
+    //returns true if any triangle of this mesh touches any triangle of "other". Both trees should be refit first.
+    public boolean intersects(MeshBVH other)
+    {
+        if (triangleVertices.length == 0 || other.triangleVertices.length == 0)
+            return false;
+
+        //each entry is a node of this tree and a node of the other tree whose boxes might overlap
+        int size = 0;
+        stack[size++] = 0;
+        stack[size++] = 0;
+        while (size > 0)
+        {
+            int otherNode = stack[--size];
+            int node = stack[--size];
+            if (!boxesOverlap(nodeBounds, node*6, other.nodeBounds, otherNode*6))
+                continue;
+
+            boolean leaf = nodeTriangleCount[node] > 0;
+            boolean otherLeaf = other.nodeTriangleCount[otherNode] > 0;
+            if (leaf && otherLeaf)
+            {
+                if (leavesIntersect(node, other, otherNode))
+                    return true;
+                continue;
+            }
+
+            if (size + 4 > stack.length)
+                stack = Arrays.copyOf(stack, stack.length*2);
+            //go down the tree with the bigger box, so the boxes being compared stay about the same size
+            if (otherLeaf || (!leaf && boxSize(nodeBounds, node*6) > boxSize(other.nodeBounds, otherNode*6)))
+            {
+                int child = nodeStart[node];
+                stack[size++] = child;
+                stack[size++] = otherNode;
+                stack[size++] = child + 1;
+                stack[size++] = otherNode;
+            }
+            else
+            {
+                int child = other.nodeStart[otherNode];
+                stack[size++] = node;
+                stack[size++] = child;
+                stack[size++] = node;
+                stack[size++] = child + 1;
+            }
+        }
+        return false;
+    }
+
+    //finds the closest triangle hit by the ray from (originX, originY, originZ) going in the direction
+    //(directionX, directionY, directionZ), which should be normalized. Only triangles closer than hit.distance count,
+    //so a hit from another mesh can be passed in to find the closest hit of many meshes. If a closer triangle is
+    //hit, "hit" is changed to it and true is returned. The tree should be refit first.
+    public boolean raycast(double originX, double originY, double originZ, double directionX, double directionY, double directionZ, RaycastHit hit)
+    {
+        if (triangleVertices.length == 0)
+            return false;
+        //the slab test divides by the direction, so it is done once here. A zero is swapped for the largest
+        //double rather than infinity, since infinity times zero (a ray starting on the side of a box) is NaN.
+        double inverseX = (directionX == 0)? Double.MAX_VALUE : 1/directionX;
+        double inverseY = (directionY == 0)? Double.MAX_VALUE : 1/directionY;
+        double inverseZ = (directionZ == 0)? Double.MAX_VALUE : 1/directionZ;
+        int closest = -1;
+
+        int size = 0;
+        stack[size++] = 0;
+        while (size > 0)
+        {
+            int node = stack[--size];
+            if (boxEntryDistance(node, originX, originY, originZ, inverseX, inverseY, inverseZ) >= hit.distance)
+                continue;
+
+            if (nodeTriangleCount[node] > 0)
+            {
+                for (int i = nodeStart[node]; i < nodeStart[node] + nodeTriangleCount[node]; i++)
+                {
+                    double distance = triangleDistance(i, originX, originY, originZ, directionX, directionY, directionZ);
+                    if (distance < hit.distance)
+                    {
+                        hit.distance = distance;
+                        closest = i;
+                    }
+                }
+                continue;
+            }
+
+            if (size + 2 > stack.length)
+                stack = Arrays.copyOf(stack, stack.length*2);
+            //the nearer child goes on top, so it is searched first and the farther one can often be skipped
+            int child = nodeStart[node];
+            double distance1 = boxEntryDistance(child, originX, originY, originZ, inverseX, inverseY, inverseZ);
+            double distance2 = boxEntryDistance(child + 1, originX, originY, originZ, inverseX, inverseY, inverseZ);
+            stack[size++] = (distance1 < distance2)? child + 1 : child;
+            stack[size++] = (distance1 < distance2)? child : child + 1;
+        }
+        if (closest < 0)
+            return false;
+
+        copyTriangle(closest, triangle1);
+        double[] t = triangle1;
+        double normalX = (t[4]-t[1])*(t[8]-t[2]) - (t[5]-t[2])*(t[7]-t[1]);
+        double normalY = (t[5]-t[2])*(t[6]-t[0]) - (t[3]-t[0])*(t[8]-t[2]);
+        double normalZ = (t[3]-t[0])*(t[7]-t[1]) - (t[4]-t[1])*(t[6]-t[0]);
+        //the normal faces back towards where the ray came from, whichever way the triangle is wound
+        if (normalX*directionX + normalY*directionY + normalZ*directionZ > 0)
+            hit.normal.set(-normalX, -normalY, -normalZ).normalize();
+        else
+            hit.normal.set(normalX, normalY, normalZ).normalize();
+        hit.point.set(originX + directionX*hit.distance, originY + directionY*hit.distance, originZ + directionZ*hit.distance);
+        hit.mesh = mesh;
+        hit.triangle = triangleOrder[closest];
+        return true;
+    }
+
+    //returns how far along the ray it enters the box of "node" (0 if it starts inside of it), or infinity if it
+    //misses the box. Uses the slab test: the ray is in the box where it is between all three pairs of planes.
+    private double boxEntryDistance(int node, double originX, double originY, double originZ, double inverseX, double inverseY, double inverseZ)
+    {
+        int b = node*6;
+        double near1 = (nodeBounds[b] - originX)*inverseX;
+        double far1 = (nodeBounds[b+3] - originX)*inverseX;
+        double near2 = (nodeBounds[b+1] - originY)*inverseY;
+        double far2 = (nodeBounds[b+4] - originY)*inverseY;
+        double near3 = (nodeBounds[b+2] - originZ)*inverseZ;
+        double far3 = (nodeBounds[b+5] - originZ)*inverseZ;
+        double enter = Math.max(0, Math.max(Math.min(near1, far1), Math.max(Math.min(near2, far2), Math.min(near3, far3))));
+        double exit = Math.min(Math.max(near1, far1), Math.min(Math.max(near2, far2), Math.max(near3, far3)));
+        return (enter <= exit)? enter : Double.POSITIVE_INFINITY;
+    }
+
+    //returns how far along the ray it hits triangle "index" (in the order of the leaves), or infinity if it misses,
+    //using the Moller-Trumbore test: the hit point is solved for as a distance along the ray and a position on the
+    //triangle at once
+    private double triangleDistance(int index, double originX, double originY, double originZ, double directionX, double directionY, double directionZ)
+    {
+        int v1 = triangleVertices[index*3];
+        int v2 = triangleVertices[index*3+1];
+        int v3 = triangleVertices[index*3+2];
+        double x1 = vertices.getX(v1), y1 = vertices.getY(v1), z1 = vertices.getZ(v1);
+        double edge1X = vertices.getX(v2) - x1, edge1Y = vertices.getY(v2) - y1, edge1Z = vertices.getZ(v2) - z1;
+        double edge2X = vertices.getX(v3) - x1, edge2Y = vertices.getY(v3) - y1, edge2Z = vertices.getZ(v3) - z1;
+
+        double pX = directionY*edge2Z - directionZ*edge2Y;
+        double pY = directionZ*edge2X - directionX*edge2Z;
+        double pZ = directionX*edge2Y - directionY*edge2X;
+        double determinant = edge1X*pX + edge1Y*pY + edge1Z*pZ;
+        if (determinant == 0) //the ray is parallel to the triangle
+            return Double.POSITIVE_INFINITY;
+        double inverse = 1/determinant;
+
+        double toOriginX = originX - x1, toOriginY = originY - y1, toOriginZ = originZ - z1;
+        double u = (toOriginX*pX + toOriginY*pY + toOriginZ*pZ)*inverse;
+        if (u < 0 || u > 1)
+            return Double.POSITIVE_INFINITY;
+        double qX = toOriginY*edge1Z - toOriginZ*edge1Y;
+        double qY = toOriginZ*edge1X - toOriginX*edge1Z;
+        double qZ = toOriginX*edge1Y - toOriginY*edge1X;
+        double v = (directionX*qX + directionY*qY + directionZ*qZ)*inverse;
+        if (v < 0 || u + v > 1)
+            return Double.POSITIVE_INFINITY;
+        double distance = (edge2X*qX + edge2Y*qY + edge2Z*qZ)*inverse;
+        return (distance >= 0)? distance : Double.POSITIVE_INFINITY;
+    }
+
+    //tests every triangle of leaf "node" against every triangle of leaf "otherNode" in the other tree
+    private boolean leavesIntersect(int node, MeshBVH other, int otherNode)
+    {
+        for (int i = nodeStart[node]; i < nodeStart[node] + nodeTriangleCount[node]; i++)
+        {
+            copyTriangle(i, triangle1);
+            for (int j = other.nodeStart[otherNode]; j < other.nodeStart[otherNode] + other.nodeTriangleCount[otherNode]; j++)
+            {
+                other.copyTriangle(j, triangle2);
+                if (trianglesIntersect(triangle1, triangle2))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    //copies the corners of triangle "index" (in the order of the leaves) into "out", as x1, y1, z1, x2, ...
+    private void copyTriangle(int index, double[] out)
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            int vertex = triangleVertices[index*3 + i];
+            out[i*3] = vertices.getX(vertex);
+            out[i*3+1] = vertices.getY(vertex);
+            out[i*3+2] = vertices.getZ(vertex);
+        }
+    }
+
+    //returns true if two triangles touch, using the separating axis test: two convex shapes don't touch if and
+    //only if there is an axis that they can be projected onto without their projections overlapping. For two
+    //triangles it is enough to try both normals and the cross products of every pair of edges, plus each
+    //triangle's edges crossed with it's normal for triangles that lie in the same plane.
+    //Those axes are all zero for a triangle squashed into a point (like the ones at the poles of a sphere),
+    //so the x, y and z axes are tried first, which is also the quickest way to reject most pairs.
+    public static boolean trianglesIntersect(double[] a, double[] b)
+    {
+        if (separates(1, 0, 0, a, b) || separates(0, 1, 0, a, b) || separates(0, 0, 1, a, b))
+            return false;
+
+        double aNormalX = (a[4]-a[1])*(a[8]-a[2]) - (a[5]-a[2])*(a[7]-a[1]);
+        double aNormalY = (a[5]-a[2])*(a[6]-a[0]) - (a[3]-a[0])*(a[8]-a[2]);
+        double aNormalZ = (a[3]-a[0])*(a[7]-a[1]) - (a[4]-a[1])*(a[6]-a[0]);
+        double bNormalX = (b[4]-b[1])*(b[8]-b[2]) - (b[5]-b[2])*(b[7]-b[1]);
+        double bNormalY = (b[5]-b[2])*(b[6]-b[0]) - (b[3]-b[0])*(b[8]-b[2]);
+        double bNormalZ = (b[3]-b[0])*(b[7]-b[1]) - (b[4]-b[1])*(b[6]-b[0]);
+        if (separates(aNormalX, aNormalY, aNormalZ, a, b) || separates(bNormalX, bNormalY, bNormalZ, a, b))
+            return false;
+
+        for (int i = 0; i < 3; i++)
+        {
+            int aNext = (i+1)%3;
+            double aEdgeX = a[aNext*3] - a[i*3];
+            double aEdgeY = a[aNext*3+1] - a[i*3+1];
+            double aEdgeZ = a[aNext*3+2] - a[i*3+2];
+            for (int j = 0; j < 3; j++)
+            {
+                int bNext = (j+1)%3;
+                double bEdgeX = b[bNext*3] - b[j*3];
+                double bEdgeY = b[bNext*3+1] - b[j*3+1];
+                double bEdgeZ = b[bNext*3+2] - b[j*3+2];
+                if (separates(aEdgeY*bEdgeZ - aEdgeZ*bEdgeY, aEdgeZ*bEdgeX - aEdgeX*bEdgeZ, aEdgeX*bEdgeY - aEdgeY*bEdgeX, a, b))
+                    return false;
+            }
+            if (separates(aNormalY*aEdgeZ - aNormalZ*aEdgeY, aNormalZ*aEdgeX - aNormalX*aEdgeZ, aNormalX*aEdgeY - aNormalY*aEdgeX, a, b))
+                return false;
+
+            int bNext = (i+1)%3;
+            double bEdgeX = b[bNext*3] - b[i*3];
+            double bEdgeY = b[bNext*3+1] - b[i*3+1];
+            double bEdgeZ = b[bNext*3+2] - b[i*3+2];
+            if (separates(bNormalY*bEdgeZ - bNormalZ*bEdgeY, bNormalZ*bEdgeX - bNormalX*bEdgeZ, bNormalX*bEdgeY - bNormalY*bEdgeX, a, b))
+                return false;
+        }
+        return true;
+    }
+
+    //returns true if the projections of triangles "a" and "b" onto the axis (x, y, z) don't overlap
+    private static boolean separates(double x, double y, double z, double[] a, double[] b)
+    {
+        if (x*x + y*y + z*z < MIN_AXIS_LENGTH_SQUARED)
+            return false;
+        double a1 = a[0]*x + a[1]*y + a[2]*z;
+        double a2 = a[3]*x + a[4]*y + a[5]*z;
+        double a3 = a[6]*x + a[7]*y + a[8]*z;
+        double b1 = b[0]*x + b[1]*y + b[2]*z;
+        double b2 = b[3]*x + b[4]*y + b[5]*z;
+        double b3 = b[6]*x + b[7]*y + b[8]*z;
+        return Math.max(a1, Math.max(a2, a3)) < Math.min(b1, Math.min(b2, b3)) || Math.max(b1, Math.max(b2, b3)) < Math.min(a1, Math.min(a2, a3));
+    }
+
+    //do the boxes starting at index "a" of "boundsA" and index "b" of "boundsB" overlap?
+    static boolean boxesOverlap(double[] boundsA, int a, double[] boundsB, int b)
+    {
+        return boundsA[a] <= boundsB[b+3] && boundsB[b] <= boundsA[a+3]
+            && boundsA[a+1] <= boundsB[b+4] && boundsB[b+1] <= boundsA[a+4]
+            && boundsA[a+2] <= boundsB[b+5] && boundsB[b+2] <= boundsA[a+5];
+    }
+
+    //the sum of the sides of the box starting at index "b" of "bounds", used to compare the sizes of boxes
+    private static double boxSize(double[] bounds, int b)
+    {
+        return (bounds[b+3] - bounds[b]) + (bounds[b+4] - bounds[b+1]) + (bounds[b+5] - bounds[b+2]);
+    }
+
+    //#region getter methods
+    public Mesh getMesh()
+    {
+        return mesh;
+    }
+
+    //writes the box around the whole mesh into "bounds", as minX, minY, minZ, maxX, maxY, maxZ
+    public void getBounds(double[] bounds)
+    {
+        System.arraycopy(nodeBounds, 0, bounds, 0, 6);
+    }
+
+    public int getNodeCount()
+    {
+        return nodeCount;
+    }
+    //#endregion
+}
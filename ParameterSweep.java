@@ -0,0 +1,267 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+//flies the FlightModel with every combination of a grid of flight parameters, to help tune them without
+//flying by hand. Each combination is an independent simulation with it's own parameters, model and
+//controls, so the simulations share nothing that changes and are run on every core at once. The results
+//are printed one line per simulation, in the order of the grid, so the output is the same no matter how
+//many threads are used.
+//
+//A flight ends when the airplane crashes. The stall columns only count the stalls that the airplane came out
+//of before then, so the dive into the ground isn't counted as a stall, and the final speed of a crashed
+//flight is left out.
+//
+//usage: java ParameterSweep [options] name=values ...
+//  name is a field of FlightParameters, values is a list like 1,1.5,2 or a range like 0.1:0.5:0.1 (start:end:step)
+//  -seconds <n>   seconds to simulate each flight (default 120)
+//  -rate <n>      physics steps per second (default 120)
+//  -threads <n>   number of threads to use (default every core)
+//  -script <name> the scripted pilot, takeoff (FlightScript.TAKEOFF_AND_STALL, the default) or maneuvers
+//  -integrator <name>  euler (Integrator.SEMI_IMPLICIT_EULER, the default) or rk4
+//example: java ParameterSweep liftCoefficient=1:2:0.25 dragCoefficient=0.1,0.2,0.3
+public class ParameterSweep
+{
+    public static final double DEFAULT_SECONDS = 120;
+    public static final double DEFAULT_RATE = 120; //the same as Airplane.DEFAULT_PHYSICS_RATE
+
+    //the airplane counts as stalled while it is in the air with it's nose at least this much above the horizon
+    //(as the y value of the forward vector), but is still losing altitude.
+    private static final double STALL_NOSE_UP = 0.1;
+
+    public static void main(String[] args)
+    {
+        double seconds = DEFAULT_SECONDS;
+        double rate = DEFAULT_RATE;
+        int threads = Runtime.getRuntime().availableProcessors();
+        FlightScript script = FlightScript.TAKEOFF_AND_STALL;
+        Integrator integrator = Integrator.SEMI_IMPLICIT_EULER;
+        List<String> names = new ArrayList<String>();
+        List<double[]> values = new ArrayList<double[]>();
+
+        try
+        {
+            for (int i = 0; i < args.length; i++)
+            {
+                if (args[i].equals("-seconds") && i + 1 < args.length)
+                    seconds = Double.parseDouble(args[++i]);
+                else if (args[i].equals("-rate") && i + 1 < args.length)
+                    rate = Double.parseDouble(args[++i]);
+                else if (args[i].equals("-threads") && i + 1 < args.length)
+                    threads = Math.max(1, Integer.parseInt(args[++i]));
+                else if (args[i].equals("-script") && i + 1 < args.length)
+                {
+                    String name = args[++i];
+                    if (name.equals("takeoff"))
+                        script = FlightScript.TAKEOFF_AND_STALL;
+                    else if (name.equals("maneuvers"))
+                        script = FlightScript.MANEUVERS;
+                    else
+                    {
+                        System.err.println("WARNING at: ParameterSweep/main() method:\n\tunknown script: " + name);
+                        return;
+                    }
+                }
+                else if (args[i].equals("-integrator") && i + 1 < args.length)
+                {
+                    String name = args[++i];
+                    if (name.equals("euler"))
+                        integrator = Integrator.SEMI_IMPLICIT_EULER;
+                    else if (name.equals("rk4"))
+                        integrator = Integrator.RK4;
+                    else
+                    {
+                        System.err.println("WARNING at: ParameterSweep/main() method:\n\tunknown integrator: " + name);
+                        return;
+                    }
+                }
+                else if (args[i].indexOf('=') > 0)
+                {
+                    String name = args[i].substring(0, args[i].indexOf('='));
+                    if (!new FlightParameters().set(name, 0))
+                    {
+                        System.err.println("WARNING at: ParameterSweep/main() method:\n\tunknown flight parameter: " + name);
+                        return;
+                    }
+                    names.add(name);
+                    values.add(parseValues(args[i].substring(args[i].indexOf('=') + 1)));
+                }
+                else
+                {
+                    System.err.println("WARNING at: ParameterSweep/main() method:\n\tunknown option: " + args[i]);
+                    return;
+                }
+            }
+        }
+        catch (NumberFormatException e)
+        {
+            System.err.println("WARNING at: ParameterSweep/main() method:\n\tinvalid number: " + e.getMessage());
+            return;
+        }
+        if (seconds <= 0 || rate <= 0)
+        {
+            System.err.println("WARNING at: ParameterSweep/main() method:\n\tseconds and steps per second must be positive");
+            return;
+        }
+
+        //every combination of the values, the first parameter changing slowest
+        int runCount = 1;
+        for (double[] list : values)
+            runCount *= list.length;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<String>> results = new ArrayList<Future<String>>(runCount);
+        long startTime = System.nanoTime();
+        for (int run = 0; run < runCount; run++)
+        {
+            FlightParameters parameters = new FlightParameters();
+            double[] runValues = new double[names.size()];
+            int index = run;
+            for (int i = names.size() - 1; i >= 0; i--)
+            {
+                double[] list = values.get(i);
+                runValues[i] = list[index % list.length];
+                parameters.set(names.get(i), runValues[i]);
+                index /= list.length;
+            }
+            results.add(executor.submit(new Flight(parameters, runValues, script, integrator, rate, seconds)));
+        }
+
+        StringBuilder header = new StringBuilder("run");
+        for (String name : names)
+            header.append(' ').append(name);
+        System.out.println(header + " liftoffDistance liftoffTime maxAltitude stallTime stallAltitudeLoss finalSpeed crashTime");
+        try
+        {
+            for (int run = 0; run < runCount; run++)
+                System.out.println(run + " " + results.get(run).get());
+        }
+        catch (InterruptedException | ExecutionException e)
+        {
+            System.err.println("WARNING at: ParameterSweep/main() method:\n\tsimulation failed: " + e);
+        }
+        executor.shutdown();
+        double realTime = (System.nanoTime() - startTime)/1000000000.0;
+        System.err.printf("%d flights of %.0f s in %.2f s on %d threads (%.0fx real time)%n", runCount, seconds, realTime, threads, runCount*seconds/realTime);
+    }
+
+    //parses a list of values (1,1.5,2) or a range (start:end:step, end included)
+    private static double[] parseValues(String text)
+    {
+        String[] range = text.split(":");
+        if (range.length == 3)
+        {
+            double start = Double.parseDouble(range[0]);
+            double end = Double.parseDouble(range[1]);
+            double step = Double.parseDouble(range[2]);
+            if (step <= 0 || end < start)
+                throw new NumberFormatException("range " + text + " is empty");
+            //the small amount added makes sure rounding doesn't leave out the end value
+            int count = (int)Math.floor((end - start)/step + 1e-9) + 1;
+            double[] values = new double[count];
+            for (int i = 0; i < count; i++)
+                values[i] = start + i*step;
+            return values;
+        }
+        String[] list = text.split(",");
+        double[] values = new double[list.length];
+        for (int i = 0; i < list.length; i++)
+            values[i] = Double.parseDouble(list[i]);
+        return values;
+    }
+
+    //one simulation of the sweep. Returns it's parameters and results as one line of text.
+    static class Flight implements Callable<String>
+    {
+        private final FlightParameters parameters;
+        private final double[] sweptValues; //the values of the parameters being swept, for the results
+        private final FlightScript script;
+        private final Integrator integrator;
+        private final double rate;
+        private final double seconds;
+
+        public Flight(FlightParameters parametersIn, double[] sweptValuesIn, FlightScript scriptIn, Integrator integratorIn, double rateIn, double secondsIn)
+        {
+            parameters = parametersIn;
+            sweptValues = sweptValuesIn;
+            script = scriptIn;
+            integrator = integratorIn;
+            rate = rateIn;
+            seconds = secondsIn;
+        }
+
+        public String call()
+        {
+            FlightModel model = new FlightModel(parameters, 1/rate);
+            model.setIntegrator(integrator);
+            ControlInput input = new ControlInput();
+            long steps = (long)Math.ceil(seconds*rate);
+
+            double liftoffDistance = Double.NaN; //horizontal distance from the start when the wheels leave the ground
+            double liftoffTime = Double.NaN;
+            double maxAltitude = 0;
+            double stallTime = 0; //total time spent stalled
+            double stallAltitudeLoss = 0; //most altitude lost in one stall
+            double stallStartAltitude = Double.NaN; //altitude when the current stall started, NaN if not stalled
+            double currentStallTime = 0; //time in the current stall, and altitude lost in it so far
+            double currentStallLoss = 0;
+
+            for (long i = 0; i < steps; i++)
+            {
+                script.setControls(input, model.getTime());
+                model.step(input);
+                if (model.hasCrashed())
+                    break;
+
+                double altitude = model.getAltitude();
+                Vector3 position = model.getPosition();
+                if (altitude > 0 && Double.isNaN(liftoffTime))
+                {
+                    liftoffTime = model.getTime();
+                    liftoffDistance = Math.sqrt(position.x*position.x + position.z*position.z);
+                }
+                maxAltitude = Math.max(maxAltitude, altitude);
+
+                if (altitude > 0 && model.getForward().y > STALL_NOSE_UP && model.getVelocity().y < 0)
+                {
+                    currentStallTime += model.getDeltaTime();
+                    if (Double.isNaN(stallStartAltitude))
+                        stallStartAltitude = altitude;
+                    currentStallLoss = Math.max(currentStallLoss, stallStartAltitude - altitude);
+                }
+                else if (!Double.isNaN(stallStartAltitude))
+                {
+                    //came out of the stall
+                    stallTime += currentStallTime;
+                    stallAltitudeLoss = Math.max(stallAltitudeLoss, currentStallLoss);
+                    stallStartAltitude = Double.NaN;
+                    currentStallTime = 0;
+                    currentStallLoss = 0;
+                }
+            }
+            //a stall that was still going at the end of an uncrashed flight counts, one that ended in a crash doesn't
+            if (!model.hasCrashed())
+            {
+                stallTime += currentStallTime;
+                stallAltitudeLoss = Math.max(stallAltitudeLoss, currentStallLoss);
+            }
+
+            StringBuilder line = new StringBuilder();
+            for (double value : sweptValues)
+                line.append(format(value)).append(' ');
+            line.append(format(liftoffDistance)).append(' ').append(format(liftoffTime)).append(' ');
+            line.append(format(maxAltitude)).append(' ').append(format(stallTime)).append(' ');
+            line.append(format(stallAltitudeLoss)).append(' ').append(format(model.hasCrashed()? Double.NaN : model.getVelocity().getMagnitude())).append(' ');
+            line.append(format(model.hasCrashed()? model.getCrashTime() : Double.NaN));
+            return line.toString();
+        }
+
+        private static String format(double value)
+        {
+            return Double.isNaN(value)? "-" : String.format("%.4g", value);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+import java.util.Arrays;
+
+//clip space coordinates (see VertexKernels.transform) of the vertices of one mesh for the current frame.
+//Triangles share vertices (a terrain grid vertex is used by up to six triangles), so rather than projecting
+//the three vertices of every triangle separately, each vertex is projected once per frame into this cache
+//and the triangles look their vertices up by index.
+//Vertices are projected a range at a time, before the triangles that use them are calculated: the whole
+//mesh for an object, or each column of grid vertices of a terrain tile. A range is projected with a single
+//call to the batch kernel, which the JIT can turn into SIMD instructions, so this is faster than projecting
+//only the vertices that end up being used one at a time, even though the vertices of triangles that are
+//culled afterwards (facing away or behind the camera) are projected too. Vertices in hidden tiles and
+//meshes still aren't projected.
+public class ProjectionCache
+{
+    private VertexBuffer vertices;
+
+    //projected vertices, in the same precision as the vertex buffer (the other arrays are null)
+    private double[] clipX;
+    private double[] clipY;
+    private double[] clipW;
+    private float[] clipXf;
+    private float[] clipYf;
+    private float[] clipWf;
+
+    //frame number that each vertex was last projected in
+    private int[] projectedFrame;
+    private int frame;
+
+    //view-projection matrix and camera position for the current frame
+    private Matrix4x4 viewProjection;
+    private Vector3 cameraPosition;
+
+    public ProjectionCache(VertexBuffer verticesIn)
+    {
+        vertices = verticesIn;
+        allocate();
+    }
+
+    //sets up the view-projection matrix and camera position for a new frame. Single precision vertices are
+    //projected relative to the camera (see VertexKernels.transform).
+    public void beginFrame(Matrix4x4 viewProjectionIn, Vector3 cameraPositionIn)
+    {
+        viewProjection = viewProjectionIn;
+        cameraPosition = cameraPositionIn;
+        if (vertices.size() > capacity())
+            allocate();
+        frame++;
+    }
+
+    //projects the vertices from index "from" up to (but not including) "to". Vertices at either end that were
+    //already projected this frame (like the edge that a terrain tile shares with the one next to it) are skipped.
+    public void project(int from, int to)
+    {
+        while (from < to && projectedFrame[from] == frame)
+            from++;
+        while (to > from && projectedFrame[to - 1] == frame)
+            to--;
+        if (from == to)
+            return;
+        Arrays.fill(projectedFrame, from, to, frame);
+        if (vertices.isSinglePrecision())
+            VertexKernels.transform(viewProjection, cameraPosition.x, cameraPosition.y, cameraPosition.z, vertices.getFloatXArray(), vertices.getFloatYArray(), vertices.getFloatZArray(), from, to, clipXf, clipYf, clipWf, from);
+        else
+            VertexKernels.transform(viewProjection, vertices.getXArray(), vertices.getYArray(), vertices.getZArray(), from, to, clipX, clipY, clipW, from);
+    }
+
+    //projects every vertex of the mesh
+    public void projectAll()
+    {
+        project(0, vertices.size());
+    }
+
+    //copies the projected vertex at "index" (which must have been projected this frame) into slot "slot" of the given arrays
+    public void copyTo(int index, double[] xOut, double[] yOut, double[] wOut, int slot)
+    {
+        if (vertices.isSinglePrecision())
+        {
+            xOut[slot] = clipXf[index];
+            yOut[slot] = clipYf[index];
+            wOut[slot] = clipWf[index];
+        }
+        else
+        {
+            xOut[slot] = clipX[index];
+            yOut[slot] = clipY[index];
+            wOut[slot] = clipW[index];
+        }
+    }
+
+    private void allocate()
+    {
+        int size = Math.max(1, vertices.size());
+        projectedFrame = new int[size];
+        if (vertices.isSinglePrecision())
+        {
+            clipXf = new float[size];
+            clipYf = new float[size];
+            clipWf = new float[size];
+        }
+        else
+        {
+            clipX = new double[size];
+            clipY = new double[size];
+            clipW = new double[size];
+        }
+    }
+
+    private int capacity()
+    {
+        return vertices.isSinglePrecision()? clipXf.length : clipX.length;
+    }
+
+    //#region getter methods
+    public VertexBuffer getVertices()
+    {
+        return vertices;
+    }
+    //#endregion
+}
@@ -0,0 +1,109 @@
+import java.awt.Color;
+
+//a short calibration that picks a QualityPreset for this computer. It renders a small, fixed terrain
+//scene off screen, measuring how many triangles per millisecond can be calculated (projection) and how
+//many pixels per millisecond can be drawn (rasterization). The best preset whose estimated frame time
+//fits within the target frame time is chosen. It takes around a second and a half.
+public class QualityBenchmark
+{
+    //the frame rate that presets should be able to reach
+    private static final double TARGET_FPS = 60;
+    //fraction of the target frame time that a preset's estimate may use, leaving room for physics and swing
+    private static final double FRAME_BUDGET = 0.75;
+    //time spent letting the JIT compiler warm up before measuring, and time spent measuring, in ms
+    private static final long WARMUP_TIME = 500;
+    private static final long MEASURE_TIME = 1000;
+
+    //size of the off screen panel the scene is rendered on
+    private static final int BENCHMARK_WIDTH = 640;
+    private static final int BENCHMARK_HEIGHT = 360;
+
+    //results of the last run
+    private double trianglesPerMs;
+    private double pixelsPerMs;
+    private QualityPreset chosenPreset;
+
+    //runs the benchmark and returns the chosen preset
+    public QualityPreset run()
+    {
+        long start = System.nanoTime();
+
+        //a small piece of terrain, looked at from a low altitude
+        Terrain terrain = new Terrain(-500, -200, 6000, 1000, 120, 120, 0.02, 30, Color.BLUE, Color.GREEN, Color.WHITE);
+        Camera camera = new Camera(new Vector3(0, 2500, 240000), 100000, 100, 60);
+        camera.lookAt(new Vector3(0, 0, 300000));
+        RenderingPanel panel = new RenderingPanel(BENCHMARK_WIDTH, BENCHMARK_HEIGHT);
+        panel.setSize(BENCHMARK_WIDTH, BENCHMARK_HEIGHT);
+        panel.setLighting(new Lighting(new Vector3(1, -1, 1), 30, 150));
+        panel.setCamera(camera);
+        panel.addMesh(terrain);
+
+        //warm up
+        long warmupEnd = System.nanoTime() + WARMUP_TIME*1000000;
+        while (System.nanoTime() < warmupEnd)
+            renderFrame(panel);
+
+        //measure
+        long triangles = 0;
+        long pixels = 0;
+        long projectionTime = 0;
+        long rasterTime = 0;
+        long measureEnd = System.nanoTime() + MEASURE_TIME*1000000;
+        while (System.nanoTime() < measureEnd)
+        {
+            long frameStart = System.nanoTime();
+            panel.computeTriangles();
+            panel.sortTriangles();
+            long rasterStart = System.nanoTime();
+            panel.drawBufferedImage();
+            long frameEnd = System.nanoTime();
+
+            projectionTime += rasterStart - frameStart;
+            rasterTime += frameEnd - rasterStart;
+            triangles += panel.getTrianglesCalculated();
+            pixels += BENCHMARK_WIDTH*BENCHMARK_HEIGHT;
+        }
+        trianglesPerMs = triangles/Math.max(1e-6, projectionTime/1000000.0);
+        pixelsPerMs = pixels/Math.max(1e-6, rasterTime/1000000.0);
+
+        //choose the best preset that fits in the frame budget
+        double panelPixels = (FlightSimulator.DEFAULT_WIDTH - FlightSimulator.DEFAULT_WIDTH/4)*FlightSimulator.DEFAULT_HEIGHT;
+        chosenPreset = QualityPreset.LOW;
+        for (QualityPreset preset : QualityPreset.values())
+        {
+            double renderedPixels = panelPixels*preset.getRenderScale()*preset.getRenderScale();
+            double frameTime = preset.estimatedTriangles()/trianglesPerMs + renderedPixels/pixelsPerMs;
+            if (frameTime <= 1000/TARGET_FPS*FRAME_BUDGET)
+                chosenPreset = preset;
+        }
+
+        System.out.println("quality benchmark finished in " + (System.nanoTime() - start)/1000000 + "ms\n\t- "
+            + (int)trianglesPerMs + " triangles/ms, " + (int)pixelsPerMs + " pixels/ms\n\t- chose " + chosenPreset);
+        return chosenPreset;
+    }
+
+    //renders one frame without showing it
+    private void renderFrame(RenderingPanel panel)
+    {
+        panel.computeTriangles();
+        panel.sortTriangles();
+        panel.drawBufferedImage();
+    }
+
+    //#region getter methods
+    public double getTrianglesPerMs()
+    {
+        return trianglesPerMs;
+    }
+
+    public double getPixelsPerMs()
+    {
+        return pixelsPerMs;
+    }
+
+    public QualityPreset getChosenPreset()
+    {
+        return chosenPreset;
+    }
+    //#endregion
+}
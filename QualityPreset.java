@@ -0,0 +1,96 @@
+import java.awt.Color;
+
+//sets of graphics settings for different speeds of computer. One is chosen by QualityBenchmark the first
+//time the game is run, and it is saved with the user's GameSettings.
+public enum QualityPreset
+{
+    //          terrain interval, view distance, threads, render scale
+    LOW         (2000,            50000,         1,       0.5),
+    MEDIUM      (1500,            75000,         2,       0.75),
+    HIGH        (1000,            100000,        2,       1),
+    ULTRA       (750,             100000,        4,       1);
+
+    //the terrain always covers the same area, the grid interval just changes how many triangles it's made of
+    public static final double TERRAIN_WIDTH = 300000;
+    public static final double TERRAIN_LENGTH = 800000;
+    //noise frequency per unit of distance, so the terrain has the same shape at every resolution
+    private static final double TERRAIN_FREQUENCY = 0.00002;
+
+    //number of terrain triangles calculated per frame at HIGH, measured over a few typical views.
+    //the number scales with the square of the view distance in grid cells.
+    private static final double HIGH_TRIANGLES_PER_FRAME = 45000;
+
+    private final double terrainInterval; //distance between the terrain's grid points
+    private final double viewDistance; //the camera's far clip distance
+    private final int threadCount; //number of threads the renderer may use
+    private final double renderScale; //highest fraction of the panel's resolution to render at
+
+    private QualityPreset(double terrainIntervalIn, double viewDistanceIn, int threadCountIn, double renderScaleIn)
+    {
+        terrainInterval = terrainIntervalIn;
+        viewDistance = viewDistanceIn;
+        threadCount = threadCountIn;
+        renderScale = renderScaleIn;
+    }
+
+    //makes the terrain for this preset
+    public Terrain createTerrain()
+    {
+        return new Terrain
+        (
+            -500, -200, 6000, terrainInterval, getTerrainGridLength(), getTerrainGridWidth(), TERRAIN_FREQUENCY*terrainInterval, 30,
+            new Color(1, 75, 148), new Color(15, 99, 0), new Color(200, 200, 210)
+        );
+    }
+
+    //a rough estimate of how many triangles have to be calculated each frame with this preset
+    public double estimatedTriangles()
+    {
+        double cellsInView = viewDistance/terrainInterval;
+        return HIGH_TRIANGLES_PER_FRAME*cellsInView*cellsInView/(100*100);
+    }
+
+    //returns the preset with the given name, or null if there isn't one (used when reading saved settings)
+    public static QualityPreset fromString(String name)
+    {
+        for (QualityPreset preset : values())
+        {
+            if (preset.name().equalsIgnoreCase(name))
+                return preset;
+        }
+        return null;
+    }
+
+    //#region getter methods
+    public double getTerrainInterval()
+    {
+        return terrainInterval;
+    }
+
+    public int getTerrainGridWidth()
+    {
+        return (int)(TERRAIN_WIDTH/terrainInterval);
+    }
+
+    public int getTerrainGridLength()
+    {
+        return (int)(TERRAIN_LENGTH/terrainInterval);
+    }
+
+    public double getViewDistance()
+    {
+        return viewDistance;
+    }
+
+    //the preset's thread count, limited to the number of processors
+    public int getThreadCount()
+    {
+        return Math.max(1, Math.min(threadCount, Runtime.getRuntime().availableProcessors()));
+    }
+
+    public double getRenderScale()
+    {
+        return renderScale;
+    }
+    //#endregion
+}
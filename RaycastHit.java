@@ -0,0 +1,25 @@
+//where a ray hit a mesh, filled in by SceneRaycaster.raycast() (and MeshBVH.raycast()). One can be kept and
+//passed in again for every ray, so casting rays doesn't create any objects.
+public class RaycastHit
+{
+    public final Vector3 point; //where the ray hit, in world space
+    public final Vector3 normal; //the normal of the triangle that was hit, facing back towards the ray's origin
+    public double distance; //how far along the ray the hit is
+    public Mesh mesh; //the mesh that was hit
+    public int triangle; //the index of the triangle that was hit in mesh.getTriangles()
+
+    public RaycastHit()
+    {
+        point = new Vector3();
+        normal = new Vector3();
+        clear(Double.POSITIVE_INFINITY);
+    }
+
+    //forgets the last hit, so only hits closer than maxDistance are found
+    public void clear(double maxDistance)
+    {
+        distance = maxDistance;
+        mesh = null;
+        triangle = -1;
+    }
+}
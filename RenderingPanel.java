@@ -2,6 +2,10 @@ import javax.swing.JPanel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
 
 import java.awt.Color;
 import java.awt.Point;
@@ -15,39 +19,121 @@ public class RenderingPanel extends JPanel implements Runnable
 {
     //collection of all the objects that the rendering panel will render
     private ArrayList<Mesh> meshes = new ArrayList<Mesh>(); 
-    private ArrayList<Triangle> triangles = new ArrayList<Triangle>(); 
+    private ArrayList<HorizonCuller> horizonCullers = new ArrayList<HorizonCuller>(); //one for each Terrain in meshes
+    private ArrayList<Mesh> occluders = new ArrayList<Mesh>(); //meshes that are always drawn into the depth pyramid
+    private Set<Mesh> occluderSet = Collections.newSetFromMap(new IdentityHashMap<Mesh, Boolean>()); //the same meshes, for checking if a mesh is one
+    private int[] terrainOccluderTiles = new int[0]; //how many tiles of each terrain were used as occluders in the frame
+
+    //occlusion culling:
+    private DepthPyramid depthPyramid; //low resolution depth buffer that meshes and terrain tiles are tested against
+    private double[] meshBounds = new double[6]; //scratch array for the bounding box of a mesh
+    //the nearest terrain triangles are drawn into the depth pyramid, up to this many each frame
+    private static final int TERRAIN_OCCLUDER_BUDGET = 2048;
 
     //for rendering:
-    private BufferedImage renderImage; //the buffered image that triangles are drawn on
+    private BufferedImage renderImage; //the buffered image that triangles are drawn on (the back buffer)
     private Color backgroundColor;
-    private Plane renderPlane; //the plane that triangles are project to in 3d  
     private int[] blankImagePixelColorData; //pixel data of a blank buffered image
+    private int renderWidth; //size of the image that frames are rendered at, before it is stretched to the panel
+    private int renderHeight;
     private ArrayList<Triangle2D> drawQeue; //the qeue of 2d triangles about to be passed to sorting
-    private Matrix3x3 pointRotationMatrix; //the rotation matrix for rotating points onto the xy plane
-    private double pixelsPerUnit; //number of pixels per unit of 3d space based on fov
-    private double renderPlaneWidth; //width of the render plane
-    private Vector3 camCenterPoint; //center of the camera on the render plane.
+    private Matrix4x4 viewProjectionMatrix; //the camera's view and perspective matrices combined, built once per frame
+    //triangles are only drawn if a vertex is (roughly) within the camera's fov: within this many times the
+    //edges of the screen, in normalized screen coordinates.
+    private static final double FOV_MARGIN = 1.2;
+
+    //front to back rendering:
+    //when enabled, triangles are drawn from front to back and a span buffer keeps track of the pixels that
+    //have been drawn already, so each pixel is only written once. Otherwise the painter's algorithm is used,
+    //drawing triangles from back to front over the top of each other. Both give the same image.
+    private boolean spanBufferEnabled = true;
+    private SpanBuffer spanBuffer;
+    private int[] lineBuffer; //pixel data for one line of the image, reused for every line drawn
+
+    //each mesh's vertices are projected at most once per frame into it's projection cache, which
+    //triangles then read their screen coordinates from.
+    private IdentityHashMap<Mesh, ProjectionCache> projectionCaches = new IdentityHashMap<Mesh, ProjectionCache>();
+
+    //scratch arrays that a triangle's vertices, clip space coordinates and screen coordinates are copied into.
+    //A triangle clipped by the near plane can become a quad, so the clip space and screen arrays have room
+    //for four vertices. Reused for every triangle to avoid creating objects.
+    private double[] vertexX = new double[3];
+    private double[] vertexY = new double[3];
+    private double[] vertexZ = new double[3];
+    private double[] clipX = new double[4];
+    private double[] clipY = new double[4];
+    private double[] clipW = new double[4];
+    private double[] screenX = new double[4];
+    private double[] screenY = new double[4];
+    private double[] screenDepth = new double[4];
 
     //Threads:
     private Thread renderingThread;
-    private boolean threadRunning;
-    private int fps;
-    private long lastFrameTime;
+    private volatile boolean threadRunning;
+    private volatile int fps; //can be changed while rendering (see SimulatorMBeans)
+    private long lastFrameTime; //when the last new frame was shown
+    private int displayedFps;
+
+    //frame handoff:
+    //while the rendering thread is running it renders every frame into renderImage, then publishes it by
+    //swapping it into readyFrame and carrying on with whatever image it got back. paintComponent() (on the EDT)
+    //takes the newest frame out of readyFrame, handing the one it showed before back through spareFrame.
+    //The rendering thread and the EDT never use the same image at the same time, and neither of them ever
+    //waits for the other, so a slow frame doesn't hold up input or physics on the EDT.
+    private AtomicReference<BufferedImage> readyFrame = new AtomicReference<BufferedImage>();
+    private AtomicReference<BufferedImage> spareFrame = new AtomicReference<BufferedImage>();
+    private BufferedImage displayedFrame; //the frame on the screen, only used by the EDT
+
+    //pipelining:
+    //when pipelined, the rendering thread only calculates and sorts triangles (projection), and a second
+    //rasterizing thread draws them. There are two frame jobs, each with it's own draw qeue, passed back and
+    //forth between the threads through the two qeues below, so the rendering thread can project the next
+    //frame while the rasterizing thread is still drawing the current one. A frame takes about as long as the
+    //slower of the two stages instead of both added together, and is shown at most one frame later.
+    private boolean pipelined = Runtime.getRuntime().availableProcessors() > 1;
+    private Thread rasterizingThread;
+    private ArrayBlockingQueue<FrameJob> emptyFrameJobs = new ArrayBlockingQueue<FrameJob>(2); //waiting to be projected
+    private ArrayBlockingQueue<FrameJob> projectedFrameJobs = new ArrayBlockingQueue<FrameJob>(2); //waiting to be rasterized
+    private int trianglesCalculated; //number of triangles passed to calculateTriangle() in the last frame
+
+    //metrics:
+    //measured by the threads that render, and read by monitoring tools (see SimulatorMBeans) on other threads,
+    //so the counts of the last frame are only written once the frame is done.
+    private static final int FRAME_TIME_WINDOW = 300; //number of frame times kept for the percentiles
+    private TimingWindow frameTimes = new TimingWindow(FRAME_TIME_WINDOW); //in ms, like the governor gets them
+    private volatile int frameTrianglesSubmitted; //triangles in every mesh, before any culling
+    private volatile int frameTrianglesCalculated; //the last frame's trianglesCalculated
+    private volatile int frameTrianglesQueued; //triangles that made it into the draw qeue
+    private volatile int frameTrianglesPainted; //triangles that were painted (the span buffer skips hidden ones)
+    private long renderingBusyTime; //ns spent rendering since the rendering thread's last loop
+    private UtilizationMeter renderingUtilization = new UtilizationMeter();
+    private UtilizationMeter rasterizingUtilization = new UtilizationMeter();
+    //run at the start of every frame, before any triangles are calculated, on the thread that calculates
+    //them. Used to move objects to where they should be drawn this frame (see Airplane).
+    private Runnable frameUpdater;
 
     //Camera:
     private Camera camera;
-    private Vector3 camDirection; //normalized vector representing the orientation of the camera
     private Vector3 camPos;
 
     //lighting:
     private Lighting lightingObject; 
     
     //fog:
-    private double fogStartDistance;
-    private double fullFogDistance; //distance at which fog is at it's full thickness
-    private boolean fogEnabled = false;
+    //the fog can be changed while rendering (see SimulatorMBeans)
+    private volatile double fogStartDistance;
+    private volatile double fullFogDistance; //distance at which fog is at it's full thickness
+    private volatile boolean fogEnabled = false;
     private Color fogColor;
 
+    //quality governor:
+    //adjusts the render resolution and draw distance based on frame times. The far clip and fog
+    //distances used for a frame are the camera's and setFog()'s values scaled by the draw distance.
+    private FrameGovernor governor;
+    private double farClipDistance; //far clip distance used for the current frame
+    private double frameFogStartDistance;
+    private double frameFullFogDistance;
+
     //constructs a rendering panel object with the specified width and height
     //this is necessary because of the buffered image
     public RenderingPanel(int width, int height)
@@ -61,14 +147,24 @@ public class RenderingPanel extends JPanel implements Runnable
         camera = null;
         lightingObject = null;
         meshes = new ArrayList<Mesh>();
-        triangles = new ArrayList<Triangle>();
+        horizonCullers = new ArrayList<HorizonCuller>();
+        occluders = new ArrayList<Mesh>();
+        occluderSet = Collections.newSetFromMap(new IdentityHashMap<Mesh, Boolean>());
+        projectionCaches = new IdentityHashMap<Mesh, ProjectionCache>();
         drawQeue = new ArrayList<Triangle2D>();
-        camDirection = new Vector3();   
         camPos = new Vector3();
         fps = -1;
         lastFrameTime = System.nanoTime();
         
         //creates the buffered image which will be used to render triangles. 
+        renderWidth = width;
+        renderHeight = height;
+        createRenderImage(width, height);
+    }
+
+    //creates the buffered image that triangles are drawn on, with the given size
+    private void createRenderImage(int width, int height)
+    {
         renderImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
 
         //empty image pixel color data array is used to store the pixel data for a blank image,
@@ -79,16 +175,88 @@ public class RenderingPanel extends JPanel implements Runnable
 
     public void paintComponent(Graphics g) 
     {
+        if (renderingThread != null)
+        {
+            //show the newest frame published by the rendering thread, if there is one
+            BufferedImage frame = readyFrame.getAndSet(null);
+            if (frame != null)
+            {
+                if (displayedFrame != null)
+                    spareFrame.set(displayedFrame);
+                displayedFrame = frame;
+                frameShown();
+            }
+            if (displayedFrame != null)
+                drawFrame(g, displayedFrame);
+        }
+        //without the rendering thread (when paused or rendering off screen) frames are rendered here instead.
         //makes sure that there are triangles to render in the first place, and that the camera exists.
-        if (meshes.size() > 0 && camera != null)
+        else if (meshes.size() > 0 && camera != null)
         {
-            computeTriangles();
-            sortTriangles();
-            drawBufferedImage();
-            g.drawImage(renderImage, 0, 0, this);
+            renderFrame();
+            drawFrame(g, renderImage);
+            frameShown();
         }
         //fps counter 
-        g.drawString("fps: " + (int)(1000000000/(System.nanoTime()-lastFrameTime)), 30, 30);
+        g.drawString("fps: " + displayedFps, 30, 30);
+    }
+
+    //draws a finished frame onto the panel. The frame is stretched to fill the panel when it was rendered
+    //at a lower resolution
+    private void drawFrame(Graphics g, BufferedImage frame)
+    {
+        FlightEvents.Blit event = new FlightEvents.Blit();
+        event.begin();
+        boolean scaled = frame.getWidth() != getWidth() || frame.getHeight() != getHeight();
+        if (!scaled)
+            g.drawImage(frame, 0, 0, this);
+        else
+            g.drawImage(frame, 0, 0, getWidth(), getHeight(), this);
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.frameWidth = frame.getWidth();
+            event.frameHeight = frame.getHeight();
+            event.panelWidth = getWidth();
+            event.panelHeight = getHeight();
+            event.scaled = scaled;
+            event.commit();
+        }
+    }
+
+    //updates the fps counter when a new frame is put on the screen
+    private void frameShown()
+    {
+        long now = System.nanoTime();
+        displayedFps = (int)(1000000000/Math.max(1, now - lastFrameTime));
+        lastFrameTime = now;
+    }
+
+    //renders a complete frame into renderImage, and tells the governor how long it took
+    private void renderFrame()
+    {
+        long frameStart = System.nanoTime();
+        computeTriangles();
+        sortTriangles();
+        drawBufferedImage();
+        long frameTime = System.nanoTime() - frameStart;
+        renderingBusyTime += frameTime;
+        frameTimes.add(frameTime/1000000.0);
+        if (governor != null)
+            governor.update(frameTime/1000000.0);
+    }
+
+    //publishes the frame in renderImage for paintComponent() to show, and takes another image to render the
+    //next frame into: the frame that was published before if it was never shown, otherwise the image the EDT
+    //handed back. A new image is only created if neither is available yet.
+    private void publishFrame()
+    {
+        BufferedImage nextImage = readyFrame.getAndSet(renderImage);
+        if (nextImage == null)
+            nextImage = spareFrame.getAndSet(null);
+        if (nextImage == null)
+            nextImage = new BufferedImage(renderImage.getWidth(), renderImage.getHeight(), BufferedImage.TYPE_INT_RGB);
+        renderImage = nextImage;
     }
 
     /**
@@ -99,6 +267,12 @@ public class RenderingPanel extends JPanel implements Runnable
         fps = Math.max(0, limit);
     }
 
+    //the fps limit, 0 for none
+    public int getFPSlimit()
+    {
+        return Math.max(0, fps);
+    }
+
     //sets the lighting, which updates the lighting of all meshes. 
     public void setLighting(Lighting lighting)
     {
@@ -117,9 +291,11 @@ public class RenderingPanel extends JPanel implements Runnable
         if (mesh != null)
         {
             meshes.add(mesh);
+            projectionCaches.put(mesh, new ProjectionCache(mesh.getVertices()));
             if (lightingObject != null)
                 lightingObject.update(meshes);
-            triangles.addAll(mesh.getTriangles());
+            if (mesh instanceof Terrain)
+                horizonCullers.add(new HorizonCuller((Terrain)mesh));
         }
         else
         {
@@ -127,6 +303,21 @@ public class RenderingPanel extends JPanel implements Runnable
         }
     }
 
+    //adds a mesh to be rendered which is also used as an occluder, meaning meshes and terrain behind
+    //it are skipped before their triangles are calculated. Best for large meshes close to the camera, like the airplane.
+    public void addOccluder(Mesh mesh)
+    {
+        addMesh(mesh);
+        if (mesh != null && occluderSet.add(mesh))
+            occluders.add(mesh);
+    }
+
+    //sets the code run at the start of every frame, before the camera is read and triangles are calculated
+    public void setFrameUpdater(Runnable frameUpdaterIn)
+    {
+        frameUpdater = frameUpdaterIn;
+    }
+
     //sets the camera 
     public void setCamera(Camera camIn)
     {
@@ -136,8 +327,6 @@ public class RenderingPanel extends JPanel implements Runnable
             return;
         }
         camera = camIn;
-        renderPlaneWidth = camera.getRenderPlaneWidth();
-        renderPlane = new Plane(Vector3.add(Vector3.multiply(camDirection, camera.getRenderPlaneDistance()), camera.getPosition()), camDirection);;
     }
 
     //sets the fog with specified values
@@ -149,6 +338,121 @@ public class RenderingPanel extends JPanel implements Runnable
         fogEnabled = true;
     }
 
+    //sets the governor which adjusts the render resolution and draw distance to keep frame times near
+    //it's target. null turns it off, rendering at full resolution and draw distance.
+    public void setGovernor(FrameGovernor governorIn)
+    {
+        governor = governorIn;
+    }
+
+    public FrameGovernor getGovernor()
+    {
+        return governor;
+    }
+
+    //number of triangles that were calculated in the last finished frame (after terrain and occlusion culling)
+    public int getTrianglesCalculated()
+    {
+        return frameTrianglesCalculated;
+    }
+
+    //number of triangles that were put in the draw qeue in the last finished frame
+    public int getTrianglesDrawn()
+    {
+        return frameTrianglesQueued;
+    }
+
+    //changes the fog's distances, keeping it's color and whether it's on
+    public void setFogDistances(double fogStartDistanceIn, double fullFogDistanceIn)
+    {
+        fogStartDistance = fogStartDistanceIn;
+        fullFogDistance = fullFogDistanceIn;
+    }
+
+    public double getFogStartDistance()
+    {
+        return fogStartDistance;
+    }
+
+    public double getFullFogDistance()
+    {
+        return fullFogDistance;
+    }
+
+    public boolean isFogEnabled()
+    {
+        return fogEnabled;
+    }
+
+    //the following are measurements of the last frames, for monitoring (see SimulatorMBeans)
+
+    //the times of the last frames, in milliseconds. When pipelined, a frame's time is it's slower stage.
+    public TimingWindow getFrameTimes()
+    {
+        return frameTimes;
+    }
+
+    //number of triangles in every mesh in the last frame, before any of them were culled
+    public int getFrameTrianglesSubmitted()
+    {
+        return frameTrianglesSubmitted;
+    }
+
+    //number of triangles that were calculated in the last frame, after terrain and occlusion culling
+    public int getFrameTrianglesCalculated()
+    {
+        return frameTrianglesCalculated;
+    }
+
+    //number of triangles put in the last frame's draw qeue, after clipping and back face culling
+    public int getFrameTrianglesQueued()
+    {
+        return frameTrianglesQueued;
+    }
+
+    //number of triangles painted in the last frame
+    public int getFrameTrianglesPainted()
+    {
+        return frameTrianglesPainted;
+    }
+
+    //number of projected frames waiting for the rasterizing thread (0 to 2), always 0 when not pipelined
+    public int getProjectedFrameCount()
+    {
+        return projectedFrameJobs.size();
+    }
+
+    //fraction of the time that the rendering thread spends rendering (or projecting, when pipelined),
+    //rather than sleeping or waiting for the rasterizing thread
+    public double getRenderingUtilization()
+    {
+        return (renderingThread == null)? 0 : renderingUtilization.getUtilization();
+    }
+
+    //fraction of the time that the rasterizing thread spends rasterizing, 0 when not pipelined
+    public double getRasterizingUtilization()
+    {
+        return (rasterizingThread == null)? 0 : rasterizingUtilization.getUtilization();
+    }
+
+    //the horizon culler of "terrain", which knows how many of it's tiles were visible in the last frame.
+    //null if the terrain isn't being rendered.
+    public HorizonCuller getHorizonCuller(Terrain terrain)
+    {
+        for (int i = 0; i < horizonCullers.size(); i++)
+        {
+            if (horizonCullers.get(i).getTerrain() == terrain)
+                return horizonCullers.get(i);
+        }
+        return null;
+    }
+
+    //the meshes being rendered, which shouldn't be changed
+    public ArrayList<Mesh> getMeshes()
+    {
+        return meshes;
+    }
+
     public void enableFog()
     {
         fogEnabled = true;
@@ -161,35 +465,214 @@ public class RenderingPanel extends JPanel implements Runnable
 
     public void computeTriangles()
     {
-        pixelsPerUnit = getWidth()/renderPlaneWidth;
-        renderPlaneWidth = camera.getRenderPlaneWidth();
-        camPos = camera.getPosition();
-        camDirection = camera.getDirectionVector();
-        camCenterPoint = Vector3.add(Vector3.multiply(camDirection, camera.getRenderPlaneDistance()), camPos);
-        renderPlane = new Plane(Vector3.add(Vector3.multiply(camDirection, camera.getRenderPlaneDistance()), camPos), camDirection);
-        pointRotationMatrix = Matrix3x3.multiply(Matrix3x3.rotationMatrixAxisX(camera.getVorientation()*0.017453292519943295), Matrix3x3.rotationMatrixAxisY(-camera.getHorientation()*0.017453292519943295));
+        if (frameUpdater != null)
+            frameUpdater.run();
+
+        FlightEvents.Project event = new FlightEvents.Project();
+        event.begin();
+
+        //apply the governor's render scale and draw distance for this frame
+        double renderScale = (governor == null)? 1 : governor.getRenderScale();
+        double drawDistance = (governor == null)? 1 : governor.getDrawDistance();
+        int width = Math.max(1, (int)Math.round(getWidth()*renderScale));
+        int height = Math.max(1, (int)Math.round(getHeight()*renderScale));
+        renderWidth = width;
+        renderHeight = height;
+        farClipDistance = camera.getFarClipDistancee()*drawDistance;
+        frameFogStartDistance = fogStartDistance*drawDistance;
+        frameFullFogDistance = fullFogDistance*drawDistance;
+
+        //read the camera's position and angles once, so the whole frame uses the same view
+        Camera.CameraState view = camera.getState();
+        camPos = view.position;
+        viewProjectionMatrix = Matrix4x4.multiply(camera.getProjectionMatrix((double)renderWidth/renderHeight, farClipDistance), view.getViewMatrix());
         
         drawQeue.clear();
-        for (int i = 0; i < triangles.size(); i ++)
+        trianglesCalculated = 0;
+        int trianglesSubmitted = 0;
+        for (int i = 0; i < meshes.size(); i++)
+            trianglesSubmitted += meshes.get(i).getTriangles().size();
+        if (depthPyramid == null || depthPyramid.getScreenWidth() != renderWidth || depthPyramid.getScreenHeight() != renderHeight)
+            depthPyramid = new DepthPyramid(renderWidth, renderHeight);
+        depthPyramid.beginFrame(viewProjectionMatrix, camera.getNearClipDistance());
+
+        //terrain is culled tile by tile with the horizon first
+        for (int i = 0; i < horizonCullers.size(); i++)
+            horizonCullers.get(i).cull(camPos, farClipDistance);
+
+        for (ProjectionCache cache : projectionCaches.values())
+            cache.beginFrame(viewProjectionMatrix, camPos);
+
+        //occluders are calculated first, drawing them into the depth pyramid as well as the draw qeue:
+        //the occluder meshes, and the closest visible terrain tiles (the culler returns them front to back)
+        for (int i = 0; i < occluders.size(); i++)
+            calculateMesh(occluders.get(i), true);
+        if (terrainOccluderTiles.length < horizonCullers.size())
+            terrainOccluderTiles = new int[horizonCullers.size()];
+        Arrays.fill(terrainOccluderTiles, 0);
+        for (int i = 0; i < horizonCullers.size(); i++)
         {
-            calculateTriangle(triangles.get(i));
+            HorizonCuller culler = horizonCullers.get(i);
+            Terrain terrain = culler.getTerrain();
+            int occluderTriangles = 0;
+            while (terrainOccluderTiles[i] < culler.getVisibleTileCount() && occluderTriangles < TERRAIN_OCCLUDER_BUDGET)
+            {
+                int tile = culler.getVisibleTile(terrainOccluderTiles[i]++);
+                calculateTile(terrain, tile, true);
+                occluderTriangles += terrain.getTileTriangleEnd(tile) - terrain.getTileTriangleStart(tile);
+            }
         }
+        depthPyramid.buildLevels();
 
+        //everything else is tested against the depth pyramid before it's triangles are calculated
+        for (int i = 0; i < meshes.size(); i++)
+        {
+            Mesh mesh = meshes.get(i);
+            if (!(mesh instanceof Terrain) && !occluderSet.contains(mesh))
+            {
+                VertexBuffer vertices = mesh.getVertices();
+                if (vertices.getBounds(meshBounds) && depthPyramid.isOccluded(meshBounds[0], meshBounds[1], meshBounds[2], meshBounds[3], meshBounds[4], meshBounds[5]))
+                    continue;
+                calculateMesh(mesh, false);
+            }
+        }
+        for (int i = 0; i < horizonCullers.size(); i++)
+        {
+            HorizonCuller culler = horizonCullers.get(i);
+            Terrain terrain = culler.getTerrain();
+            for (int j = terrainOccluderTiles[i]; j < culler.getVisibleTileCount(); j++)
+            {
+                int tile = culler.getVisibleTile(j);
+                if (!depthPyramid.isOccluded(terrain.getTileMinX(tile), terrain.getTileMinY(tile), terrain.getTileMinZ(tile), terrain.getTileMaxX(tile), terrain.getTileMaxY(tile), terrain.getTileMaxZ(tile)))
+                    calculateTile(terrain, tile, false);
+            }
+        }
+        frameTrianglesSubmitted = trianglesSubmitted;
+        frameTrianglesCalculated = trianglesCalculated;
+        frameTrianglesQueued = drawQeue.size();
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.trianglesSubmitted = trianglesSubmitted;
+            event.trianglesCalculated = trianglesCalculated;
+            event.trianglesQueued = drawQeue.size();
+            for (int i = 0; i < horizonCullers.size(); i++)
+                event.visibleTiles += horizonCullers.get(i).getVisibleTileCount();
+            event.width = width;
+            event.height = height;
+            event.commit();
+        }
+    }
+
+    //calculates all of the triangles of a mesh
+    private void calculateMesh(Mesh mesh, boolean occluder)
+    {
+        ProjectionCache cache = projectionCaches.get(mesh);
+        cache.projectAll();
+        ArrayList<Triangle> triangles = mesh.getTriangles();
+        for (int i = 0; i < triangles.size(); i++)
+            calculateTriangle(triangles.get(i), cache, occluder);
+    }
+
+    //calculates the triangles of one terrain tile
+    private void calculateTile(Terrain terrain, int tile, boolean occluder)
+    {
+        ProjectionCache cache = projectionCaches.get(terrain);
+        //each column of the tile's grid vertices is next to each other in the vertex buffer
+        int firstZ = terrain.getTileFirstGridZ(tile);
+        int lastZ = terrain.getTileLastGridZ(tile);
+        for (int x = terrain.getTileFirstGridX(tile); x <= terrain.getTileLastGridX(tile); x++)
+            cache.project(terrain.vertexIndex(x, firstZ), terrain.vertexIndex(x, lastZ) + 1);
+        ArrayList<Triangle> triangles = terrain.getTriangles();
+        for (int i = terrain.getTileTriangleStart(tile); i < terrain.getTileTriangleEnd(tile); i++)
+            calculateTriangle(triangles.get(i), cache, occluder);
     }
 
     public void sortTriangles()
     {
+        FlightEvents.Sort event = new FlightEvents.Sort();
+        event.begin();
         Collections.sort(drawQeue);
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.triangles = drawQeue.size();
+            event.commit();
+        }
     }
 
     public void drawBufferedImage()
     {
-        renderImage.getRaster().setDataElements(0, 0, renderImage.getWidth(), renderImage.getHeight(), blankImagePixelColorData);
-        for (int i = 0; i < drawQeue.size(); i++)
+        drawBufferedImage(drawQeue, renderWidth, renderHeight);
+    }
+
+    //draws a sorted draw qeue that was calculated for an image of the given size into renderImage
+    private void drawBufferedImage(ArrayList<Triangle2D> drawQeue, int width, int height)
+    {
+        FlightEvents.Rasterize event = new FlightEvents.Rasterize();
+        event.begin();
+        if (width != renderImage.getWidth() || height != renderImage.getHeight())
+            createRenderImage(width, height);
+        int trianglesPainted = 0;
+        if (spanBufferEnabled)
+        {
+            if (spanBuffer == null || spanBuffer.getWidth() != renderImage.getWidth() || spanBuffer.getHeight() != renderImage.getHeight())
+                spanBuffer = new SpanBuffer(renderImage.getWidth(), renderImage.getHeight());
+            spanBuffer.clear();
+
+            //the draw qeue is sorted from back to front, so go through it backwards
+            for (int i = drawQeue.size()-1; i >= 0 && !spanBuffer.isFull(); i--)
+            {
+                Triangle2D triangle2d = drawQeue.get(i);
+                //skip triangles that are on rows that have already been completely drawn
+                int top = Math.min(triangle2d.p1.y, Math.min(triangle2d.p2.y, triangle2d.p3.y));
+                int bottom = Math.max(triangle2d.p1.y, Math.max(triangle2d.p2.y, triangle2d.p3.y));
+                if (!spanBuffer.isCovered(top, bottom-1))
+                {
+                    paintTriangle(triangle2d.p1, triangle2d.p2, triangle2d.p3, triangle2d.color);
+                    trianglesPainted++;
+                }
+            }
+
+            //whatever wasn't covered by a triangle is background
+            int backgroundRGB = convertToIntRGB(backgroundColor);
+            for (int y = 0; y < renderImage.getHeight(); y++)
+                drawHorizontalLine(0, renderImage.getWidth(), y, backgroundRGB);
+        }
+        else
         {
-            Triangle2D triangle2d = drawQeue.get(i);
-            paintTriangle(triangle2d.p1, triangle2d.p2, triangle2d.p3, triangle2d.color);
+            renderImage.getRaster().setDataElements(0, 0, renderImage.getWidth(), renderImage.getHeight(), blankImagePixelColorData);
+            for (int i = 0; i < drawQeue.size(); i++)
+            {
+                Triangle2D triangle2d = drawQeue.get(i);
+                paintTriangle(triangle2d.p1, triangle2d.p2, triangle2d.p3, triangle2d.color);
+            }
+            trianglesPainted = drawQeue.size();
         }
+        frameTrianglesPainted = trianglesPainted;
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.trianglesQueued = drawQeue.size();
+            event.trianglesPainted = trianglesPainted;
+            event.spanBuffer = spanBufferEnabled;
+            event.width = width;
+            event.height = height;
+            event.commit();
+        }
+    }
+
+    //chooses between front to back rendering with a span buffer (the default), or the painter's algorithm
+    public void setSpanBufferEnabled(boolean enabled)
+    {
+        spanBufferEnabled = enabled;
+    }
+
+    //turns pipelining on or off (see the pipelining fields). Only takes effect the next time the
+    //rendering thread is started.
+    public void setPipelined(boolean pipelinedIn)
+    {
+        pipelined = pipelinedIn;
     }
 
     public void start()
@@ -199,15 +682,47 @@ public class RenderingPanel extends JPanel implements Runnable
         if (renderingThread == null)
         {
             threadRunning = true;
+            if (pipelined)
+            {
+                emptyFrameJobs.clear();
+                projectedFrameJobs.clear();
+                emptyFrameJobs.add(new FrameJob());
+                emptyFrameJobs.add(new FrameJob());
+                rasterizingThread = new Thread(new Runnable()
+                {
+                    public void run()
+                    {
+                        rasterizeFrames();
+                    }
+                }, "Rasterizing");
+                rasterizingThread.start();
+            }
             renderingThread = new Thread(this, "Rendering");
             renderingThread.start();
         }
     }
 
+    //renders frames until the thread is stopped, asking swing to show each one as it is published.
+    //when pipelined, this only projects frames and passes them on to the rasterizing thread.
     public void run() 
     {
+        long lastLoopTime = System.nanoTime();
         while(threadRunning)
         {
+            if (meshes.size() > 0 && camera != null && getWidth() > 0 && getHeight() > 0)
+            {
+                if (rasterizingThread != null)
+                {
+                    if (!projectFrame())
+                        break;
+                }
+                else
+                {
+                    renderFrame();
+                    publishFrame();
+                    repaint();
+                }
+            }
             if (fps > 0)
             {
                 try
@@ -217,96 +732,192 @@ public class RenderingPanel extends JPanel implements Runnable
                 catch (InterruptedException e)
                 {}
             }
+            else
+                Thread.yield();
+
+            long now = System.nanoTime();
+            renderingUtilization.add(renderingBusyTime, now - lastLoopTime);
+            renderingBusyTime = 0;
+            lastLoopTime = now;
+        }
+    }
+
+
+    //the projection stage of the pipeline: calculates and sorts the triangles of the next frame into an
+    //empty frame job, waiting for one if the rasterizing thread has both. Returns false if the thread was
+    //interrupted while waiting.
+    private boolean projectFrame()
+    {
+        FrameJob job;
+        try
+        {
+            job = emptyFrameJobs.take();
+        }
+        catch (InterruptedException e)
+        {
+            return false;
+        }
+
+        long projectionStart = System.nanoTime();
+        drawQeue = job.drawQeue;
+        computeTriangles();
+        sortTriangles();
+        job.width = renderWidth;
+        job.height = renderHeight;
+        //the pipeline runs as fast as it's slower stage. The rasterization time is from the last frame
+        //that this job was used for.
+        long projectionNanos = System.nanoTime() - projectionStart;
+        renderingBusyTime += projectionNanos;
+        double projectionTime = projectionNanos/1000000.0;
+        frameTimes.add(Math.max(projectionTime, job.rasterizationTime));
+        if (governor != null)
+            governor.update(Math.max(projectionTime, job.rasterizationTime));
+
+        projectedFrameJobs.add(job); //never full, there are only two jobs
+        return true;
+    }
+
+    //the rasterization stage of the pipeline, run by the rasterizing thread: draws projected frames and
+    //publishes them, then hands the jobs back to be projected again.
+    private void rasterizeFrames()
+    {
+        long lastLoopTime = System.nanoTime();
+        while (threadRunning)
+        {
+            FrameJob job;
+            try
+            {
+                job = projectedFrameJobs.take();
+            }
+            catch (InterruptedException e)
+            {
+                break;
+            }
+
+            long rasterizationStart = System.nanoTime();
+            drawBufferedImage(job.drawQeue, job.width, job.height);
+            publishFrame();
             repaint();
+            long rasterizationEnd = System.nanoTime();
+            job.rasterizationTime = (rasterizationEnd - rasterizationStart)/1000000.0;
+            rasterizingUtilization.add(rasterizationEnd - rasterizationStart, rasterizationEnd - lastLoopTime);
+            lastLoopTime = rasterizationEnd;
+            emptyFrameJobs.add(job);
         }
     }
 
+    //stops the rendering thread, waiting for it to finish the frame it's on so that nothing else renders
+    //at the same time as it.
     public void stopThread()
     {
+        if (renderingThread == null)
+            return;
         try
         {
             threadRunning = false;
             renderingThread.interrupt();
-            renderingThread = null;
+            renderingThread.join();
+            if (rasterizingThread != null)
+            {
+                rasterizingThread.interrupt();
+                rasterizingThread.join();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            System.err.println("WARNING at: RenderingPanel/stopThread() method: \n\tinterrupted while waiting for the rendering thread to stop");
         }
         catch (SecurityException e)
         {
 
         }
+        renderingThread = null;
+        rasterizingThread = null;
+        drawQeue = new ArrayList<Triangle2D>(); //the frame jobs' draw qeues aren't used anymore
+        readyFrame.set(null);
+        spareFrame.set(null);
+        displayedFrame = null;
     }
 
     //calculates the three screen coordinates of a single triangle in world space, based off the orientation and position of the camera. 
     //It then adds the resulting 2d triangle into the triangle2dList for painting later. 
-    private void calculateTriangle(Triangle triangle)
+    //the triangle's vertices must already be projected in "cache", the projection cache of it's mesh.
+    //if "occluder" is true, the triangle is also drawn into the depth pyramid when it is going to be painted.
+    private void calculateTriangle(Triangle triangle, ProjectionCache cache, boolean occluder)
     {
-        Vector3 triangleCenter = triangle.getCenter();
-        double distanceToTriangle = Vector3.subtract(triangleCenter, camPos).getMagnitude();  
+        trianglesCalculated++;
+        //copy the three verticies into the scratch arrays
+        VertexBuffer vertices = triangle.getMesh().getVertices();
+        vertices.copyTo(triangle.vertex1, vertexX, vertexY, vertexZ, 0);
+        vertices.copyTo(triangle.vertex2, vertexX, vertexY, vertexZ, 1);
+        vertices.copyTo(triangle.vertex3, vertexX, vertexY, vertexZ, 2);
+        double[] x = vertexX;
+        double[] y = vertexY;
+        double[] z = vertexZ;
+
+        //vector from the camera to the center of the triangle
+        double toCenterX = (x[0] + x[1] + x[2])/3 - camPos.x;
+        double toCenterY = (y[0] + y[1] + y[2])/3 - camPos.y;
+        double toCenterZ = (z[0] + z[1] + z[2])/3 - camPos.z;
+        double distanceToTriangle = Math.sqrt(toCenterX*toCenterX + toCenterY*toCenterY + toCenterZ*toCenterZ);
+
+        //normal of the triangle (not normalized, only the sign of the dot product is needed)
+        double ax = x[0]-x[1], ay = y[0]-y[1], az = z[0]-z[1];
+        double bx = x[1]-x[2], by = y[1]-y[2], bz = z[1]-z[2];
+        double normalX = ay*bz - az*by;
+        double normalY = az*bx - ax*bz;
+        double normalZ = ax*by - ay*bx;
 
         if 
         (
-            Vector3.dotProduct(Vector3.subtract(triangleCenter, camPos), camDirection) > 0 //is the triangle on the side that the camera is facing?
-            && distanceToTriangle < camera.getFarClipDistancee() //is the triangle within the camera's render distance?
-            && (Vector3.dotProduct(triangle.getPlane().normal, Vector3.subtract(triangleCenter, camPos)) < 0) //is the triangle facing away? 
+            distanceToTriangle < farClipDistance //is the triangle within the camera's render distance?
+            && normalX*toCenterX + normalY*toCenterY + normalZ*toCenterZ < 0 //is the triangle facing away? 
         )
         {
-            Plane nearClipPlane = new Plane(Vector3.add(camPos, Vector3.multiply(camDirection, camera.getNearClipDistance())), camDirection);
-            if 
-            (
-                Vector3.dotProduct(nearClipPlane.normal, Vector3.subtract(triangle.vertex1, nearClipPlane.pointOnPlane)) < 0
-                || Vector3.dotProduct(nearClipPlane.normal, Vector3.subtract(triangle.vertex1, nearClipPlane.pointOnPlane)) < 0
-                || Vector3.dotProduct(nearClipPlane.normal, Vector3.subtract(triangle.vertex1, nearClipPlane.pointOnPlane)) < 0
-            )
-            return;
+            //look up the clip space coordinates of the three verticies
+            cache.copyTo(triangle.vertex1, clipX, clipY, clipW, 0);
+            cache.copyTo(triangle.vertex2, clipX, clipY, clipW, 1);
+            cache.copyTo(triangle.vertex3, clipX, clipY, clipW, 2);
 
-            //create local variables: 
+            //is the whole triangle closer than the near clipping plane (or behind the camera)?
+            double nearClip = camera.getNearClipDistance();
+            if (clipW[0] < nearClip && clipW[1] < nearClip && clipW[2] < nearClip)
+                return;
 
-            //the screen coords of the triangle, to be determined by the rest of the method.
-            Point p1ScreenCoords = new Point();
-            Point p2ScreenCoords = new Point();
-            Point p3ScreenCoords = new Point();
-            //boolean default false, but set true if just one of the verticies is within the camera's fov. 
+            //cut off the part of the triangle that is closer than the near clipping plane
+            boolean clipped = clipW[0] < nearClip || clipW[1] < nearClip || clipW[2] < nearClip;
+            int vertexCount = clipped? clipToNearPlane(nearClip) : 3;
+
+            //only draw the triangle if at least one of the verticies is (roughly) within the camera's fov,
+            //then divide by w to get the screen coordinates.
             boolean shouldDrawTriangle = false;
-            Vector3 triangleVertex1 = new Vector3(triangle.vertex1);
-            Vector3 triangleVertex2 = new Vector3(triangle.vertex2);
-            Vector3 triangleVertex3 = new Vector3(triangle.vertex3);
-
-            triangleVertex1 = Vector3.getIntersectionPoint(Vector3.subtract(triangleVertex1, camPos), camPos, renderPlane);
-            Vector3 rotatedPoint = Vector3.applyMatrix(pointRotationMatrix, Vector3.subtract(triangleVertex1, camCenterPoint));
-            if ((Math.abs(rotatedPoint.x) < renderPlaneWidth/2*1.2 && Math.abs(rotatedPoint.y) < renderPlaneWidth*((double)getHeight()/(double)getWidth())/2*1.2))
-                shouldDrawTriangle = true;
-            p1ScreenCoords.x = (int)(getWidth()/2 + rotatedPoint.x*pixelsPerUnit);
-            p1ScreenCoords.y = (int)(getHeight()/2 - rotatedPoint.y*pixelsPerUnit);
-    
-            triangleVertex2 = Vector3.getIntersectionPoint(Vector3.subtract(triangleVertex2, camPos), camPos, renderPlane);
-            rotatedPoint = Vector3.applyMatrix(pointRotationMatrix, Vector3.subtract(triangleVertex2, camCenterPoint));
-            if ((Math.abs(rotatedPoint.x) < renderPlaneWidth/2*1.2 && Math.abs(rotatedPoint.y) < renderPlaneWidth*((double)getHeight()/getWidth())/2*1.2))
-                shouldDrawTriangle = true;
-            p2ScreenCoords.x = (int)(getWidth()/2 + rotatedPoint.x*pixelsPerUnit);
-            p2ScreenCoords.y = (int)(getHeight()/2 - rotatedPoint.y*pixelsPerUnit);
-    
-            triangleVertex3 = new Vector3(triangle.vertex3);
-            triangleVertex3 = Vector3.getIntersectionPoint(Vector3.subtract(triangleVertex3, camPos), camPos, renderPlane);
-            rotatedPoint = Vector3.applyMatrix(pointRotationMatrix, Vector3.subtract(triangleVertex3, camCenterPoint));
-            if ((Math.abs(rotatedPoint.x) < renderPlaneWidth/2*1.2 && Math.abs(rotatedPoint.y) < renderPlaneWidth*((double)getHeight()/getWidth())/2*1.2))
-                shouldDrawTriangle = true;
-            p3ScreenCoords.x = (int)(getWidth()/2 + rotatedPoint.x*pixelsPerUnit);
-            p3ScreenCoords.y = (int)(getHeight()/2 - rotatedPoint.y*pixelsPerUnit);
+            for (int i = 0; i < vertexCount; i++)
+            {
+                if (Math.abs(clipX[i]) < clipW[i]*FOV_MARGIN && Math.abs(clipY[i]) < clipW[i]*FOV_MARGIN)
+                    shouldDrawTriangle = true;
+                screenX[i] = renderWidth/2.0*(1 + clipX[i]/clipW[i]);
+                screenY[i] = renderHeight/2.0*(1 - clipY[i]/clipW[i]);
+                screenDepth[i] = clipW[i];
+            }
 
             if (shouldDrawTriangle)
             {
+                if (occluder && !clipped)
+                    depthPyramid.addOccluder(screenX, screenY, screenDepth);
+
                 Color colorUsed;
                 if (triangle.getMesh() != null && triangle.getMesh().isShaded())
                 {
                     Color litColor = triangle.getColorWithLighting();
-                    if (fogEnabled && distanceToTriangle > fogStartDistance)
+                    if (fogEnabled && distanceToTriangle > frameFogStartDistance)
                     {
                         Color triangleColor;
-                        if (distanceToTriangle > fullFogDistance)
+                        if (distanceToTriangle > frameFullFogDistance)
                             triangleColor = fogColor;
                         else
                         {
                             //skews the triangle's color closer to the fog color as a function of distance. 
-                            double fogAmt = (distanceToTriangle-fogStartDistance)/(fullFogDistance-fogStartDistance);
+                            double fogAmt = (distanceToTriangle-frameFogStartDistance)/(frameFullFogDistance-frameFogStartDistance);
                             int red = litColor.getRed() + (int)((fogColor.getRed()-litColor.getRed())*fogAmt*fogAmt);
                             int green = litColor.getGreen() + (int)((fogColor.getGreen()-litColor.getGreen())*fogAmt*fogAmt);
                             int blue = litColor.getBlue() + (int)((fogColor.getBlue()-litColor.getBlue())*fogAmt*fogAmt);
@@ -328,12 +939,58 @@ public class RenderingPanel extends JPanel implements Runnable
                 {
                     colorUsed = Color.MAGENTA;
                 }
-                //adds the 2d triangle object into the triangle2d array.
-                drawQeue.add(new Triangle2D(p1ScreenCoords, p2ScreenCoords, p3ScreenCoords, colorUsed, distanceToTriangle));
+                //adds the 2d triangle object into the triangle2d array, as a fan of two triangles if
+                //clipping turned it into a quad.
+                Point p1ScreenCoords = new Point((int)screenX[0], (int)screenY[0]);
+                for (int i = 1; i < vertexCount - 1; i++)
+                {
+                    Point p2ScreenCoords = new Point((int)screenX[i], (int)screenY[i]);
+                    Point p3ScreenCoords = new Point((int)screenX[i + 1], (int)screenY[i + 1]);
+                    drawQeue.add(new Triangle2D(p1ScreenCoords, p2ScreenCoords, p3ScreenCoords, colorUsed, distanceToTriangle));
+                }
             }
         }
     }
 
+    //clips the triangle in the clip space scratch arrays against the near clipping plane (w = nearClip),
+    //replacing it with the part in front of the plane. Each vertex behind the plane is replaced by the points
+    //where it's two edges cross the plane, so the result has 3 or 4 verticies, which is returned. Clip space
+    //coordinates are linear along the edges, so they can be interpolated directly.
+    private int clipToNearPlane(double nearClip)
+    {
+        double[] inX = vertexX, inY = vertexY, inW = vertexZ; //the world space verticies aren't needed anymore
+        for (int i = 0; i < 3; i++)
+        {
+            inX[i] = clipX[i];
+            inY[i] = clipY[i];
+            inW[i] = clipW[i];
+        }
+
+        int count = 0;
+        for (int i = 0; i < 3; i++)
+        {
+            int j = (i + 1)%3;
+            boolean inFront = inW[i] >= nearClip;
+            if (inFront)
+            {
+                clipX[count] = inX[i];
+                clipY[count] = inY[i];
+                clipW[count] = inW[i];
+                count++;
+            }
+            //the edge to the next vertex crosses the plane
+            if (inFront != (inW[j] >= nearClip))
+            {
+                double t = (nearClip - inW[i])/(inW[j] - inW[i]);
+                clipX[count] = inX[i] + (inX[j] - inX[i])*t;
+                clipY[count] = inY[i] + (inY[j] - inY[i])*t;
+                clipW[count] = nearClip;
+                count++;
+            }
+        }
+        return count;
+    }
+
     //returns the integer rgb value of a color, which is used for buffered images. 
     private int convertToIntRGB(Color color)
     {
@@ -388,7 +1045,7 @@ public class RenderingPanel extends JPanel implements Runnable
             if (p2.x - p1.x == 0)
             {
                 edge1 = Math.max(0, Math.min(renderImage.getWidth(), p1.x));
-                for (yScanLine = p1.y; yScanLine < p2.y && yScanLine < renderImage.getHeight(); yScanLine ++)
+                for (yScanLine = Math.max(0, p1.y); yScanLine < p2.y && yScanLine < renderImage.getHeight(); yScanLine ++)
                 {
                     if (yScanLine >= 0)
                     {
@@ -400,7 +1057,7 @@ public class RenderingPanel extends JPanel implements Runnable
             else if (p3.x-p1.x == 0)
             {
                 edge2 = Math.max(0, Math.min(renderImage.getWidth(), p1.x));
-                for (yScanLine = p1.y; yScanLine < p2.y && yScanLine < renderImage.getHeight(); yScanLine ++)
+                for (yScanLine = Math.max(0, p1.y); yScanLine < p2.y && yScanLine < renderImage.getHeight(); yScanLine ++)
                 {
                     if (yScanLine >= 0)
                     {
@@ -411,7 +1068,7 @@ public class RenderingPanel extends JPanel implements Runnable
             }
             else
             {
-                for (yScanLine = p1.y; yScanLine < p2.y && yScanLine < renderImage.getHeight(); yScanLine ++)
+                for (yScanLine = Math.max(0, p1.y); yScanLine < p2.y && yScanLine < renderImage.getHeight(); yScanLine ++)
                 {
                     if (yScanLine >= 0)
                     {
@@ -430,7 +1087,7 @@ public class RenderingPanel extends JPanel implements Runnable
             if (p3.x-p2.x == 0)
             {
                 edge1 = Math.max(0, Math.min(renderImage.getWidth(), p2.x));
-                for (yScanLine = p2.y; yScanLine < p3.y && yScanLine < renderImage.getHeight(); yScanLine ++)
+                for (yScanLine = Math.max(0, p2.y); yScanLine < p3.y && yScanLine < renderImage.getHeight(); yScanLine ++)
                 {
                     if (yScanLine >= 0)
                     {
@@ -442,7 +1099,7 @@ public class RenderingPanel extends JPanel implements Runnable
             else if (p3.x - p1.x == 0)
             {
                 edge2 = Math.max(0, Math.min(renderImage.getWidth(), p3.x));
-                for (yScanLine = p2.y; yScanLine < p3.y && yScanLine < renderImage.getHeight(); yScanLine ++)
+                for (yScanLine = Math.max(0, p2.y); yScanLine < p3.y && yScanLine < renderImage.getHeight(); yScanLine ++)
                 {
                     if (yScanLine >= 0)
                     {
@@ -453,7 +1110,7 @@ public class RenderingPanel extends JPanel implements Runnable
             }
             else
             {
-                for (yScanLine = p2.y; yScanLine < p3.y && yScanLine < renderImage.getHeight(); yScanLine ++)
+                for (yScanLine = Math.max(0, p2.y); yScanLine < p3.y && yScanLine < renderImage.getHeight(); yScanLine ++)
                 {
                     if (yScanLine >= 0)
                     {
@@ -467,11 +1124,40 @@ public class RenderingPanel extends JPanel implements Runnable
     }
 
     //draws a horizontal line with the given constraints and the specified integer rgb color.
+    //with the span buffer enabled, only the parts of the line that haven't been drawn yet are drawn.
     private void drawHorizontalLine(int startOFLineX, int endOfLineX, int levelY, int rgb)
     {
-        int[] pixelArray = new int[(Math.abs(endOfLineX-startOFLineX))];
-        Arrays.fill(pixelArray, rgb);
-        renderImage.getRaster().setDataElements(startOFLineX, levelY, Math.abs(endOfLineX-startOFLineX), 1, pixelArray);
+        if (spanBufferEnabled)
+        {
+            spanBuffer.cover(startOFLineX, endOfLineX, levelY);
+            if (spanBuffer.getGapCount() == 0)
+                return;
+            if (lineBuffer == null || lineBuffer.length < renderImage.getWidth())
+                lineBuffer = new int[renderImage.getWidth()];
+            for (int i = 0; i < spanBuffer.getGapCount(); i++)
+            {
+                int start = spanBuffer.getGapStart(i);
+                int length = spanBuffer.getGapEnd(i) - start;
+                Arrays.fill(lineBuffer, 0, length, rgb);
+                renderImage.getRaster().setDataElements(start, levelY, length, 1, lineBuffer);
+            }
+        }
+        else
+        {
+            int[] pixelArray = new int[(Math.abs(endOfLineX-startOFLineX))];
+            Arrays.fill(pixelArray, rgb);
+            renderImage.getRaster().setDataElements(startOFLineX, levelY, Math.abs(endOfLineX-startOFLineX), 1, pixelArray);
+        }
+    }
+
+    //one frame passed between the stages of the rendering pipeline: the sorted draw qeue, and the size of
+    //image it was calculated for.
+    class FrameJob
+    {
+        public ArrayList<Triangle2D> drawQeue = new ArrayList<Triangle2D>();
+        public int width;
+        public int height;
+        public double rasterizationTime; //how long the last frame drawn from this job took to rasterize, in ms
     }
 
     //Triangle2D class stores 2d triangle data before it is painted on the buffered image.
@@ -0,0 +1,87 @@
+import java.util.ArrayList;
+
+//casts rays against every mesh that has been added, for things like keeping the camera above the ground,
+//picking objects with the mouse and line of sight checks. Each mesh has it's own MeshBVH, so a ray only tests
+//the few triangles near it's path, even against the terrain. A mesh that doesn't move is built once and never
+//touched again, and a mesh that moves is refit the next time a ray is cast after it has moved.
+//
+//The methods are synchronized, so rays can be cast from more than one thread. A mesh that is moved by another
+//thread while a ray is being cast may be hit where it was or where it is going to be.
+public class SceneRaycaster
+{
+    private ArrayList<MeshBVH> meshes;
+
+    public SceneRaycaster()
+    {
+        meshes = new ArrayList<MeshBVH>();
+    }
+
+    //starts casting rays against "mesh". Builds it's MeshBVH, which takes a while for large meshes like the terrain.
+    public synchronized void add(Mesh mesh)
+    {
+        if (findBVH(mesh) == null)
+            meshes.add(new MeshBVH(mesh));
+    }
+
+    public synchronized void remove(Mesh mesh)
+    {
+        meshes.remove(findBVH(mesh));
+    }
+
+    //finds the closest hit of the ray from "origin" towards "direction" (which doesn't need to be normalized) that
+    //is less than maxDistance away, ignoring "ignoredMesh" (like the mesh the ray starts inside of), which can be null.
+    //Returns true if something was hit, and fills in "hit".
+    public synchronized boolean raycast(Vector3 origin, Vector3 direction, double maxDistance, Mesh ignoredMesh, RaycastHit hit)
+    {
+        hit.clear(maxDistance);
+        double length = direction.getMagnitude();
+        if (length == 0)
+            return false;
+        double directionX = direction.x/length;
+        double directionY = direction.y/length;
+        double directionZ = direction.z/length;
+
+        boolean found = false;
+        for (int i = 0; i < meshes.size(); i++)
+        {
+            MeshBVH bvh = meshes.get(i);
+            if (bvh.getMesh() == ignoredMesh)
+                continue;
+            bvh.refit();
+            if (bvh.raycast(origin.x, origin.y, origin.z, directionX, directionY, directionZ, hit))
+                found = true;
+        }
+        return found;
+    }
+
+    //returns the closest hit of the ray, or null if nothing is hit within maxDistance
+    public RaycastHit raycast(Vector3 origin, Vector3 direction, double maxDistance)
+    {
+        RaycastHit hit = new RaycastHit();
+        return raycast(origin, direction, maxDistance, null, hit)? hit : null;
+    }
+
+    //returns true if nothing is in the way between "from" and "to", ignoring "ignoredMesh" (which can be null)
+    public boolean hasLineOfSight(Vector3 from, Vector3 to, Mesh ignoredMesh)
+    {
+        Vector3 direction = Vector3.subtract(to, from);
+        return !raycast(from, direction, direction.getMagnitude(), ignoredMesh, new RaycastHit());
+    }
+
+    private MeshBVH findBVH(Mesh mesh)
+    {
+        for (int i = 0; i < meshes.size(); i++)
+        {
+            if (meshes.get(i).getMesh() == mesh)
+                return meshes.get(i);
+        }
+        return null;
+    }
+
+    //#region getter methods
+    public synchronized int getMeshCount()
+    {
+        return meshes.size();
+    }
+    //#endregion
+}
@@ -0,0 +1,405 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+//makes the renderer, the airplane's physics and the terrain visible to JMX tools (like JConsole, or a metrics
+//collector) while the game is running, as platform MXBeans under "FlightSimulator:type=...":
+//  - Renderer: frame time percentiles, triangles per frame at each stage, the pipeline's qeue, how busy the
+//    rendering threads are and the memory used by the meshes. The fps limit, far clip distance and fog can
+//    be changed.
+//  - Physics: the measured step rate and it's jitter, how long steps take and how busy the physics thread is
+//  - Terrain: it's size and how many of it's tiles were culled in the last frame
+//Every value is read from what the game has already measured, so the tools don't slow the game down, and the
+//game doesn't do any more work when nothing is watching.
+public class SimulatorMBeans
+{
+    public static final String DOMAIN = "FlightSimulator";
+
+    //registers the MXBeans with the platform MBean server, replacing any that were registered before
+    public static void register(RenderingPanel renderingPanel, Camera camera, Airplane airplane, Terrain terrain)
+    {
+        register("Renderer", new Renderer(renderingPanel, camera));
+        register("Physics", new Physics(airplane));
+        register("Terrain", new TerrainMetrics(terrain, renderingPanel));
+    }
+
+    private static void register(String type, Object mxBean)
+    {
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(DOMAIN + ":type=" + type);
+            if (server.isRegistered(name))
+                server.unregisterMBean(name);
+            server.registerMBean(mxBean, name);
+        }
+        catch (JMException | SecurityException e)
+        {
+            System.err.println("WARNING at: SimulatorMBeans/register() method:\n\tcould not register the " + type + " MXBean: " + e);
+        }
+    }
+
+    //times are in milliseconds, and utilizations are fractions from 0 to 1
+    public interface RendererMXBean
+    {
+        public long getFrameCount();
+        public double getFrameTimeMean();
+        public double getFrameTimeP50();
+        public double getFrameTimeP95();
+        public double getFrameTimeP99();
+        public double getFrameTimeMax();
+
+        public int getTrianglesSubmitted(); //in every mesh, before culling
+        public int getTrianglesCalculated(); //after terrain and occlusion culling
+        public int getTrianglesQueued(); //in the draw qeue, after clipping and back face culling
+        public int getTrianglesPainted(); //after the span buffer skipped the hidden ones
+        public int getTrianglesCulled(); //submitted but not queued
+        public int getProjectedFramesWaiting(); //frames waiting to be rasterized, when pipelined
+
+        public double getRenderingThreadUtilization();
+        public double getRasterizingThreadUtilization();
+        public double getRenderScale();
+        public double getDrawDistance();
+
+        public int getMeshCount();
+        public long getMeshTriangleCount();
+        public long getMeshVertexBytes(); //bytes used by the vertex coordinates of every mesh
+
+        public int getFpsLimit(); //0 for none
+        public void setFpsLimit(int limit);
+        public double getFarClipDistance();
+        public void setFarClipDistance(double distance);
+        public boolean isFogEnabled();
+        public void setFogEnabled(boolean enabled);
+        public double getFogStartDistance();
+        public void setFogStartDistance(double distance);
+        public double getFullFogDistance();
+        public void setFullFogDistance(double distance);
+    }
+
+    public interface PhysicsMXBean
+    {
+        public boolean isRunning();
+        public long getStepCount();
+        public double getTargetTickRate();
+        public double getTickRate(); //measured over the last steps
+        public double getTickIntervalMean();
+        public double getTickIntervalStandardDeviation(); //the jitter
+        public double getTickIntervalP99();
+        public double getTickIntervalMax();
+        public double getStepTimeMean();
+        public double getStepTimeP99();
+        public double getStepTimeMax();
+        public double getPhysicsThreadUtilization();
+        public int getTelemetrySubscribers();
+        public long getTelemetryFramesDropped();
+    }
+
+    public interface TerrainMXBean
+    {
+        public int getTriangleCount();
+        public int getVertexCount();
+        public long getVertexBytes();
+        public int getTileCount();
+        public int getVisibleTiles(); //in the last frame
+        public int getCulledTiles(); //behind the horizon or out of range, in the last frame
+    }
+
+    private static class Renderer implements RendererMXBean
+    {
+        private RenderingPanel panel;
+        private Camera camera;
+
+        public Renderer(RenderingPanel panelIn, Camera cameraIn)
+        {
+            panel = panelIn;
+            camera = cameraIn;
+        }
+
+        public long getFrameCount()
+        {
+            return panel.getFrameTimes().getCount();
+        }
+
+        public double getFrameTimeMean()
+        {
+            return panel.getFrameTimes().getMean();
+        }
+
+        public double getFrameTimeP50()
+        {
+            return panel.getFrameTimes().getPercentile(50);
+        }
+
+        public double getFrameTimeP95()
+        {
+            return panel.getFrameTimes().getPercentile(95);
+        }
+
+        public double getFrameTimeP99()
+        {
+            return panel.getFrameTimes().getPercentile(99);
+        }
+
+        public double getFrameTimeMax()
+        {
+            return panel.getFrameTimes().getMax();
+        }
+
+        public int getTrianglesSubmitted()
+        {
+            return panel.getFrameTrianglesSubmitted();
+        }
+
+        public int getTrianglesCalculated()
+        {
+            return panel.getFrameTrianglesCalculated();
+        }
+
+        public int getTrianglesQueued()
+        {
+            return panel.getFrameTrianglesQueued();
+        }
+
+        public int getTrianglesPainted()
+        {
+            return panel.getFrameTrianglesPainted();
+        }
+
+        public int getTrianglesCulled()
+        {
+            return Math.max(0, panel.getFrameTrianglesSubmitted() - panel.getFrameTrianglesQueued());
+        }
+
+        public int getProjectedFramesWaiting()
+        {
+            return panel.getProjectedFrameCount();
+        }
+
+        public double getRenderingThreadUtilization()
+        {
+            return panel.getRenderingUtilization();
+        }
+
+        public double getRasterizingThreadUtilization()
+        {
+            return panel.getRasterizingUtilization();
+        }
+
+        public double getRenderScale()
+        {
+            FrameGovernor governor = panel.getGovernor();
+            return (governor == null)? 1 : governor.getRenderScale();
+        }
+
+        public double getDrawDistance()
+        {
+            FrameGovernor governor = panel.getGovernor();
+            return (governor == null)? 1 : governor.getDrawDistance();
+        }
+
+        public int getMeshCount()
+        {
+            return panel.getMeshes().size();
+        }
+
+        public long getMeshTriangleCount()
+        {
+            ArrayList<Mesh> meshes = panel.getMeshes();
+            long count = 0;
+            for (int i = 0; i < meshes.size(); i++)
+                count += meshes.get(i).getTriangles().size();
+            return count;
+        }
+
+        public long getMeshVertexBytes()
+        {
+            ArrayList<Mesh> meshes = panel.getMeshes();
+            long bytes = 0;
+            for (int i = 0; i < meshes.size(); i++)
+                bytes += meshes.get(i).getVertices().getMemoryUsage();
+            return bytes;
+        }
+
+        public int getFpsLimit()
+        {
+            return panel.getFPSlimit();
+        }
+
+        public void setFpsLimit(int limit)
+        {
+            panel.setFPSlimit(limit);
+        }
+
+        public double getFarClipDistance()
+        {
+            return camera.getFarClipDistancee();
+        }
+
+        public void setFarClipDistance(double distance)
+        {
+            camera.setFarClipDistance(distance);
+        }
+
+        public boolean isFogEnabled()
+        {
+            return panel.isFogEnabled();
+        }
+
+        public void setFogEnabled(boolean enabled)
+        {
+            if (enabled)
+                panel.enableFog();
+            else
+                panel.dissableFog();
+        }
+
+        public double getFogStartDistance()
+        {
+            return panel.getFogStartDistance();
+        }
+
+        public void setFogStartDistance(double distance)
+        {
+            panel.setFogDistances(distance, panel.getFullFogDistance());
+        }
+
+        public double getFullFogDistance()
+        {
+            return panel.getFullFogDistance();
+        }
+
+        public void setFullFogDistance(double distance)
+        {
+            panel.setFogDistances(panel.getFogStartDistance(), distance);
+        }
+    }
+
+    private static class Physics implements PhysicsMXBean
+    {
+        private Airplane airplane;
+
+        public Physics(Airplane airplaneIn)
+        {
+            airplane = airplaneIn;
+        }
+
+        public boolean isRunning()
+        {
+            return airplane.isPhysicsRunning();
+        }
+
+        public long getStepCount()
+        {
+            return airplane.getStepCount();
+        }
+
+        public double getTargetTickRate()
+        {
+            return airplane.getTargetTickRate();
+        }
+
+        public double getTickRate()
+        {
+            double mean = airplane.getTickIntervals().getMean();
+            return (mean > 0)? 1000/mean : 0;
+        }
+
+        public double getTickIntervalMean()
+        {
+            return airplane.getTickIntervals().getMean();
+        }
+
+        public double getTickIntervalStandardDeviation()
+        {
+            return airplane.getTickIntervals().getStandardDeviation();
+        }
+
+        public double getTickIntervalP99()
+        {
+            return airplane.getTickIntervals().getPercentile(99);
+        }
+
+        public double getTickIntervalMax()
+        {
+            return airplane.getTickIntervals().getMax();
+        }
+
+        public double getStepTimeMean()
+        {
+            return airplane.getStepTimes().getMean();
+        }
+
+        public double getStepTimeP99()
+        {
+            return airplane.getStepTimes().getPercentile(99);
+        }
+
+        public double getStepTimeMax()
+        {
+            return airplane.getStepTimes().getMax();
+        }
+
+        public double getPhysicsThreadUtilization()
+        {
+            return airplane.getPhysicsUtilization();
+        }
+
+        public int getTelemetrySubscribers()
+        {
+            return airplane.getTelemetry().getSubscriberCount();
+        }
+
+        public long getTelemetryFramesDropped()
+        {
+            return airplane.getTelemetry().getDroppedCount();
+        }
+    }
+
+    private static class TerrainMetrics implements TerrainMXBean
+    {
+        private Terrain terrain;
+        private RenderingPanel panel;
+
+        public TerrainMetrics(Terrain terrainIn, RenderingPanel panelIn)
+        {
+            terrain = terrainIn;
+            panel = panelIn;
+        }
+
+        public int getTriangleCount()
+        {
+            return terrain.getTriangles().size();
+        }
+
+        public int getVertexCount()
+        {
+            return terrain.getVertices().size();
+        }
+
+        public long getVertexBytes()
+        {
+            return terrain.getVertices().getMemoryUsage();
+        }
+
+        public int getTileCount()
+        {
+            return terrain.getTileCount();
+        }
+
+        public int getVisibleTiles()
+        {
+            HorizonCuller culler = panel.getHorizonCuller(terrain);
+            return (culler == null)? 0 : culler.getVisibleTileCount();
+        }
+
+        public int getCulledTiles()
+        {
+            HorizonCuller culler = panel.getHorizonCuller(terrain);
+            return (culler == null)? 0 : culler.getCulledTileCount();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+import java.util.Arrays;
+
+//keeps track of which pixels of each row of the screen have already been drawn, as a sorted list of
+//covered spans per row. Used for drawing triangles from front to back: a new line only needs to be drawn
+//where it isn't covered yet, so every pixel is written exactly once no matter how many triangles overlap it.
+//Unlike a depth buffer, this only needs memory for the spans, which is very little for terrain since
+//neighbouring triangles merge into one long span.
+public class SpanBuffer
+{
+    private int width;
+    private int height;
+
+    //covered spans of each row, stored as start, end pairs (end is not included) sorted from left to right.
+    //touching or overlapping spans are always merged, so spans never touch each other.
+    private int[][] spans;
+    private int[] spanCounts; //number of spans in each row
+    private int fullRows; //number of rows that are completely covered
+
+    //the uncovered parts of the last line passed to cover(), as start, end pairs
+    private int[] gaps;
+    private int gapCount;
+
+    public SpanBuffer(int widthIn, int heightIn)
+    {
+        width = widthIn;
+        height = heightIn;
+        spans = new int[height][8];
+        spanCounts = new int[height];
+        gaps = new int[8];
+        fullRows = 0;
+    }
+
+    //marks every pixel as uncovered, for the start of a new frame
+    public void clear()
+    {
+        Arrays.fill(spanCounts, 0);
+        fullRows = 0;
+    }
+
+    //covers the pixels from startX up to (but not including) endX on row y, and finds the parts of the
+    //line that weren't covered before. Those are the only parts that need to be drawn, and can be read
+    //with getGapCount(), getGapStart() and getGapEnd() until the next call.
+    public void cover(int startX, int endX, int y)
+    {
+        gapCount = 0;
+        startX = Math.max(0, startX);
+        endX = Math.min(width, endX);
+        if (startX >= endX || y < 0 || y >= height)
+            return;
+
+        int[] row = spans[y];
+        int count = spanCounts[y];
+
+        //find the first span that ends at or after the start of the line
+        int first = 0;
+        while (first < count && row[first*2 + 1] < startX)
+            first++;
+
+        //walk over every span that touches the line, recording the gaps between them
+        int last = first;
+        int position = startX;
+        int mergedStart = startX;
+        int mergedEnd = endX;
+        while (last < count && row[last*2] <= endX)
+        {
+            if (row[last*2] > position)
+                addGap(position, row[last*2]);
+            position = Math.max(position, row[last*2 + 1]);
+            mergedStart = Math.min(mergedStart, row[last*2]);
+            mergedEnd = Math.max(mergedEnd, row[last*2 + 1]);
+            last++;
+        }
+        if (position < endX)
+            addGap(position, endX);
+
+        if (gapCount == 0)
+            return;
+
+        //replace the spans from first to last (not included) with the single merged span
+        int removed = last - first;
+        if (removed == 0)
+        {
+            if (count*2 + 2 > row.length)
+            {
+                row = Arrays.copyOf(row, row.length*2);
+                spans[y] = row;
+            }
+            System.arraycopy(row, first*2, row, first*2 + 2, (count - first)*2);
+            count++;
+        }
+        else if (removed > 1)
+        {
+            System.arraycopy(row, last*2, row, first*2 + 2, (count - last)*2);
+            count -= removed - 1;
+        }
+        row[first*2] = mergedStart;
+        row[first*2 + 1] = mergedEnd;
+        spanCounts[y] = count;
+
+        if (count == 1 && mergedStart == 0 && mergedEnd == width)
+            fullRows++;
+    }
+
+    //are all of the rows from startY to endY (both included) completely covered?
+    //rows off of the screen count as covered.
+    public boolean isCovered(int startY, int endY)
+    {
+        startY = Math.max(0, startY);
+        endY = Math.min(height - 1, endY);
+        for (int y = startY; y <= endY; y++)
+        {
+            if (!isRowFull(y))
+                return false;
+        }
+        return true;
+    }
+
+    //is every pixel on the screen covered?
+    public boolean isFull()
+    {
+        return fullRows == height;
+    }
+
+    private boolean isRowFull(int y)
+    {
+        return spanCounts[y] == 1 && spans[y][0] == 0 && spans[y][1] == width;
+    }
+
+    private void addGap(int start, int end)
+    {
+        if (gapCount*2 + 2 > gaps.length)
+            gaps = Arrays.copyOf(gaps, gaps.length*2);
+        gaps[gapCount*2] = start;
+        gaps[gapCount*2 + 1] = end;
+        gapCount++;
+    }
+
+    //#region getter methods
+    public int getWidth()
+    {
+        return width;
+    }
+
+    public int getHeight()
+    {
+        return height;
+    }
+
+    public int getGapCount()
+    {
+        return gapCount;
+    }
+
+    public int getGapStart(int index)
+    {
+        return gaps[index*2];
+    }
+
+    public int getGapEnd(int index)
+    {
+        return gaps[index*2 + 1];
+    }
+    //#endregion
+}
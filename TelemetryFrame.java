@@ -0,0 +1,78 @@
+//the state of the airplane after one physics step, as sent to the subscribers of a TelemetryPublisher.
+//Frames never change once they are made, so one frame is shared by every subscriber, and can be kept or
+//passed to other threads without copying it.
+public class TelemetryFrame
+{
+    public final long step; //the physics step that the frame was made after, counted from 0 after each reset
+    public final double time; //seconds into the flight
+    public final long nanoTime; //System.nanoTime() when the step finished
+    public final double x, y, z; //position
+    public final double velocityX, velocityY, velocityZ;
+    public final double forwardX, forwardY, forwardZ; //the direction the airplane is pointing
+    public final double upX, upY, upZ;
+    public final double pitch, yaw, roll; //the rotation, in the same order as the model's EulerAngle (x, y, z)
+    public final double throttle;
+    public final double altitude; //height above ground level
+    public final int controls; //the controls used for the step (ControlInput.toBits())
+    public final boolean takenOff;
+    public final boolean crashed;
+
+    //copies the state of "model" after a step that used "input"
+    public TelemetryFrame(FlightModel model, ControlInput input, long nanoTimeIn)
+    {
+        step = model.getStepCount();
+        time = model.getTime();
+        nanoTime = nanoTimeIn;
+        Vector3 position = model.getPosition();
+        x = position.x;
+        y = position.y;
+        z = position.z;
+        Vector3 velocity = model.getVelocity();
+        velocityX = velocity.x;
+        velocityY = velocity.y;
+        velocityZ = velocity.z;
+        Vector3 forward = model.getForward();
+        forwardX = forward.x;
+        forwardY = forward.y;
+        forwardZ = forward.z;
+        Vector3 up = model.getUp();
+        upX = up.x;
+        upY = up.y;
+        upZ = up.z;
+        EulerAngle rotation = model.getRotation();
+        pitch = rotation.x;
+        yaw = rotation.y;
+        roll = rotation.z;
+        throttle = model.getThrottle();
+        altitude = model.getAltitude();
+        controls = input.toBits();
+        takenOff = model.hasTakenOff();
+        crashed = model.hasCrashed();
+    }
+
+    public double getSpeed()
+    {
+        return Math.sqrt(velocityX*velocityX + velocityY*velocityY + velocityZ*velocityZ);
+    }
+
+    //the controls used for the step, set into "out", which is returned
+    public ControlInput getControls(ControlInput out)
+    {
+        out.setBits(controls);
+        return out;
+    }
+
+    //the frame as one line of comma separated values, in the same order as the fields
+    public String toString()
+    {
+        return step + "," + time + "," + x + "," + y + "," + z + "," + velocityX + "," + velocityY + "," + velocityZ + ","
+            + forwardX + "," + forwardY + "," + forwardZ + "," + upX + "," + upY + "," + upZ + ","
+            + pitch + "," + yaw + "," + roll + "," + throttle + "," + altitude + "," + Integer.toHexString(controls) + "," + takenOff + "," + crashed;
+    }
+
+    //the names of the values in toString()
+    public static String csvHeader()
+    {
+        return "step,time,x,y,z,velocityX,velocityY,velocityZ,forwardX,forwardY,forwardZ,upX,upY,upZ,pitch,yaw,roll,throttle,altitude,controls,takenOff,crashed";
+    }
+}
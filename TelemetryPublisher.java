@@ -0,0 +1,300 @@
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+//sends a TelemetryFrame to every subscriber after each physics step, for anything that wants to follow the
+//flight as it happens (loggers, dashboards, autopilots), through the standard java.util.concurrent.Flow
+//interfaces.
+//
+//The physics thread must never wait for a subscriber, so publish() only puts the frame in each subscriber's
+//own buffer, which holds a fixed number of frames. The frames are handed to the subscriber on it's own
+//thread, as fast as it requests them. A subscriber that falls behind fills it's buffer, and then frames are
+//thrown away rather than waiting, in one of two ways (see Overflow):
+//  - DROP: new frames are thrown away until the subscriber catches up, so it gets every frame up to when it
+//    fell behind, then skips ahead. For loggers that would rather have runs of whole frames.
+//  - LATEST: the oldest frame in the buffer is thrown away, so the subscriber is never more than the buffer's
+//    size behind. With a buffer of 1, it always gets the newest frame. For displays and autopilots.
+//Skipped frames can be noticed by the gaps in TelemetryFrame.step, and are counted by getDroppedCount().
+//
+//Waking a sleeping thread takes a few microseconds, which is more than everything else publish() does, so the
+//physics thread doesn't wake a subscriber's thread for every frame. While frames keep coming, the thread checks
+//it's buffer every POLL_INTERVAL on it's own, and only after IDLE_TIME without any frames does it wait to be
+//woken. So a frame reaches a subscriber at most POLL_INTERVAL after it is published.
+public class TelemetryPublisher implements Flow.Publisher<TelemetryFrame>
+{
+    public static final int DEFAULT_BUFFER_SIZE = 256;
+    //seconds between the checks of a subscriber's buffer while frames are coming
+    public static final double POLL_INTERVAL = 0.001;
+    //seconds without any frames before a subscriber's thread waits to be woken instead of checking
+    public static final double IDLE_TIME = 0.1;
+
+    //what happens to a new frame when a subscriber's buffer is full
+    public enum Overflow
+    {
+        DROP, //the new frame is thrown away
+        LATEST //the oldest frame in the buffer is thrown away to make room for the new one
+    }
+
+    private CopyOnWriteArrayList<Subscription> subscriptions;
+    private volatile boolean closed;
+
+    public TelemetryPublisher()
+    {
+        subscriptions = new CopyOnWriteArrayList<Subscription>();
+    }
+
+    //subscribes with a buffer of DEFAULT_BUFFER_SIZE frames that drops new frames when it's full
+    public void subscribe(Flow.Subscriber<? super TelemetryFrame> subscriber)
+    {
+        subscribe(subscriber, DEFAULT_BUFFER_SIZE, Overflow.DROP);
+    }
+
+    //subscribes with a buffer of "bufferSize" frames, and what to do when it's full
+    public void subscribe(Flow.Subscriber<? super TelemetryFrame> subscriber, int bufferSize, Overflow overflow)
+    {
+        if (subscriber == null)
+            throw new NullPointerException("subscriber is null");
+        if (bufferSize < 1)
+        {
+            System.err.println("WARNING at: TelemetryPublisher/subscribe() method:\n\tbuffer size must be at least 1, using the default");
+            bufferSize = DEFAULT_BUFFER_SIZE;
+        }
+        Subscription subscription = new Subscription(subscriber, bufferSize, overflow);
+        subscriber.onSubscribe(subscription);
+        //added after onSubscribe() returns, so no frames are sent before it
+        if (closed)
+            subscription.complete();
+        else
+        {
+            subscriptions.add(subscription);
+            //a subscriber that cancelled in onSubscribe() was removed before it was added
+            if (subscription.cancelled)
+                subscriptions.remove(subscription);
+        }
+        subscription.start();
+    }
+
+    //sends "frame" to every subscriber. Never waits or takes a lock, called by the physics thread after every step.
+    //Must only be called by one thread at a time.
+    public void publish(TelemetryFrame frame)
+    {
+        for (int i = 0; i < subscriptions.size(); i++)
+            subscriptions.get(i).offer(frame);
+    }
+
+    //sends every subscriber the frames left in it's buffer and then onComplete(), and stops taking new subscribers
+    public void close()
+    {
+        closed = true;
+        for (int i = 0; i < subscriptions.size(); i++)
+            subscriptions.get(i).complete();
+        subscriptions.clear();
+    }
+
+    //#region getter methods
+    //is anything subscribed? Used to not make frames when no one will get them.
+    public boolean hasSubscribers()
+    {
+        return !subscriptions.isEmpty();
+    }
+
+    public int getSubscriberCount()
+    {
+        return subscriptions.size();
+    }
+
+    //number of frames thrown away because a subscriber's buffer was full, over all of the current subscribers
+    public long getDroppedCount()
+    {
+        long count = 0;
+        for (int i = 0; i < subscriptions.size(); i++)
+            count += subscriptions.get(i).getDroppedCount();
+        return count;
+    }
+    //#endregion
+
+    //a subscriber, it's buffer, the frames it has requested and the thread that hands them to it.
+    //
+    //The buffer is a ring that only the physics thread adds to (offer()) and only the subscription's thread takes
+    //from (run()), without any locks, so the physics thread can't be held up by a subscription's thread that the
+    //operating system paused while it held a lock. "tail" counts the frames ever added and "head" the frames
+    //taken or thrown away, and frame i is in buffer[i % buffer.length]. Only the physics thread changes the tail.
+    //Both threads can move the head forward (the physics thread throws away the oldest frame when a LATEST buffer
+    //is full), so it's moved with compareAndSet(), and a frame only counts as taken if that succeeds.
+    //The subscriber is only called by the subscription's thread, one call at a time.
+    private class Subscription implements Flow.Subscription, Runnable
+    {
+        private final Flow.Subscriber<? super TelemetryFrame> subscriber;
+        private final Overflow overflow;
+        private final TelemetryFrame[] buffer;
+        private final Thread thread;
+        private final AtomicLong head;
+        private volatile long tail;
+        private final AtomicLong demand; //frames requested and not sent yet, Long.MAX_VALUE for unbounded
+        private volatile long dropped; //only changed by the physics thread
+        private volatile boolean waiting; //is the thread waiting to be woken, rather than checking every POLL_INTERVAL?
+        private volatile boolean completing; //should onComplete() be sent once the buffer is empty?
+        private volatile boolean cancelled; //has the subscription ended? No more calls are made to the subscriber after this.
+        private volatile Throwable error; //an error to send to the subscriber, instead of any more frames
+
+        public Subscription(Flow.Subscriber<? super TelemetryFrame> subscriberIn, int bufferSize, Overflow overflowIn)
+        {
+            subscriber = subscriberIn;
+            overflow = overflowIn;
+            buffer = new TelemetryFrame[bufferSize];
+            head = new AtomicLong();
+            demand = new AtomicLong();
+            thread = new Thread(this, "Telemetry");
+            thread.setDaemon(true); //doesn't keep the game running
+        }
+
+        public void start()
+        {
+            thread.start();
+        }
+
+        //adds the frame to the buffer. The thread is only woken if it's waiting and the frame has been requested.
+        public void offer(TelemetryFrame frame)
+        {
+            if (cancelled || completing)
+                return;
+            long t = tail;
+            while (t - head.get() >= buffer.length)
+            {
+                if (overflow == Overflow.DROP)
+                {
+                    dropped++;
+                    return;
+                }
+                long h = head.get();
+                if (t - h >= buffer.length && head.compareAndSet(h, h + 1))
+                    dropped++;
+            }
+            buffer[(int)(t%buffer.length)] = frame;
+            tail = t + 1;
+            if (waiting && demand.get() > 0)
+                wake();
+        }
+
+        public void request(long n)
+        {
+            if (cancelled)
+                return;
+            if (n <= 0)
+                error = new IllegalArgumentException("requested " + n + " frames, must be positive");
+            else
+            {
+                long d;
+                do
+                {
+                    d = demand.get();
+                }
+                while (!demand.compareAndSet(d, (d + n < 0)? Long.MAX_VALUE : d + n)); //more than Long.MAX_VALUE is unbounded
+            }
+            wake();
+        }
+
+        public void cancel()
+        {
+            cancelled = true;
+            subscriptions.remove(this);
+            wake();
+        }
+
+        //sends onComplete() once the frames in the buffer have been sent
+        public void complete()
+        {
+            completing = true;
+            wake();
+        }
+
+        private void wake()
+        {
+            if (waiting)
+            {
+                waiting = false;
+                LockSupport.unpark(thread);
+            }
+        }
+
+        //is there anything for the thread to do?
+        private boolean hasWork()
+        {
+            return cancelled || error != null || completing || (head.get() < tail && demand.get() > 0);
+        }
+
+        //hands frames to the subscriber as they are requested, until the subscription ends
+        public void run()
+        {
+            long lastFrameTime = System.nanoTime();
+            while (!cancelled)
+            {
+                if (error != null || (completing && head.get() >= tail))
+                {
+                    cancelled = true;
+                    subscriptions.remove(this);
+                    try
+                    {
+                        if (error != null)
+                            subscriber.onError(error);
+                        else
+                            subscriber.onComplete();
+                    }
+                    catch (Throwable e)
+                    {
+                        System.err.println("WARNING at: TelemetryPublisher/run() method:\n\tsubscriber threw " + e);
+                    }
+                    break;
+                }
+
+                long h = head.get();
+                if (h < tail && demand.get() > 0)
+                {
+                    TelemetryFrame frame = buffer[(int)(h%buffer.length)];
+                    //if the physics thread threw the frame away in the meantime, the slot may already hold a newer one
+                    if (!head.compareAndSet(h, h + 1))
+                        continue;
+                    long d;
+                    do
+                    {
+                        d = demand.get();
+                    }
+                    while (d != Long.MAX_VALUE && !demand.compareAndSet(d, d - 1));
+                    lastFrameTime = System.nanoTime();
+                    try
+                    {
+                        subscriber.onNext(frame);
+                    }
+                    catch (Throwable e)
+                    {
+                        //a subscriber that throws is broken, so it isn't sent anything else
+                        System.err.println("WARNING at: TelemetryPublisher/run() method:\n\tsubscriber threw " + e + ", it has been unsubscribed");
+                        cancel();
+                    }
+                    continue;
+                }
+
+                //nothing to do: wait to be woken if no frames are wanted or coming, otherwise check again soon.
+                //"waiting" is set before checking for work one last time, so anything that makes work after the
+                //check sees it and wakes the thread.
+                if (demand.get() == 0 || (System.nanoTime() - lastFrameTime)/1000000000.0 >= IDLE_TIME)
+                {
+                    waiting = true;
+                    if (!hasWork())
+                        LockSupport.park(this);
+                    waiting = false;
+                }
+                else
+                    LockSupport.parkNanos(this, (long)(POLL_INTERVAL*1000000000));
+            }
+            Arrays.fill(buffer, null);
+        }
+
+        public long getDroppedCount()
+        {
+            return dropped;
+        }
+    }
+}
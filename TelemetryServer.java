@@ -0,0 +1,156 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Flow;
+
+//streams the telemetry of a TelemetryPublisher to programs on the same computer (like an external dashboard),
+//over a local socket. Each program that connects is sent TelemetryFrame.csvHeader(), then one line per
+//frame (TelemetryFrame.toString()), until it disconnects.
+//
+//Each connection is it's own subscriber with a small LATEST buffer, so a program that reads slowly only skips
+//frames itself, without holding up the game or the other connections.
+//
+//try it with: nc localhost <port>
+public class TelemetryServer implements Runnable
+{
+    //frames kept for a connection that is behind, a second at 120 steps per second
+    public static final int BUFFER_SIZE = 120;
+
+    private ServerSocket serverSocket;
+    private TelemetryPublisher publisher;
+
+    private TelemetryServer(ServerSocket serverSocketIn, TelemetryPublisher publisherIn)
+    {
+        serverSocket = serverSocketIn;
+        publisher = publisherIn;
+    }
+
+    //starts taking connections on "port" (only from this computer). Returns null if the port can't be used.
+    public static TelemetryServer start(int port, TelemetryPublisher publisher)
+    {
+        try
+        {
+            ServerSocket serverSocket = new ServerSocket(port, 8, InetAddress.getLoopbackAddress());
+            TelemetryServer server = new TelemetryServer(serverSocket, publisher);
+            Thread thread = new Thread(server, "Telemetry server");
+            thread.setDaemon(true);
+            thread.start();
+            return server;
+        }
+        catch (IOException e)
+        {
+            System.err.println("ERROR at: TelemetryServer/start() method:\n\tcould not listen on port " + port + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    //takes connections until the server is closed
+    public void run()
+    {
+        while (!serverSocket.isClosed())
+        {
+            try
+            {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                publisher.subscribe(new Connection(socket), BUFFER_SIZE, TelemetryPublisher.Overflow.LATEST);
+            }
+            catch (IOException e)
+            {
+                if (!serverSocket.isClosed())
+                    System.err.println("WARNING at: TelemetryServer/run() method:\n\tcould not accept a connection: " + e.getMessage());
+            }
+        }
+    }
+
+    //stops taking connections. The connections that are open stay open until the publisher is closed.
+    public void close()
+    {
+        try
+        {
+            serverSocket.close();
+        }
+        catch (IOException e)
+        {}
+    }
+
+    public int getPort()
+    {
+        return serverSocket.getLocalPort();
+    }
+
+    //writes the frames to one connection, as they come
+    private static class Connection implements Flow.Subscriber<TelemetryFrame>
+    {
+        private Socket socket;
+        private BufferedWriter writer;
+        private Flow.Subscription subscription;
+
+        public Connection(Socket socketIn) throws IOException
+        {
+            socket = socketIn;
+            writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+        }
+
+        public void onSubscribe(Flow.Subscription subscriptionIn)
+        {
+            subscription = subscriptionIn;
+            try
+            {
+                writer.write(TelemetryFrame.csvHeader());
+                writer.newLine();
+                writer.flush();
+                subscription.request(Long.MAX_VALUE);
+            }
+            catch (IOException e)
+            {
+                disconnect();
+            }
+        }
+
+        public void onNext(TelemetryFrame frame)
+        {
+            try
+            {
+                writer.write(frame.toString());
+                writer.newLine();
+                writer.flush();
+            }
+            catch (IOException e)
+            {
+                disconnect();
+            }
+        }
+
+        public void onError(Throwable error)
+        {
+            close();
+        }
+
+        public void onComplete()
+        {
+            close();
+        }
+
+        //the program disconnected, so it doesn't need any more frames
+        private void disconnect()
+        {
+            subscription.cancel();
+            close();
+        }
+
+        private void close()
+        {
+            try
+            {
+                socket.close();
+            }
+            catch (IOException e)
+            {}
+        }
+    }
+}
@@ -2,45 +2,207 @@ import java.awt.Color;
 
 public class Terrain extends Mesh
 {
-    private Vector3[][] verticies;
+    //the size of the grid of vertices. vertex (x, z) of the grid is stored at index x*gridLength + z 
+    //of the mesh's vertex buffer.
+    private int gridWidth;
+    private int gridLength;
+    private double gridInterval; //distance between neighbouring vertices of the grid
+    private HeightField heightField; //the heights of the surface, for the physics
+
+    //the terrain is split into square tiles of TILE_SIZE by TILE_SIZE grid cells. Tiles are used for 
+    //culling groups of triangles at once, see HorizonCuller.
+    public static final int TILE_SIZE = 8;
+    private int tileCountX;
+    private int tileCountZ;
+    private int[] tileTriangleStart; //index of the first triangle of each tile in the triangle list
+    private int[] tileTriangleEnd; //index after the last triangle of each tile
+    private double[] tileBounds; //minX, minY, minZ, maxX, maxY, maxZ of each tile, one after the other
 
     public Terrain(double height, double waterLevel, double snowLevel, double gridInterval, int gridLength, int gridWidth, double frequency, double amplitude, Color waterColor, Color mountainColor, Color snowColor)
     {
         super(true, false);
-        verticies = new Vector3[gridWidth][gridLength];
-        for (int x = 0; x < verticies.length; x++)
+        FlightEvents.TerrainGeneration event = new FlightEvents.TerrainGeneration();
+        event.begin();
+        this.gridWidth = gridWidth;
+        this.gridLength = gridLength;
+        this.gridInterval = gridInterval;
+        heightField = new HeightField(height, waterLevel, gridInterval, gridLength, gridWidth, frequency, amplitude, -gridWidth/2.0*gridInterval, -gridLength/2.0*gridInterval + 300000);
+        VertexBuffer verticies = getVertices();
+        for (int x = 0; x < gridWidth; x++)
         {
-            for (int z = 0; z < verticies[x].length; z++)
+            for (int z = 0; z < gridLength; z++)
             {
-                verticies[x][z] = new Vector3((x-gridWidth/2.0)*gridInterval, Math.max(height + Math.pow(SimplexNoise.noise(x*frequency, z*frequency)*amplitude, 3) , height+waterLevel) , (z-gridLength/2.0)*gridInterval + 300000);
+                verticies.add((x-gridWidth/2.0)*gridInterval, heightField.computeHeight(x, z), (z-gridLength/2.0)*gridInterval + 300000);
             }
         }
+        verticies.trimToSize();
         
+        //triangles are made one tile at a time, so that each tile's triangles sit next to each other in the
+        //triangle list and can be skipped as a group when the tile is culled.
+        tileCountX = (gridWidth-2)/TILE_SIZE + 1;
+        tileCountZ = (gridLength-2)/TILE_SIZE + 1;
+        int tileCount = tileCountX*tileCountZ;
+        tileTriangleStart = new int[tileCount];
+        tileTriangleEnd = new int[tileCount];
+        tileBounds = new double[tileCount*6];
         Triangle tempTriangle = null;
-        for (int i = 0; i < verticies.length-1; i++)
+        for (int tileX = 0; tileX < tileCountX; tileX++)
         {
-            for (int j = 0; j < verticies[i].length-1; j++)
+            for (int tileZ = 0; tileZ < tileCountZ; tileZ++)
             {
-                tempTriangle = new Triangle(this, verticies[i][j], verticies[i][j+1], verticies[i+1][j], mountainColor);
-                if (tempTriangle.getCenter().y <= height+waterLevel)
-                    tempTriangle.setBaseColor(waterColor);
-                else if (tempTriangle.getCenter().y >= height+snowLevel)
-                    tempTriangle.setBaseColor(snowColor);
-                super.getTriangles().add(tempTriangle);
-            }
+                int tile = tileX*tileCountZ + tileZ;
+                int firstX = tileX*TILE_SIZE;
+                int lastX = Math.min(firstX + TILE_SIZE, gridWidth-1);
+                int firstZ = tileZ*TILE_SIZE;
+                int lastZ = Math.min(firstZ + TILE_SIZE, gridLength-1);
 
-            for (int j = 0; j < verticies[i].length-1; j++)
-            {
-                tempTriangle = new Triangle(this, verticies[i+1][j], verticies[i][j+1], verticies[i+1][j+1], mountainColor);
-                if (tempTriangle.getCenter().y <= height+waterLevel)
-                    tempTriangle.setBaseColor(waterColor);
-                else if (tempTriangle.getCenter().y >= height+snowLevel)
-                    tempTriangle.setBaseColor(snowColor);
-                super.getTriangles().add(tempTriangle);
+                tileTriangleStart[tile] = super.getTriangles().size();
+                for (int i = firstX; i < lastX; i++)
+                {
+                    for (int j = firstZ; j < lastZ; j++)
+                    {
+                        tempTriangle = new Triangle(this, vertexIndex(i, j), vertexIndex(i, j+1), vertexIndex(i+1, j), mountainColor);
+                        if (tempTriangle.getCenter().y <= height+waterLevel)
+                            tempTriangle.setBaseColor(waterColor);
+                        else if (tempTriangle.getCenter().y >= height+snowLevel)
+                            tempTriangle.setBaseColor(snowColor);
+                        super.getTriangles().add(tempTriangle);
+
+                        tempTriangle = new Triangle(this, vertexIndex(i+1, j), vertexIndex(i, j+1), vertexIndex(i+1, j+1), mountainColor);
+                        if (tempTriangle.getCenter().y <= height+waterLevel)
+                            tempTriangle.setBaseColor(waterColor);
+                        else if (tempTriangle.getCenter().y >= height+snowLevel)
+                            tempTriangle.setBaseColor(snowColor);
+                        super.getTriangles().add(tempTriangle);
+                    }
+                }
+                tileTriangleEnd[tile] = super.getTriangles().size();
+
+                //bounding box of the tile
+                double minY = Double.MAX_VALUE;
+                double maxY = -Double.MAX_VALUE;
+                for (int i = firstX; i <= lastX; i++)
+                {
+                    for (int j = firstZ; j <= lastZ; j++)
+                    {
+                        minY = Math.min(minY, verticies.getY(vertexIndex(i, j)));
+                        maxY = Math.max(maxY, verticies.getY(vertexIndex(i, j)));
+                    }
+                }
+                tileBounds[tile*6] = verticies.getX(vertexIndex(firstX, firstZ));
+                tileBounds[tile*6+1] = minY;
+                tileBounds[tile*6+2] = verticies.getZ(vertexIndex(firstX, firstZ));
+                tileBounds[tile*6+3] = verticies.getX(vertexIndex(lastX, lastZ));
+                tileBounds[tile*6+4] = maxY;
+                tileBounds[tile*6+5] = verticies.getZ(vertexIndex(lastX, lastZ));
             }
         }
+        event.end();
+        if (event.shouldCommit())
+        {
+            event.gridWidth = gridWidth;
+            event.gridLength = gridLength;
+            event.gridInterval = gridInterval;
+            event.triangles = super.getTriangles().size();
+            event.vertices = verticies.size();
+            event.tiles = tileCount;
+            event.vertexBytes = verticies.getMemoryUsage();
+            event.commit();
+        }
+    }
+
+    //returns the index in the vertex buffer of the grid vertex at (x, z)
+    public int vertexIndex(int x, int z)
+    {
+        return x*gridLength + z;
+    }
+
+    //returns the height of the highest corner of the grid cell that (x, z) is in, or NaN if (x, z) is
+    //outside of the terrain. The surface of the cell is never higher than this. 
+    public double getCellMaxHeight(double x, double z)
+    {
+        int cellX = (int)Math.floor((x - getVertices().getX(0))/gridInterval);
+        int cellZ = (int)Math.floor((z - getVertices().getZ(0))/gridInterval);
+        if (cellX < 0 || cellZ < 0 || cellX >= gridWidth-1 || cellZ >= gridLength-1)
+            return Double.NaN;
+        return Math.max
+        (
+            Math.max(getVertices().getY(vertexIndex(cellX, cellZ)), getVertices().getY(vertexIndex(cellX+1, cellZ))),
+            Math.max(getVertices().getY(vertexIndex(cellX, cellZ+1)), getVertices().getY(vertexIndex(cellX+1, cellZ+1)))
+        );
+    }
 
+    //returns the heights of the terrain's surface, which the physics uses for the ground
+    public HeightField getHeightField()
+    {
+        return heightField;
+    }
+
+    //#region tile getter methods
+    public int getTileCount()
+    {
+        return tileCountX*tileCountZ;
+    }
+
+    public int getTileTriangleStart(int tile)
+    {
+        return tileTriangleStart[tile];
+    }
+
+    public int getTileTriangleEnd(int tile)
+    {
+        return tileTriangleEnd[tile];
+    }
+
+    //the grid vertices of a tile go from (first x, first z) to (last x, last z), including the last ones
+    public int getTileFirstGridX(int tile)
+    {
+        return tile/tileCountZ*TILE_SIZE;
     }
 
-    
+    public int getTileLastGridX(int tile)
+    {
+        return Math.min(getTileFirstGridX(tile) + TILE_SIZE, gridWidth-1);
+    }
+
+    public int getTileFirstGridZ(int tile)
+    {
+        return tile%tileCountZ*TILE_SIZE;
+    }
+
+    public int getTileLastGridZ(int tile)
+    {
+        return Math.min(getTileFirstGridZ(tile) + TILE_SIZE, gridLength-1);
+    }
+
+    public double getTileMinX(int tile)
+    {
+        return tileBounds[tile*6];
+    }
+
+    public double getTileMinY(int tile)
+    {
+        return tileBounds[tile*6+1];
+    }
+
+    public double getTileMinZ(int tile)
+    {
+        return tileBounds[tile*6+2];
+    }
+
+    public double getTileMaxX(int tile)
+    {
+        return tileBounds[tile*6+3];
+    }
+
+    public double getTileMaxY(int tile)
+    {
+        return tileBounds[tile*6+4];
+    }
+
+    public double getTileMaxZ(int tile)
+    {
+        return tileBounds[tile*6+5];
+    }
+    //#endregion
 }
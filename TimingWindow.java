@@ -0,0 +1,94 @@
+import java.util.Arrays;
+
+//keeps the last few timings of something that happens over and over (like how long frames take), for
+//reporting their percentiles and spread (see SimulatorMBeans).
+//
+//Timings are added by one thread (the one doing the work) and read by another (a monitoring tool), without
+//locking, so adding one is just a store into an array. A reader may see a window that is a timing or two out
+//of date, which doesn't matter for statistics over hundreds of them.
+public class TimingWindow
+{
+    private final double[] samples;
+    private volatile long count; //number of timings ever added, timing i is in samples[i % samples.length]
+
+    //keeps the last "size" timings
+    public TimingWindow(int size)
+    {
+        samples = new double[Math.max(1, size)];
+    }
+
+    //adds a timing, in milliseconds. Must only be called by one thread.
+    public void add(double milliseconds)
+    {
+        long c = count;
+        samples[(int)(c%samples.length)] = milliseconds;
+        count = c + 1;
+    }
+
+    //copies the timings in the window, in no particular order
+    private double[] copy()
+    {
+        return Arrays.copyOf(samples, (int)Math.min(count, samples.length));
+    }
+
+    //the timing that "percentile" percent of the timings in the window are at or below, 0 if there are none yet
+    public double getPercentile(double percentile)
+    {
+        double[] values = copy();
+        if (values.length == 0)
+            return 0;
+        Arrays.sort(values);
+        int index = (int)Math.ceil(percentile/100*values.length) - 1;
+        return values[Math.max(0, Math.min(values.length - 1, index))];
+    }
+
+    public double getMean()
+    {
+        double[] values = copy();
+        if (values.length == 0)
+            return 0;
+        double sum = 0;
+        for (int i = 0; i < values.length; i++)
+            sum += values[i];
+        return sum/values.length;
+    }
+
+    //how far the timings are from their mean, on average (the standard deviation)
+    public double getStandardDeviation()
+    {
+        double[] values = copy();
+        if (values.length < 2)
+            return 0;
+        double mean = 0;
+        for (int i = 0; i < values.length; i++)
+            mean += values[i];
+        mean /= values.length;
+        double sum = 0;
+        for (int i = 0; i < values.length; i++)
+            sum += (values[i] - mean)*(values[i] - mean);
+        return Math.sqrt(sum/(values.length - 1));
+    }
+
+    public double getMax()
+    {
+        double[] values = copy();
+        double max = 0;
+        for (int i = 0; i < values.length; i++)
+            max = Math.max(max, values[i]);
+        return max;
+    }
+
+    //#region getter methods
+    //number of timings ever added
+    public long getCount()
+    {
+        return count;
+    }
+
+    //most timings that are kept
+    public int getSize()
+    {
+        return samples.length;
+    }
+    //#endregion
+}
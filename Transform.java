@@ -84,6 +84,19 @@ public class Transform
         rotation.z = angle;
     }
 
+    //sets the right, up and forward vectors directly (the columns of "orientation", which should be a 
+    //rotation matrix), rotating an attached mesh to match. Used to copy an orientation that was calculated
+    //somewhere else, so the euler angle rotation is left as it is.
+    public void setOrientation(Matrix3x3 orientation)
+    {
+        Matrix3x3 rotationMatrix = Matrix3x3.multiply(orientation, toLocalMatrix());
+        if (gameObject.getMesh() != null)
+            gameObject.getMesh().rotate(rotationMatrix, position);
+        right = new Vector3(orientation.R1C1, orientation.R2C1, orientation.R3C1);
+        up = new Vector3(orientation.R1C2, orientation.R2C2, orientation.R3C2);
+        forward = new Vector3(orientation.R1C3, orientation.R2C3, orientation.R3C3);
+    }
+
     //returns the world-space equivilant of "point" in local space. 
     //example: in local space, the forward direction can always be 
     //represented by (0, 0, 1), but translating that into world space will 
@@ -1,12 +1,12 @@
 import java.awt.Color;
 
-//represents 3d triangles using three Vector3 vetices
+//represents 3d triangles using the indexes of three vertices in the parent mesh's VertexBuffer
 public class Triangle 
 {
-    //3d verticies of the triangle. 
-    public Vector3 vertex1;
-    public Vector3 vertex2;
-    public Vector3 vertex3;
+    //indexes of the 3d verticies of the triangle in the parent mesh's vertex buffer. 
+    public int vertex1;
+    public int vertex2;
+    public int vertex3;
 
     //textureCoords of the triangle. 
     public Vector2 textureCoord1;
@@ -16,13 +16,13 @@ public class Triangle
     //the default color of the triangle before lighting
     private Color color;
 
-    //the mesh the this triangle is a part of (might be null)
+    //the mesh the this triangle is a part of, which holds the actual vertex coordinates
     private Mesh parentMesh;
 
     //the color of the triangle with lighting calculations. 
     private Color colorWithLighting;
 
-    public Triangle(Mesh parentMeshIn, Vector3 v1, Vector3 v2, Vector3 v3)
+    public Triangle(Mesh parentMeshIn, int v1, int v2, int v3)
     {
         vertex1 = v1;
         vertex2 = v2;
@@ -31,7 +31,7 @@ public class Triangle
         parentMesh = parentMeshIn;
     }
 
-    public Triangle(Mesh parentMeshIn, Vector3 v1, Vector3 v2, Vector3 v3, Color colorIn)
+    public Triangle(Mesh parentMeshIn, int v1, int v2, int v3, Color colorIn)
     {
         vertex1 = v1;
         vertex2 = v2;
@@ -40,7 +40,7 @@ public class Triangle
         parentMesh = parentMeshIn;
     }
 
-    public Triangle(Mesh parentMeshIn, Vector3 v1, Vector3 v2, Vector3 v3, Vector2 t1, Vector2 t2, Vector2 t3)
+    public Triangle(Mesh parentMeshIn, int v1, int v2, int v3, Vector2 t1, Vector2 t2, Vector2 t3)
     {
         vertex1 = v1;
         vertex2 = v2;
@@ -58,16 +58,18 @@ public class Triangle
 
     public Plane getPlane()
     {
-        return new Plane(vertex1, vertex2, vertex3);
+        VertexBuffer vertices = parentMesh.getVertices();
+        return new Plane(vertices.get(vertex1), vertices.get(vertex2), vertices.get(vertex3));
     }
 
     public Vector3 getCenter()
     {
+        VertexBuffer vertices = parentMesh.getVertices();
         return new Vector3
         (
-            (vertex1.x + vertex2.x + vertex3.x)/3, 
-            (vertex1.y + vertex2.y + vertex3.y)/3,
-            (vertex1.z + vertex2.z + vertex3.z)/3
+            (vertices.getX(vertex1) + vertices.getX(vertex2) + vertices.getX(vertex3))/3, 
+            (vertices.getY(vertex1) + vertices.getY(vertex2) + vertices.getY(vertex3))/3,
+            (vertices.getZ(vertex1) + vertices.getZ(vertex2) + vertices.getZ(vertex3))/3
         );
     }
 
@@ -92,7 +94,11 @@ public class Triangle
         int brightness = 0;
         int darkness = 0;
         //get the angle between the normal of the triangle face and the direction of the light. 
-        double angle = Vector3.getAngleBetween(lighting.lightDirection, Vector3.crossProduct(Vector3.subtract(vertex1, vertex2), Vector3.subtract(vertex2, vertex3)));
+        VertexBuffer vertices = parentMesh.getVertices();
+        Vector3 v1 = vertices.get(vertex1);
+        Vector3 v2 = vertices.get(vertex2);
+        Vector3 v3 = vertices.get(vertex3);
+        double angle = Vector3.getAngleBetween(lighting.lightDirection, Vector3.crossProduct(Vector3.subtract(v1, v2), Vector3.subtract(v2, v3)));
 
         //determine brightness and darkness.
         if (angle > Math.PI/2)
@@ -1,4 +1,5 @@
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Scanner;
 import java.io.PrintWriter;
 
@@ -45,36 +46,36 @@ public class User
     //writes the data of the User instance into ACCOUNT_DATA_FILE.
     public void saveData()
     {
-        //make the readers/writers
+        //read the whole file first. The writer empties the file as soon as it's made, and if the scanner
+        //is still reading it then it can read back the new data when the file gets longer.
         Scanner fileReader = Utils.makeReader(ACCOUNT_DATA_FILE);
-        PrintWriter fileWriter = Utils.makeWriter(ACCOUNT_DATA_FILE, false);
-        String line = null;
+        ArrayList<String> lines = new ArrayList<String>();
         while (fileReader.hasNextLine())
+            lines.add(fileReader.nextLine());
+        fileReader.close();
+
+        PrintWriter fileWriter = Utils.makeWriter(ACCOUNT_DATA_FILE, false);
+        int i = 0;
+        while (i < lines.size())
         {
-            line = fileReader.nextLine();
+            String line = lines.get(i++);
             fileWriter.println(line);
             if (line.equals("u " + username)) //if it finds the username
             {
                 //overwrites whatever is listed under the username with updated data.
-                fileReader.nextLine();
                 fileWriter.println("p " + password);
-                fileReader.nextLine();
                 fileWriter.println("milesFlown " + milesFlown);
-                fileReader.nextLine();
                 fileWriter.println("completedTraining " + completedTraining);
-                fileReader.nextLine();
                 fileWriter.println("settings " + userSettings.toString());
+                i += 4;
                 break;
             }
         }
-        line = "";
         //goes through the rest of the file and simply writes what it reads.
-        while (fileReader.hasNextLine())
-        {
-            line += fileReader.nextLine()+"\n";
-            
-        }
-        fileWriter.write(line);
+        String rest = "";
+        while (i < lines.size())
+            rest += lines.get(i++) + "\n";
+        fileWriter.write(rest);
         fileWriter.close();
     }
 
@@ -105,7 +106,9 @@ public class User
                         Integer.parseInt(settingsLine[5]), Integer.parseInt(settingsLine[6]),
                         Integer.parseInt(settingsLine[7]), Integer.parseInt(settingsLine[8]),
                         Integer.parseInt(settingsLine[9]), Double.parseDouble(settingsLine[10]),
-                        Double.parseDouble(settingsLine[11]), Boolean.parseBoolean(settingsLine[12])
+                        Double.parseDouble(settingsLine[11]), Boolean.parseBoolean(settingsLine[12]),
+                        //the quality preset was added later, so older files don't have it
+                        (settingsLine.length > 13)? QualityPreset.fromString(settingsLine[13]) : null
                     );
                     user = new User(line.substring(2), pass, completedTraining, miles, newSettings);
                     break;
@@ -0,0 +1,31 @@
+//measures the fraction of the time that a thread spends working rather than sleeping or waiting, for
+//monitoring (see SimulatorMBeans). The thread adds how long it worked and how much time passed, and the
+//fraction is worked out again every UPDATE_INTERVAL, so it covers the last fraction of a second.
+public class UtilizationMeter
+{
+    //seconds of time that each measurement covers
+    public static final double UPDATE_INTERVAL = 0.5;
+
+    private long busyTime; //ns of work since the last measurement
+    private long totalTime; //ns passed since the last measurement
+    private volatile double utilization;
+
+    //adds "busy" ns of work done in "elapsed" ns. Must only be called by the thread being measured.
+    public void add(long busy, long elapsed)
+    {
+        busyTime += busy;
+        totalTime += Math.max(0, elapsed);
+        if (totalTime >= UPDATE_INTERVAL*1000000000)
+        {
+            utilization = Math.min(1, (double)busyTime/totalTime);
+            busyTime = 0;
+            totalTime = 0;
+        }
+    }
+
+    //the fraction of the time that the thread worked, from 0 to 1
+    public double getUtilization()
+    {
+        return utilization;
+    }
+}
@@ -84,11 +84,67 @@ public class Vector3
         return new String(String.format("[%.2f, %.2f, %.2f]", x, y, z));
     }
 
-    public void set(Vector3 vector)
+    public Vector3 set(Vector3 vector)
     {
         x = vector.x;
         y = vector.y;
         z = vector.z;
+        return this;
+    }
+
+    //the following methods change the vector itself instead of creating a new one, for code that runs so often
+    //that the garbage from new vectors adds up (like the flight model). They return the vector so they can be chained.
+
+    public Vector3 set(double xIn, double yIn, double zIn)
+    {
+        x = xIn;
+        y = yIn;
+        z = zIn;
+        return this;
+    }
+
+    //subtracts the specified vector from itself
+    public Vector3 subtract(Vector3 vectorIn)
+    {
+        x-= vectorIn.x;
+        y-= vectorIn.y;
+        z-= vectorIn.z;
+        return this;
+    }
+
+    //normalizes itself, the same as getNormalized()
+    public Vector3 normalize()
+    {
+        if (getSqrMagnitude() != 1)
+        {
+            double magnitude = getMagnitude();
+            x/= magnitude;
+            y/= magnitude;
+            z/= magnitude;
+        }
+        return this;
+    }
+
+    //moves itself towards "end" by "time", the same as lerp(this, end, time)
+    public Vector3 lerp(Vector3 end, double time)
+    {
+        x = x + (end.x-x)*time;
+        y = y + (end.y-y)*time;
+        z = z + (end.z-z)*time;
+        return this;
+    }
+
+    //sets itself to the cross product of a and b, which can include itself
+    public Vector3 setCrossProduct(Vector3 a, Vector3 b)
+    {
+        return set(a.y*b.z-a.z*b.y, a.z*b.x-a.x*b.z, a.x*b.y-a.y*b.x);
+    }
+
+    //sets itself to the projection of a onto b (see projectToVector()). a can be itself
+    public Vector3 setProjectionToVector(Vector3 a, Vector3 b)
+    {
+        double scale = Vector3.dotProduct(b, a)/b.getSqrMagnitude();
+        return set(b.x*scale, b.y*scale, b.z*scale);
     }
 
 //============================= static methods ===============================
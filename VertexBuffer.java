@@ -0,0 +1,286 @@
+import java.util.Arrays;
+
+//a growable list of 3d points. Rather than storing a Vector3 object for every point, the
+//coordinates are packed into three parallel arrays (one per axis). This uses a lot less memory
+//than separate objects, and lets VertexKernels transform every point in the buffer at once
+//without creating any new objects.
+//
+//Single precision mode:
+//buffers can store their coordinates as floats instead of doubles, which halves the memory used by
+//vertices and the amount of memory read when culling and projecting them every frame. It is chosen
+//once at startup (see FlightSimulator.main) and applies to every buffer made after that.
+//The cost is precision. A float has a 24 bit mantissa, so a coordinate with magnitude below 2^n is
+//stored with an error of at most 2^(n-25) units. The whole world fits within 2^20 units of the origin,
+//which gives an error of at most 1/32 of a unit per axis (sqrt(3)/32 units in all). The vertices are
+//projected relative to the camera's double precision position (see VertexKernels.transform), so the float
+//math itself only adds an error proportional to the distance from the camera, which is much smaller than
+//a pixel. After projection, an error of e units at a depth of d units moves a point by about
+//focalLength*e/d pixels, so with a 60 degree fov on a 1024 pixel wide panel (focalLength ~887px):
+//  - worst case less than half a pixel at the near clip distance (100 units)
+//  - less than 0.15 pixels for anything more than 330 units from the camera
+//  - around the starting runway (within 2^14 units of the origin) it is less than 0.01 pixels
+//These match the largest errors measured against double precision for random cameras and vertices.
+//Since screen coordinates are truncated to whole pixels anyway, this is not visible in practice.
+public class VertexBuffer
+{
+    //should buffers created from now on store floats?
+    private static boolean useSinglePrecision = false;
+
+    //double precision coordinates (null in single precision mode)
+    private double[] x;
+    private double[] y;
+    private double[] z;
+
+    //single precision coordinates (null in double precision mode)
+    private float[] xf;
+    private float[] yf;
+    private float[] zf;
+
+    //does this buffer store floats?
+    private final boolean singlePrecision;
+
+    //number of points in the buffer (the arrays may be longer than this)
+    private int size;
+
+    //goes up every time a point is changed, so anything that depends on the points (like a MeshBVH)
+    //can tell when it needs to be updated without comparing every point
+    private int version;
+
+    public VertexBuffer()
+    {
+        this(16);
+    }
+
+    //creates an empty buffer with room for "capacity" points before it needs to grow
+    public VertexBuffer(int capacity)
+    {
+        capacity = Math.max(1, capacity);
+        singlePrecision = useSinglePrecision;
+        if (singlePrecision)
+        {
+            xf = new float[capacity];
+            yf = new float[capacity];
+            zf = new float[capacity];
+        }
+        else
+        {
+            x = new double[capacity];
+            y = new double[capacity];
+            z = new double[capacity];
+        }
+        size = 0;
+    }
+
+    //chooses whether buffers created after this call store floats or doubles.
+    //should be called before any meshes are loaded.
+    public static void setSinglePrecision(boolean value)
+    {
+        useSinglePrecision = value;
+    }
+
+    public static boolean usingSinglePrecision()
+    {
+        return useSinglePrecision;
+    }
+
+    //adds a point to the end of the buffer and returns it's index
+    public int add(double xIn, double yIn, double zIn)
+    {
+        if (size == capacity())
+            grow();
+        set(size, xIn, yIn, zIn);
+        return size++;
+    }
+
+    public int add(Vector3 point)
+    {
+        return add(point.x, point.y, point.z);
+    }
+
+    //returns a copy of the point at the specified index. Changing the returned
+    //Vector3 does not change the buffer, use set() for that.
+    public Vector3 get(int index)
+    {
+        return new Vector3(getX(index), getY(index), getZ(index));
+    }
+
+    public void set(int index, double xIn, double yIn, double zIn)
+    {
+        version++;
+        if (singlePrecision)
+        {
+            xf[index] = (float)xIn;
+            yf[index] = (float)yIn;
+            zf[index] = (float)zIn;
+        }
+        else
+        {
+            x[index] = xIn;
+            y[index] = yIn;
+            z[index] = zIn;
+        }
+    }
+
+    //copies the point at "index" into slot "slot" of the given arrays
+    public void copyTo(int index, double[] xOut, double[] yOut, double[] zOut, int slot)
+    {
+        xOut[slot] = getX(index);
+        yOut[slot] = getY(index);
+        zOut[slot] = getZ(index);
+    }
+
+    //single precision version of copyTo, only valid for single precision buffers
+    public void copyTo(int index, float[] xOut, float[] yOut, float[] zOut, int slot)
+    {
+        xOut[slot] = xf[index];
+        yOut[slot] = yf[index];
+        zOut[slot] = zf[index];
+    }
+
+    //rotates every point in the buffer by the rotation matrix, around the center of rotation.
+    public void rotate(Matrix3x3 rotationMatrix, Vector3 centerOfRotation)
+    {
+        version++;
+        if (singlePrecision)
+            VertexKernels.rotate(rotationMatrix, centerOfRotation.x, centerOfRotation.y, centerOfRotation.z, xf, yf, zf, 0, size);
+        else
+            VertexKernels.rotate(rotationMatrix, centerOfRotation.x, centerOfRotation.y, centerOfRotation.z, x, y, z, 0, size);
+    }
+
+    //translates every point in the buffer by "amount"
+    public void translate(Vector3 amount)
+    {
+        version++;
+        if (singlePrecision)
+            VertexKernels.translate(amount.x, amount.y, amount.z, xf, yf, zf, 0, size);
+        else
+            VertexKernels.translate(amount.x, amount.y, amount.z, x, y, z, 0, size);
+    }
+
+    //writes the bounding box of the points in the buffer into "bounds", as minX, minY, minZ, maxX, maxY, maxZ.
+    //returns false (and leaves "bounds" alone) if the buffer is empty.
+    public boolean getBounds(double[] bounds)
+    {
+        if (size == 0)
+            return false;
+        bounds[0] = bounds[1] = bounds[2] = Double.MAX_VALUE;
+        bounds[3] = bounds[4] = bounds[5] = -Double.MAX_VALUE;
+        for (int i = 0; i < size; i++)
+        {
+            double px = getX(i), py = getY(i), pz = getZ(i);
+            bounds[0] = Math.min(bounds[0], px);
+            bounds[1] = Math.min(bounds[1], py);
+            bounds[2] = Math.min(bounds[2], pz);
+            bounds[3] = Math.max(bounds[3], px);
+            bounds[4] = Math.max(bounds[4], py);
+            bounds[5] = Math.max(bounds[5], pz);
+        }
+        return true;
+    }
+
+    //shrinks the arrays down to the number of points, used once a mesh is done being built.
+    public void trimToSize()
+    {
+        if (size < capacity())
+            resize(size);
+    }
+
+    //doubles the length of the coordinate arrays
+    private void grow()
+    {
+        resize(capacity()*2);
+    }
+
+    private void resize(int length)
+    {
+        if (singlePrecision)
+        {
+            xf = Arrays.copyOf(xf, length);
+            yf = Arrays.copyOf(yf, length);
+            zf = Arrays.copyOf(zf, length);
+        }
+        else
+        {
+            x = Arrays.copyOf(x, length);
+            y = Arrays.copyOf(y, length);
+            z = Arrays.copyOf(z, length);
+        }
+    }
+
+    private int capacity()
+    {
+        return singlePrecision? xf.length : x.length;
+    }
+
+    //#region getter methods
+    public int size()
+    {
+        return size;
+    }
+
+    //changes every time the points are changed (see version)
+    public int getVersion()
+    {
+        return version;
+    }
+
+    public boolean isSinglePrecision()
+    {
+        return singlePrecision;
+    }
+
+    //number of bytes used by the coordinate arrays
+    public long getMemoryUsage()
+    {
+        return 3L*capacity()*(singlePrecision? 4 : 8);
+    }
+
+    public double getX(int index)
+    {
+        return singlePrecision? xf[index] : x[index];
+    }
+
+    public double getY(int index)
+    {
+        return singlePrecision? yf[index] : y[index];
+    }
+
+    public double getZ(int index)
+    {
+        return singlePrecision? zf[index] : z[index];
+    }
+
+    //the raw coordinate arrays, used for passing the buffer to VertexKernels.
+    //only the first size() values are points in the buffer, and the double arrays
+    //are null in single precision mode (and the float arrays in double precision mode).
+    public double[] getXArray()
+    {
+        return x;
+    }
+
+    public double[] getYArray()
+    {
+        return y;
+    }
+
+    public double[] getZArray()
+    {
+        return z;
+    }
+
+    public float[] getFloatXArray()
+    {
+        return xf;
+    }
+
+    public float[] getFloatYArray()
+    {
+        return yf;
+    }
+
+    public float[] getFloatZArray()
+    {
+        return zf;
+    }
+    //#endregion
+}
@@ -0,0 +1,127 @@
+//batch versions of the Vector3/Matrix3x3 math used on meshes. Instead of working on one Vector3 object
+//at a time (and creating a new Vector3 for every result), each method here works on a whole range of
+//points stored in primitive coordinate arrays, like the ones in a VertexBuffer.
+//Every kernel is a single flat counted loop with no method calls, branches or allocations inside of it.
+//That is the shape of loop that the JIT compiler is able to turn into SIMD instructions, so large meshes
+//get transformed several points at a time.
+public class VertexKernels
+{
+    //rotates the points from index "from" up to (but not including) "to" by the rotation matrix,
+    //around the center of rotation (cx, cy, cz). Same as the Vector3 math:
+    //  point = applyMatrix(matrix, point - center) + center
+    public static void rotate(Matrix3x3 matrix, double cx, double cy, double cz, double[] x, double[] y, double[] z, int from, int to)
+    {
+        //local copies so the matrix values can stay in registers for the whole loop
+        double m11 = matrix.R1C1, m12 = matrix.R1C2, m13 = matrix.R1C3;
+        double m21 = matrix.R2C1, m22 = matrix.R2C2, m23 = matrix.R2C3;
+        double m31 = matrix.R3C1, m32 = matrix.R3C2, m33 = matrix.R3C3;
+
+        for (int i = from; i < to; i++)
+        {
+            double px = x[i] - cx;
+            double py = y[i] - cy;
+            double pz = z[i] - cz;
+            x[i] = px*m11 + py*m12 + pz*m13 + cx;
+            y[i] = px*m21 + py*m22 + pz*m23 + cy;
+            z[i] = px*m31 + py*m32 + pz*m33 + cz;
+        }
+    }
+
+    //translates the points from index "from" up to (but not including) "to" by (dx, dy, dz)
+    public static void translate(double dx, double dy, double dz, double[] x, double[] y, double[] z, int from, int to)
+    {
+        for (int i = from; i < to; i++)
+        {
+            x[i] += dx;
+            y[i] += dy;
+            z[i] += dz;
+        }
+    }
+
+    //transforms the points from index "from" up to (but not including) "to" into clip space by a
+    //view-projection matrix (see Matrix4x4.perspective). The results are written into the output arrays
+    //starting at "outOffset". Only x, y and w are calculated, since the renderer uses w (the depth of the
+    //point in front of the camera) for all of it's depth tests and doesn't need the normalized depth.
+    //Dividing clipX and clipY by clipW gives the point's normalized screen coordinates.
+    public static void transform(Matrix4x4 matrix, double[] x, double[] y, double[] z, int from, int to,
+                                 double[] clipX, double[] clipY, double[] clipW, int outOffset)
+    {
+        double m11 = matrix.R1C1, m12 = matrix.R1C2, m13 = matrix.R1C3, m14 = matrix.R1C4;
+        double m21 = matrix.R2C1, m22 = matrix.R2C2, m23 = matrix.R2C3, m24 = matrix.R2C4;
+        double m41 = matrix.R4C1, m42 = matrix.R4C2, m43 = matrix.R4C3, m44 = matrix.R4C4;
+        int offset = outOffset - from;
+
+        for (int i = from; i < to; i++)
+        {
+            double px = x[i];
+            double py = y[i];
+            double pz = z[i];
+            clipX[i + offset] = px*m11 + py*m12 + pz*m13 + m14;
+            clipY[i + offset] = px*m21 + py*m22 + pz*m23 + m24;
+            clipW[i + offset] = px*m41 + py*m42 + pz*m43 + m44;
+        }
+    }
+
+    //#region single precision versions
+    //the same kernels for single precision vertex buffers. The math is done in floats as well, so twice 
+    //as many points fit in each SIMD register. See VertexBuffer for the error this introduces.
+
+    public static void rotate(Matrix3x3 matrix, double cx, double cy, double cz, float[] x, float[] y, float[] z, int from, int to)
+    {
+        float m11 = (float)matrix.R1C1, m12 = (float)matrix.R1C2, m13 = (float)matrix.R1C3;
+        float m21 = (float)matrix.R2C1, m22 = (float)matrix.R2C2, m23 = (float)matrix.R2C3;
+        float m31 = (float)matrix.R3C1, m32 = (float)matrix.R3C2, m33 = (float)matrix.R3C3;
+        float centerX = (float)cx, centerY = (float)cy, centerZ = (float)cz;
+
+        for (int i = from; i < to; i++)
+        {
+            float px = x[i] - centerX;
+            float py = y[i] - centerY;
+            float pz = z[i] - centerZ;
+            x[i] = px*m11 + py*m12 + pz*m13 + centerX;
+            y[i] = px*m21 + py*m22 + pz*m23 + centerY;
+            z[i] = px*m31 + py*m32 + pz*m33 + centerZ;
+        }
+    }
+
+    public static void translate(double dx, double dy, double dz, float[] x, float[] y, float[] z, int from, int to)
+    {
+        float amountX = (float)dx, amountY = (float)dy, amountZ = (float)dz;
+        for (int i = from; i < to; i++)
+        {
+            x[i] += amountX;
+            y[i] += amountY;
+            z[i] += amountZ;
+        }
+    }
+
+    //the points are made relative to (originX, originY, originZ) in double precision before the float math
+    //(pass the camera's position). The view-projection matrix moves the whole world by the camera's position,
+    //which can be as large as the coordinates themselves, so doing that in floats would add an error the size
+    //of the world's rounding error to every point. Relative to the camera, the rounding error of the math
+    //shrinks with the distance to the point, and so stays the same size on screen.
+    public static void transform(Matrix4x4 matrix, double originX, double originY, double originZ, float[] x, float[] y, float[] z, int from, int to,
+                                 float[] clipX, float[] clipY, float[] clipW, int outOffset)
+    {
+        float m11 = (float)matrix.R1C1, m12 = (float)matrix.R1C2, m13 = (float)matrix.R1C3;
+        float m21 = (float)matrix.R2C1, m22 = (float)matrix.R2C2, m23 = (float)matrix.R2C3;
+        float m41 = (float)matrix.R4C1, m42 = (float)matrix.R4C2, m43 = (float)matrix.R4C3;
+        //the translation of the matrix with the origin moved to (originX, originY, originZ), in doubles
+        //(for the camera's position this is close to 0, as the camera is the origin of view space)
+        float m14 = (float)(matrix.R1C1*originX + matrix.R1C2*originY + matrix.R1C3*originZ + matrix.R1C4);
+        float m24 = (float)(matrix.R2C1*originX + matrix.R2C2*originY + matrix.R2C3*originZ + matrix.R2C4);
+        float m44 = (float)(matrix.R4C1*originX + matrix.R4C2*originY + matrix.R4C3*originZ + matrix.R4C4);
+        int offset = outOffset - from;
+
+        for (int i = from; i < to; i++)
+        {
+            float px = (float)(x[i] - originX);
+            float py = (float)(y[i] - originY);
+            float pz = (float)(z[i] - originZ);
+            clipX[i + offset] = px*m11 + py*m12 + pz*m13 + m14;
+            clipY[i + offset] = px*m21 + py*m22 + pz*m23 + m24;
+            clipW[i + offset] = px*m41 + py*m42 + pz*m43 + m44;
+        }
+    }
+    //#endregion
+}